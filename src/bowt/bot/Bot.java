@@ -1,22 +1,58 @@
 package bowt.bot;
 
 import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 import bowt.bot.exc.BowtieClientException;
+import bowt.bot.exc.SendException;
+import bowt.bot.exc.SendException.Reason;
+import bowt.cmnd.Command;
+import bowt.cmnd.CommandOrdinals;
 import bowt.cmnd.PrefixLoader;
 import bowt.cons.Colors;
 import bowt.cons.LibConstants;
+import bowt.evnt.impl.CommandEvent;
+import bowt.guild.GuildJournal;
+import bowt.guild.GuildLoader;
 import bowt.guild.GuildObject;
+import bowt.guild.GuildSnapshot;
+import bowt.guild.GuildStore;
+import bowt.guild.RoleIndex;
 import bowt.hand.impl.BotReadyHandler;
+import bowt.hand.impl.PaginationHandler;
 import bowt.hand.impl.PresenceHandler;
+import bowt.hand.intf.CommandHandler;
 import bowt.log.Logger;
 import bowt.prop.Properties;
+import bowt.send.Broadcast;
+import bowt.send.LiveMessage;
+import bowt.send.MessageSender;
+import bowt.send.PagedMessage;
+import bowt.send.Priority;
+import bowt.thread.Threads;
+import bowt.util.perm.BanFile;
+import bowt.util.perm.BanList;
+import bowt.util.perm.PermissionContext;
 import bowt.util.perm.UserPermissions;
 import sx.blah.discord.api.ClientBuilder;
 import sx.blah.discord.api.IDiscordClient;
@@ -24,6 +60,7 @@ import sx.blah.discord.api.events.EventDispatcher;
 import sx.blah.discord.api.events.IListener;
 import sx.blah.discord.api.internal.json.objects.EmbedObject;
 import sx.blah.discord.handle.obj.ActivityType;
+import sx.blah.discord.handle.impl.obj.ReactionEmoji;
 import sx.blah.discord.handle.obj.IChannel;
 import sx.blah.discord.handle.obj.IGuild;
 import sx.blah.discord.handle.obj.IMessage;
@@ -31,7 +68,6 @@ import sx.blah.discord.handle.obj.IUser;
 import sx.blah.discord.handle.obj.StatusType;
 import sx.blah.discord.util.DiscordException;
 import sx.blah.discord.util.EmbedBuilder;
-import sx.blah.discord.util.MissingPermissionsException;
 import sx.blah.discord.util.RateLimitException;
 import sx.blah.discord.util.RequestBuffer;
 import sx.blah.discord.util.RequestBuffer.IRequest;
@@ -56,8 +92,32 @@ public class Bot
     /** The {@link IDiscordClient} instance used by this bot. */
     protected IDiscordClient client;
 
+    /** The number of guilds which are materialized together by a single task in {@link #createGuildObjects()}. */
+    public static final int STARTUP_CHUNK_SIZE = 1000;
+
     /** The list containing the registered {@link GuildObject}s. */
-    protected Map<Long, GuildObject> guilds;
+    protected volatile Map<Long, GuildObject> guilds;
+
+    /**
+     * The map which {@link #createGuildObjects()} fills before it replaces {@link #guilds} or null if it is not
+     * running. Guildobjects which are added or removed in the meantime are also added to or removed from it.
+     */
+    protected Map<Long, GuildObject> stagedGuilds;
+
+    /** Guards the replacement of {@link #guilds} by {@link #stagedGuilds} against concurrent changes. */
+    protected final Object guildsLock = new Object();
+
+    /**
+     * The maximum number of threads that are used to create the {@link GuildObject}s and load their prefixes in
+     * {@link #createGuildObjects()}.
+     * <p>
+     * The default is 1, which creates them on the calling thread.
+     * </p>
+     */
+    protected int startupParallelism = 1;
+
+    /** The pool which materializes the guildobjects in parallel or null if it has not been needed yet. */
+    protected ForkJoinPool startupPool;
 
     /** The list containing the registered user IDs with creator permissions. */
     protected List<String> creators;
@@ -65,8 +125,8 @@ public class Bot
     /** The list containing the registered user IDs with creator permissions. */
     protected String appOwner;
 
-    /** The list containing all the user IDs that are banned from using commands. */
-    protected List<String> bannedUsers;
+    /** The IDs of all users that are banned from using commands. */
+    protected BanList bannedUsers;
 
     /** The application token. */
     protected String token;
@@ -82,8 +142,71 @@ public class Bot
     /** A loader which will set the prefix for each guild on startup. */
     protected PrefixLoader prefixLoader;
 
+    /** Indicates whether a mention of the bot is accepted as command prefix on all guilds. */
+    protected volatile boolean mentionPrefix = false;
+
+    /** A loader which will restore the owners, masters and overrides of each guild when it is created. */
+    protected GuildLoader guildLoader;
+
+    /** Creates the command handler of every guildobject that is registered to this bot or null. */
+    protected volatile Function<GuildObject, CommandHandler> commandHandlerFactory;
+
+    /** The owners and masters of all guilds, including the ones which are not in memory. */
+    protected final RoleIndex roleIndex = new RoleIndex();
+
+    /**
+     * Indicates whether {@link GuildObject}s are only created once they are requested via
+     * {@link #getGuildObject(IGuild)} instead of in {@link #createGuildObjects()}.
+     */
+    protected volatile boolean lazyGuildLoading = false;
+
+    /** Contains the guilds that are currently being loaded lazily, so that concurrent requests share one load. */
+    protected Map<Long, CompletableFuture<GuildObject>> pendingGuilds;
+
+    /** The store which persists the state of evicted guilds. */
+    protected GuildStore guildStore;
+
+    /** The time in milliseconds after which an unused guild is evicted. */
+    protected long maxGuildIdleTime;
+
+    /** The maximum number of guilds that are kept in memory. */
+    protected int maxGuildCount;
+
+    /** The task which periodically evicts guilds. */
+    protected ScheduledFuture<?> evictionFuture;
+
     protected PresenceHandler presenceHandler;
 
+    /** The handler which turns the pages of paged messages or null if none has been sent yet. */
+    protected PaginationHandler paginationHandler;
+
+    /** The context which resolves permission levels for the users of this bot. */
+    protected PermissionContext permissionContext;
+
+    /** Assigns the ordinals of the commands of this bot which index the permission overrides of its guilds. */
+    protected final CommandOrdinals commandOrdinals = new CommandOrdinals();
+
+    /** Reconciles restored guilds with the loaders or null if it has not been needed yet. */
+    protected ExecutorService reconcileExecutor;
+
+    /** The snapshot from which guild states are restored in {@link #createGuildObjects()}. */
+    protected GuildSnapshot snapshot;
+
+    /** The file to which snapshots are written periodically and on {@link #logout()}. */
+    protected Path snapshotFile;
+
+    /** The commands whichs aliases are included in the periodic snapshots. */
+    protected Collection<Command> snapshotCommands;
+
+    /** The task which periodically writes the snapshots. */
+    protected ScheduledFuture<?> snapshotFuture;
+
+    /** The journal to which configuration changes of the guilds and commands are written or null. */
+    protected GuildJournal journal;
+
+    /** Performs the requests of the asynchronous send methods. */
+    protected MessageSender messageSender;
+
     /** The {@link Logger} which is used to log information. */
     public static Logger log = new Logger("logs/system_logs.log", TimeZone.getTimeZone("CET"));
 
@@ -115,8 +238,11 @@ public class Bot
         log.start();
         errorLog.start();
         this.guilds = new ConcurrentHashMap<Long, GuildObject>();
+        this.pendingGuilds = new ConcurrentHashMap<>();
         this.creators = new ArrayList<>();
-        this.bannedUsers = new ArrayList<>();
+        this.bannedUsers = new BanList();
+        this.permissionContext = new PermissionContext(this);
+        this.messageSender = new MessageSender();
     }
 
     /**
@@ -187,10 +313,13 @@ public class Bot
         log.start();
         errorLog.start();
         this.token = token;
+        this.permissionContext = new PermissionContext(this);
         this.buildClient(token, withRecShards);
         this.guilds = new ConcurrentHashMap<Long, GuildObject>();
+        this.pendingGuilds = new ConcurrentHashMap<>();
         this.creators = new ArrayList<>();
-        this.bannedUsers = new ArrayList<>();
+        this.bannedUsers = new BanList();
+        this.messageSender = new MessageSender();
     }
 
     /**
@@ -285,6 +414,39 @@ public class Bot
         return this.presenceHandler;
     }
 
+    /**
+     * Gets the {@link PermissionContext} which resolves permission levels for the users of this bot.
+     * 
+     * @return The context.
+     */
+    public PermissionContext getPermissionContext()
+    {
+        return this.permissionContext;
+    }
+
+    /**
+     * Creates a {@link CommandEvent} for a command in a private channel, whose author's permission level is resolved
+     * with the {@link #permissionContext} of this bot.
+     * 
+     * @param message
+     *            The message of the event.
+     * @return The event.
+     */
+    public CommandEvent createCommandEvent(IMessage message)
+    {
+        return new CommandEvent(message, this.permissionContext);
+    }
+
+    /**
+     * Gets the {@link CommandOrdinals} which index the permission overrides of the guilds of this bot.
+     * 
+     * @return The ordinals.
+     */
+    public CommandOrdinals getCommandOrdinals()
+    {
+        return this.commandOrdinals;
+    }
+
     /**
      * Sets the PrefixLoader which will be used to load the prefix of each guild.
      * 
@@ -296,6 +458,47 @@ public class Bot
         this.prefixLoader = loader;
     }
 
+    /**
+     * Sets the GuildLoader which will be used to load the owners, masters and overrides of each guild when its
+     * {@link GuildObject} is created.
+     * 
+     * @param loader
+     *            The loader instance.
+     */
+    public void setGuildLoader(GuildLoader loader)
+    {
+        this.guildLoader = loader;
+    }
+
+    /**
+     * Sets the factory which creates the {@link CommandHandler} of every {@link GuildObject} that is registered to
+     * this bot and does not have a handler yet.
+     * 
+     * <p>
+     * The factory is needed if guildobjects are created by the bot itself without a {@link GuildLoader}, which is the
+     * case with {@link #setLazyGuildLoading(boolean) lazy guild loading}, a {@link #loadSnapshot(Path) snapshot} and
+     * for guilds which are restored after they have been {@link #startGuildEviction(long, int, GuildStore) evicted}.
+     * Without it those guildobjects have no handler and don't answer commands.
+     * </p>
+     * 
+     * @param factory
+     *            The factory or null.
+     */
+    public void setCommandHandlerFactory(Function<GuildObject, CommandHandler> factory)
+    {
+        this.commandHandlerFactory = factory;
+    }
+
+    /**
+     * Gets the factory which creates the {@link CommandHandler} of every registered {@link GuildObject}.
+     * 
+     * @return The factory or null if none has been set.
+     */
+    public Function<GuildObject, CommandHandler> getCommandHandlerFactory()
+    {
+        return this.commandHandlerFactory;
+    }
+
     /**
      * Logs the {@link #client} into Discord.
      * 
@@ -311,6 +514,10 @@ public class Bot
         log.print(this, "Trying to log into Discord.");
         if (this.client != null)
         {
+            if (this.messageSender.isShutdown())
+            {
+                this.messageSender = new MessageSender();
+            }
             this.client.login();
             log.print(this, "Logged in.");
         }
@@ -336,6 +543,20 @@ public class Bot
             {
                 this.presenceHandler.stop();
             }
+            synchronized (this)
+            {
+                if (this.paginationHandler != null)
+                {
+                    this.paginationHandler.stop();
+                    this.client.getDispatcher().unregisterListener(this.paginationHandler);
+                    this.paginationHandler = null;
+                }
+            }
+            stopGuildEviction();
+            stopSnapshots();
+            closeJournal();
+            // queued messages fail once the client is gone, a new sender is created on the next login
+            this.messageSender.shutdown();
             this.client.logout();
             log.print(this, "Offline.");
         }
@@ -600,35 +821,25 @@ public class Bot
     }
 
     /**
-     * Gets the total number of masters registered to the {@link GuildObject}s.
+     * Gets the total number of masters registered to the {@link GuildObject}s, including the guilds which are not in
+     * memory. See {@link #getRoleIndex()} for the guilds which are known.
      * 
      * @return The number of masters.
      */
     public int getTotalMasterCount()
     {
-        List<GuildObject> guilds = this.getGuildObjects();
-        int count = 0;
-        for (GuildObject guild : guilds)
-        {
-            count += guild.getMasters().size();
-        }
-        return count;
+        return this.roleIndex.getMasterCount();
     }
 
     /**
-     * Gets the total number of owners registered to the {@link GuildObject}s.
+     * Gets the total number of owners registered to the {@link GuildObject}s, including the guilds which are not in
+     * memory. See {@link #getRoleIndex()} for the guilds which are known.
      * 
      * @return The number of owners.
      */
     public int getTotalOwnerCount()
     {
-        List<GuildObject> guilds = this.getGuildObjects();
-        int count = 0;
-        for (GuildObject guild : guilds)
-        {
-            count += guild.getOwners().size();
-        }
-        return count;
+        return this.roleIndex.getOwnerCount();
     }
 
     /**
@@ -644,6 +855,29 @@ public class Bot
     /**
      * Creates a {@link GuildObject} for each connected guild and adds them to the {@link #guilds} map.
      * 
+     * <p>
+     * If a {@link #loadSnapshot(Path) snapshot} has been loaded, the state of every guild that is contained in it is
+     * restored from the snapshot instead of using the {@link PrefixLoader} and {@link GuildLoader}. Those guilds are
+     * reconciled with the loaders in the background afterwards. Guilds that have been evicted to the
+     * {@link #setGuildStore(GuildStore) guild store} before are restored from the store instead.
+     * </p>
+     * 
+     * <p>
+     * If the {@link #setStartupParallelism(int) startup parallelism} is greater than 1, the guilds are split into
+     * chunks of {@link #STARTUP_CHUNK_SIZE} which are materialized concurrently on the {@link #startupPool}.
+     * </p>
+     * 
+     * <p>
+     * The guildobjects are collected in {@link #stagedGuilds}, which replaces {@link #guilds} once every guild has been
+     * loaded, so the bot never works with only a part of its guilds. Guildobjects which are added in the meantime, for
+     * example by {@link #addGuildObject(GuildObject)}, are kept. If the guildobjects could not be created,
+     * {@link #guilds} is left unchanged.
+     * </p>
+     * 
+     * <p>
+     * If {@link #setLazyGuildLoading(boolean) lazy guild loading} is enabled this does not create any guildobjects.
+     * </p>
+     * 
      * @return The Map of {@link GuildObject}s or null if the client has not been built yet.
      */
     public Map<Long, GuildObject> createGuildObjects()
@@ -657,972 +891,2152 @@ public class Bot
             errorLog.print(this, e);
             return null;
         }
+        if (this.lazyGuildLoading)
+        {
+            log.print(this, "Guildobjects will be created on first use.");
+            return this.guilds;
+        }
         List<IGuild> connectedGuilds = this.client.getGuilds();
-        for (IGuild guild : connectedGuilds)
+        Map<Long, GuildObject> target;
+        synchronized (this.guildsLock)
+        {
+            target = new ConcurrentHashMap<>(this.guilds);
+            this.stagedGuilds = target;
+        }
+        List<GuildObject> restored = new ArrayList<>();
+
+        if (this.startupParallelism > 1 && connectedGuilds.size() > STARTUP_CHUNK_SIZE)
+        {
+            List<List<IGuild>> chunks = new ArrayList<>();
+            for (int i = 0; i < connectedGuilds.size(); i += STARTUP_CHUNK_SIZE)
+            {
+                chunks.add(connectedGuilds.subList(i, Math.min(i + STARTUP_CHUNK_SIZE, connectedGuilds.size())));
+            }
+            try
+            {
+                getStartupPool().submit(() -> chunks.parallelStream().forEach(chunk ->
+                {
+                    List<GuildObject> chunkRestored = materializeGuildObjects(chunk, target);
+                    synchronized (restored)
+                    {
+                        restored.addAll(chunkRestored);
+                    }
+                })).get();
+            }
+            catch (InterruptedException | ExecutionException e)
+            {
+                errorLog.print(this, "Failed to create the guildobjects.");
+                errorLog.print(this, e);
+                synchronized (this.guildsLock)
+                {
+                    this.stagedGuilds = null;
+                }
+                return null;
+            }
+        }
+        else
+        {
+            restored.addAll(materializeGuildObjects(connectedGuilds, target));
+        }
+
+        synchronized (this.guildsLock)
         {
-            addGuildObject(new GuildObject(guild));
+            this.guilds = target;
+            this.stagedGuilds = null;
+        }
+        log.print(this, "Created " + target.size() + " guildobjects.");
+        if (!restored.isEmpty())
+        {
+            log.print(this, "Restored " + restored.size() + " guildobjects from the snapshot.");
+            reconcileGuildObjects(restored);
         }
-        log.print(this, "Created " + this.guilds.size() + " guildobjects.");
         return this.guilds;
     }
 
     /**
-     * Gets {@link #guilds} which contains all registered {@link GuildObject}s.
+     * Creates {@link GuildObject}s for all given guilds that are not contained in the target map yet and puts them into
+     * it.
      * 
-     * @return A {@link List} containing the registered {@link GuildObject}s.
+     * @param guilds
+     *            The guilds to create.
+     * @param target
+     *            The map to which the created guildobjects are added.
+     * @return The guildobjects that were restored from the snapshot.
      */
-    public List<GuildObject> getGuildObjects()
+    protected List<GuildObject> materializeGuildObjects(List<IGuild> guilds, Map<Long, GuildObject> target)
     {
-        return new ArrayList<GuildObject>(this.guilds.values());
+        List<GuildObject> created = new ArrayList<>(guilds.size());
+        List<GuildObject> stored = new ArrayList<>();
+        List<GuildObject> restored = new ArrayList<>();
+        for (IGuild guild : guilds)
+        {
+            if (target.containsKey(guild.getLongID()))
+            {
+                continue;
+            }
+            GuildObject guildObject = new GuildObject(guild);
+            if (loadStoredGuildObject(guildObject))
+            {
+                // the guild was evicted before and its stored state is more recent than the snapshot
+                stored.add(guildObject);
+            }
+            else if (this.snapshot != null && this.snapshot.restore(guildObject))
+            {
+                restored.add(guildObject);
+            }
+            else
+            {
+                created.add(guildObject);
+            }
+        }
+        loadPrefixes(created);
+        loadGuildStates(created);
+        created.addAll(stored);
+        created.addAll(restored);
+        for (GuildObject guildObject : created)
+        {
+            prepareGuildObject(guildObject);
+            // keeps a guildobject that was added while this one was being loaded
+            if (target.putIfAbsent(guildObject.getLongID(), guildObject) != null)
+            {
+                restored.remove(guildObject);
+            }
+        }
+        return restored;
     }
 
     /**
-     * Sets the {@link #guilds}.
+     * Enables or disables lazy guild loading.
      * 
-     * @param guilds
-     *            A {@link Map} containing the {@link GuildObject}s.
+     * <p>
+     * If enabled, {@link #createGuildObjects()} will not create any {@link GuildObject}s. Instead each guildobject is
+     * created and its prefix and state are loaded the first time it is requested via {@link #getGuildObject(IGuild)}
+     * or {@link #getGuildObjectByID(String)}, which usually happens when the guild sends its first message. This
+     * makes startup time and memory usage depend on the number of active guilds instead of all connected guilds.
+     * </p>
+     * 
+     * @param lazy
+     *            true to create guildobjects on first use.
      */
-    public void setGuildObjects(Map<Long, GuildObject> guilds)
+    public void setLazyGuildLoading(boolean lazy)
     {
-        this.guilds = guilds;
+        this.lazyGuildLoading = lazy;
     }
 
     /**
-     * Adds a single {@link GuildObject} to the {@link #guilds} list.
+     * Indicates whether lazy guild loading is enabled.
      * 
-     * @param guild
-     *            The {@link GuildObect} which should be added.
-     * @return true always
+     * @return true if guildobjects are created on first use.
+     * @see #setLazyGuildLoading(boolean)
      */
-    public boolean addGuildObject(GuildObject guild)
+    public boolean isLazyGuildLoading()
     {
-        if (!this.guilds.containsKey(guild.getLongID()))
-        {
-            if (this.prefixLoader != null)
-            {
-                guild.setPrefix(this.prefixLoader.load(guild));
-            }
-            else
-            {
-                guild.setPrefix(Bot.prefix);
-            }
-            this.guilds.put(guild.getLongID(), guild);
-            return true;
-        }
-        return false;
+        return this.lazyGuildLoading;
     }
 
     /**
-     * Remooves the given {@link GuildObject} from the {@link #guilds} list.
+     * Gets the {@link GuildObject} for the given guild.
+     * 
+     * <p>
+     * If {@link #setLazyGuildLoading(boolean) lazy guild loading} is enabled and the guildobject does not exist yet,
+     * it will be created and loaded. Concurrent calls for the same guild wait for the same load.
+     * </p>
      * 
      * @param guild
-     *            The {@link GuildObect} which should be removed.
-     * @return true if {@link #guilds} contained the given {@link GuildObject} and if it was successfully removed.
+     *            The guild.
+     * @return The guildobject or null if it does not exist and lazy loading is disabled.
      */
-    public boolean removeGuildObject(GuildObject guild)
+    public GuildObject getGuildObject(IGuild guild)
     {
-        if (this.guilds.containsKey(guild.getLongID()))
+        GuildObject guildObject = this.guilds.get(guild.getLongID());
+        if (guildObject != null)
         {
-            this.guilds.remove(guild.getLongID());
-            return true;
+            guildObject.touch();
+            return guildObject;
         }
-        return false;
+        return this.lazyGuildLoading ? loadGuildObject(guild) : null;
     }
 
     /**
-     * Searches the {@link #guilds} map for a {@link GuildObject} with the given ID and returns it.
+     * Creates the {@link GuildObject} for the given guild, loads its prefix and state and adds it to {@link #guilds}.
      * 
-     * @param guildID
-     *            The String ID of the {@link GuildObject} that should be returned.
-     * @return The {@link GuildObject} with the given ID or null if no element in {@link #guilds} has the given ID.
+     * <p>
+     * Only one thread performs the load for a guild, all other threads that request the same guild at the same time
+     * wait for its result.
+     * </p>
+     * 
+     * @param guild
+     *            The guild to load.
+     * @return The loaded guildobject.
      */
-    public GuildObject getGuildObjectByID(String guildID)
+    protected GuildObject loadGuildObject(IGuild guild)
     {
-        long key = -1;
+        long id = guild.getLongID();
+        CompletableFuture<GuildObject> future = new CompletableFuture<>();
+        CompletableFuture<GuildObject> pending = this.pendingGuilds.putIfAbsent(id, future);
+        if (pending != null)
+        {
+            return pending.join();
+        }
+
         try
         {
-            key = Long.parseLong(guildID);
+            // another thread might have finished loading before this one registered its future
+            GuildObject guildObject = this.guilds.get(id);
+            if (guildObject == null)
+            {
+                guildObject = new GuildObject(guild);
+                List<GuildObject> loaded = Collections.singletonList(guildObject);
+                // a guild that was evicted before is restored from the store, unless the snapshot is more recent
+                if (!loadStoredGuildObject(guildObject))
+                {
+                    if (this.snapshot != null && this.snapshot.restore(guildObject))
+                    {
+                        reconcileGuildObjects(loaded);
+                    }
+                    else
+                    {
+                        loadPrefixes(loaded);
+                        loadGuildStates(loaded);
+                    }
+                }
+                prepareGuildObject(guildObject);
+                putGuildObject(guildObject);
+            }
+            future.complete(guildObject);
+            return guildObject;
         }
-        catch (Exception e)
+        catch (RuntimeException e)
         {
+            future.completeExceptionally(e);
+            throw e;
+        }
+        finally
+        {
+            this.pendingGuilds.remove(id, future);
         }
-
-        return this.guilds.get(key);
     }
 
     /**
-     * Gets {@link #bannedUsers} which contains all IDs of banned users.
+     * Starts to evict {@link GuildObject}s from memory.
      * 
-     * @return {@link #bannedUsers}.
+     * <p>
+     * Guilds that have not been requested via {@link #getGuildObject(IGuild)} or {@link #getGuildObjectByID(String)}
+     * for longer than the given idle time are evicted. If more than the given number of guilds remain, the least
+     * recently used ones are evicted as well. The state of every evicted guild is saved to the given store and is
+     * restored from it once the guild is requested again.
+     * </p>
+     * 
+     * <p>
+     * This enables {@link #setLazyGuildLoading(boolean) lazy guild loading}, since evicted guilds have to be reloaded
+     * on demand.
+     * </p>
+     * 
+     * @param maxIdleTime
+     *            The time in milliseconds after which an unused guild is evicted.
+     * @param maxGuilds
+     *            The maximum number of guilds that are kept in memory.
+     * @param store
+     *            The store which persists the state of evicted guilds.
      */
-    public List<String> getBannedUsers()
+    public synchronized void startGuildEviction(long maxIdleTime, int maxGuilds, GuildStore store)
     {
-        return this.bannedUsers;
+        stopGuildEviction();
+        this.maxGuildIdleTime = maxIdleTime;
+        this.maxGuildCount = maxGuilds;
+        if (store != this.guildStore)
+        {
+            this.guildStore = store;
+            indexRoles(null, store);
+        }
+        this.lazyGuildLoading = true;
+
+        long interval = Math.max(1000, Math.min(maxIdleTime / 2, 60000));
+        this.evictionFuture = Threads.schedulerPool.scheduleWithFixedDelay(this::evictGuildObjects,
+                interval,
+                interval,
+                TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Checks if the given user is banned from using commands.
+     * Sets the store from which guilds that have been evicted before are restored, without starting the eviction.
      * 
-     * @param user
-     *            The user which should be checked.
-     * @return true if the user is banned.
+     * <p>
+     * This has to be set before {@link #createGuildObjects()} if guilds were evicted during an earlier run, since
+     * their state is only saved in the store.
+     * </p>
+     * 
+     * @param store
+     *            The store or null.
      */
-    public boolean isBanned(IUser user)
+    public void setGuildStore(GuildStore store)
     {
-        return this.bannedUsers.contains(user.getStringID());
+        this.guildStore = store;
+        indexRoles(null, store);
     }
 
     /**
-     * Adds the given user to the {@link #bannedUsers} list which stops him from using any command.
+     * Gets the store which persists the state of evicted guilds.
      * 
-     * @param user
-     *            The user which should be banned.
-     * @return true if the user was not yet banned and was successfully added to {@link #bannedUsers}.
+     * @return The store or null if none has been set.
      */
-    public boolean banUser(IUser user)
+    public GuildStore getGuildStore()
     {
-        if (!this.bannedUsers.contains(user.getStringID()))
-        {
-            return this.bannedUsers.add(user.getStringID());
-        }
-        return false;
+        return this.guildStore;
     }
 
-    public boolean banUser(String id)
+    /**
+     * Stops the eviction that was started by {@link #startGuildEviction(long, int, GuildStore)}.
+     * 
+     * <p>
+     * Guilds that have already been evicted will still be restored from the store. The store is forced to disk, which
+     * also happens on {@link #logout()}.
+     * </p>
+     */
+    public synchronized void stopGuildEviction()
     {
-        if (!this.bannedUsers.contains(id))
+        if (this.evictionFuture != null)
         {
-            return this.bannedUsers.add(id);
+            this.evictionFuture.cancel(false);
+            this.evictionFuture = null;
+        }
+        if (this.guildStore != null)
+        {
+            this.guildStore.force();
         }
-        return false;
     }
 
     /**
-     * Removes the given user from {@link #bannedUsers} if he was contained.
+     * Evicts all guilds that have been idle for too long and the least recently used guilds above the maximum count.
      * 
-     * @param user
-     *            The user which should no longer be banned.
-     * @return true if the user was successfully removed from {@link #bannedUsers}.
+     * @return The number of evicted guilds.
      */
-    public boolean unbanUser(IUser user)
+    public int evictGuildObjects()
     {
-        return this.bannedUsers.remove(user.getStringID());
-    }
+        if (this.guildStore == null)
+        {
+            return 0;
+        }
 
-    /**
-     * Checks if the given user is a owner on any of the registered guilds.
-     * 
-     * @param user
-     *            The user which should be checked.
-     * @return true if the given user is an owneer on any guild.
-     */
-    public boolean isOwner(IUser user)
-    {
-        for (GuildObject guild : getGuildObjects())
+        long idleSince = System.currentTimeMillis() - this.maxGuildIdleTime;
+        List<GuildObject> remaining = new ArrayList<>(this.guilds.size());
+        int evicted = 0;
+
+        for (GuildObject guild : this.guilds.values())
+        {
+            if (guild.getLastAccess() < idleSince)
+            {
+                evicted += evictGuildObject(guild) ? 1 : 0;
+            }
+            else
+            {
+                remaining.add(guild);
+            }
+        }
+
+        int excess = remaining.size() - this.maxGuildCount;
+        if (excess > 0)
         {
-            if (guild.isOwner(user))
+            remaining.sort((g1, g2) -> Long.compare(g1.getLastAccess(), g2.getLastAccess()));
+            for (int i = 0; i < excess; i ++ )
             {
-                return true;
+                evicted += evictGuildObject(remaining.get(i)) ? 1 : 0;
             }
         }
-        return false;
+
+        if (evicted > 0)
+        {
+            log.print(this, "Evicted " + evicted + " guildobjects.");
+        }
+        return evicted;
     }
 
     /**
-     * Checks if the given user is a master on any of the registered guilds.
+     * Saves the given guild to the {@link #guildStore} and removes it from {@link #guilds}.
      * 
-     * @param user
-     *            The user which should be checked.
-     * @return true if the given user is a master on any guild.
+     * <p>
+     * The state is saved before the guild is removed, so that a concurrent reload always finds the saved state. If the
+     * store could not save the state, the guild is kept in memory. The guild is {@link GuildObject#markEvicted()
+     * marked} while holding its lock, so that a thread which still holds it can't change the state after it has been
+     * saved.
+     * </p>
+     * 
+     * @param guild
+     *            The guild to evict.
+     * @return true if the guild was evicted.
      */
-    public boolean isMaster(IUser user)
+    protected boolean evictGuildObject(GuildObject guild)
     {
-        for (GuildObject guild : getGuildObjects())
+        synchronized (guild)
         {
-            if (guild.isMaster(user))
+            if (guild.isEvicted() || !this.guildStore.save(guild))
+            {
+                return false;
+            }
+            guild.markEvicted();
+            synchronized (this.guildsLock)
             {
-                return true;
+                this.guilds.remove(guild.getLongID(), guild);
+                if (this.stagedGuilds != null)
+                {
+                    this.stagedGuilds.remove(guild.getLongID(), guild);
+                }
             }
+            return true;
         }
-        return false;
     }
 
     /**
-     * Gets {@link #creators} which contains all registered creator IDs.
+     * Restores the state of the given guild from the {@link #guildStore} if it has been evicted before.
      * 
-     * @return {@link #creators}.
+     * <p>
+     * The stored state is skipped if the loaded {@link #snapshot} contains the guild and was written after the state
+     * was saved, since the guild was then loaded again and changed after its eviction.
+     * </p>
+     * 
+     * @param guild
+     *            The newly created guild.
+     * @return true if the state was restored, false if there is no store or no stored state that is more recent than
+     *         the snapshot.
      */
-    public List<String> getCreators()
+    protected boolean loadStoredGuildObject(GuildObject guild)
     {
-        return this.creators;
+        GuildStore store = this.guildStore;
+        if (store == null)
+        {
+            return false;
+        }
+        long saveTime = store.getSaveTime(guild.getLongID());
+        if (saveTime == -1)
+        {
+            return false;
+        }
+        GuildSnapshot snapshot = this.snapshot;
+        if (snapshot != null && snapshot.getCreationTime() > saveTime && snapshot.contains(guild.getLongID()))
+        {
+            return false;
+        }
+        return store.load(guild);
     }
 
     /**
-     * Checks if the given user is a registered creator.
+     * Loads the owners, masters and overrides of the given guilds with the set {@link GuildLoader}.
      * 
-     * @param user
-     *            The user which should be checked.
-     * @return true if the user is a creator.
+     * @param guilds
+     *            The guilds whichs state should be loaded.
      */
-    public boolean isCreator(IUser user)
-    {
-        return this.creators.contains(user.getStringID());
-    }
-
-    public boolean isAppOwner(IUser user)
+    protected void loadGuildStates(Collection<GuildObject> guilds)
     {
-        return this.appOwner.equals(user.getStringID());
+        if (this.guildLoader != null && !guilds.isEmpty())
+        {
+            this.guildLoader.loadAll(guilds);
+        }
     }
 
-    public void setAppOwner()
+    /**
+     * Sets the maximum number of threads that are used to create the {@link GuildObject}s and to load their prefixes
+     * in {@link #createGuildObjects()}.
+     * 
+     * <p>
+     * This limits the number of concurrent {@link PrefixLoader#loadAll(Collection)} calls and should be chosen so that
+     * the backing store of the loader is not overwhelmed.
+     * </p>
+     * 
+     * @param parallelism
+     *            The number of threads. 1 creates the guildobjects on the calling thread.
+     */
+    public void setStartupParallelism(int parallelism)
     {
-        this.appOwner = this.client.getApplicationOwner().getStringID();
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("The parallelism must be at least 1.");
+        }
+        this.startupParallelism = parallelism;
     }
 
     /**
-     * Adds the given user to the {@link #creators} list which enables him to use every command.
+     * Gets the pool which materializes the guildobjects in {@link #createGuildObjects()}. It is created on first use
+     * and kept for later calls, and only replaced if the {@link #setStartupParallelism(int) parallelism} changed.
      * 
-     * @param user
-     *            The user which should be added as a creator.
-     * @return true if the user was not yet a creator and was successfully added to {@link #creators}.
+     * @return The pool.
      */
-    public boolean addCreator(IUser user)
+    protected synchronized ForkJoinPool getStartupPool()
     {
-        if (!this.creators.contains(user.getStringID()))
+        if (this.startupPool == null || this.startupPool.getParallelism() != this.startupParallelism)
         {
-            return this.creators.add(user.getStringID());
+            if (this.startupPool != null)
+            {
+                this.startupPool.shutdown();
+            }
+            this.startupPool = new ForkJoinPool(this.startupParallelism);
         }
-        return false;
+        return this.startupPool;
     }
 
     /**
-     * Adds the given id to the {@link #creators} list which enables the user to use every command.
+     * Gets the maximum number of threads that are used in {@link #createGuildObjects()}.
      * 
-     * @param id
-     *            The user id which should be added as a creator.
-     * @return true if the user was not yet a creator and was successfully added to {@link #creators}.
+     * @return The parallelism.
      */
-    public boolean addCreator(String id)
+    public int getStartupParallelism()
     {
-        if (!this.creators.contains(id))
-        {
-            return this.creators.add(id);
-        }
-        return false;
+        return this.startupParallelism;
     }
 
     /**
-     * Loads the ID's from the 'creators' field in the property file.
+     * Loads the prefixes of the given guilds with the set {@link PrefixLoader} and their owners, masters and
+     * permission overrides with the set {@link GuildLoader} in the background, and replaces the restored values which
+     * differ from the loaded ones.
+     * 
      * <p>
-     * ID's loaded by this are treated as creators and are able to use any command on any guild.
+     * The loaders are the source of the state, so a snapshot which is older than them is corrected. Command aliases
+     * are not reconciled, they are loaded by the {@link bowt.cmnd.AliasLoader} when a command is added to a handler.
      * </p>
      * 
-     * @return The number of creators or -1 if the client has not been built yet.
+     * @param guilds
+     *            The guilds that were restored from a snapshot.
      */
-    public int loadCreators()
+    protected void reconcileGuildObjects(List<GuildObject> guilds)
     {
-        try
-        {
-            checkClient();
-        }
-        catch (BowtieClientException e)
+        if (this.prefixLoader == null && this.guildLoader == null)
         {
-            errorLog.print(this, e);
-            return -1;
+            return;
         }
-        String[] ids = Properties.getValueOf("creators").split(" ");
-        for (String id : ids)
+        getReconcileExecutor().execute(() ->
         {
-            this.addCreator(id);
-        }
-        log.print(this, getCreators().size() > 1 || this.getCreators().size() == 0
-                ? "Registered " + this.getCreators().size() + " creators."
-                : "Registered " + this.getCreators().size() + " creator.");
-        return this.getCreators().size();
+            try
+            {
+                if (this.prefixLoader != null)
+                {
+                    Map<Long, String> prefixes = this.prefixLoader.loadAll(guilds);
+                    for (GuildObject guild : guilds)
+                    {
+                        String prefix = prefixes.get(guild.getLongID());
+                        // evicted guilds are reloaded from the store, which already has their saved state
+                        if (prefix != null && !guild.isEvicted())
+                        {
+                            guild.setPrefix(prefix);
+                        }
+                    }
+                }
+                if (this.guildLoader != null)
+                {
+                    // loaders expect fresh guildobjects, so the state is loaded into copies and adopted afterwards
+                    List<GuildObject> loaded = new ArrayList<>(guilds.size());
+                    for (GuildObject guild : guilds)
+                    {
+                        GuildObject copy = new GuildObject(guild.getGuild());
+                        copy.setCommandOrdinals(this.commandOrdinals);
+                        loaded.add(copy);
+                    }
+                    this.guildLoader.loadAll(loaded);
+                    for (int i = 0; i < guilds.size(); i ++ )
+                    {
+                        if (!guilds.get(i).isEvicted())
+                        {
+                            guilds.get(i).setState(loaded.get(i));
+                        }
+                    }
+                }
+                log.print(this, "Reconciled " + guilds.size() + " restored guildobjects.");
+            }
+            catch (RuntimeException e)
+            {
+                errorLog.print(this, "Failed to reconcile the restored guildobjects.");
+                errorLog.print(this, e);
+            }
+        });
     }
 
     /**
-     * Removes the given user from {@link #creators} if he was contained.
+     * Gets the executor which reconciles restored guilds with the loaders. It has a single daemon thread of its own,
+     * so that slow loaders don't hold up the tasks of {@link Threads#schedulerPool}, and the thread ends when it has
+     * been idle for a minute.
      * 
-     * @param user
-     *            The user which should no longer be a creator.
-     * @return true if the user was successfully removed from {@link #creators}.
+     * @return The executor.
      */
-    public boolean removeCreator(IUser user)
+    protected synchronized ExecutorService getReconcileExecutor()
     {
-        return this.creators.remove(user.getStringID());
+        if (this.reconcileExecutor == null)
+        {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1,
+                    1,
+                    60,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    runnable ->
+                    {
+                        Thread thread = new Thread(runnable, "GuildReconciler");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            this.reconcileExecutor = executor;
+        }
+        return this.reconcileExecutor;
     }
 
     /**
-     * Gets the application token the bot is using to log into Discord with.
+     * Sets the prefixes of the given guilds with a single call to {@link PrefixLoader#loadAll(Collection)}.
      * 
-     * @return The application token.
+     * @param guilds
+     *            The guilds whichs prefixes should be set.
      */
-    public String getToken()
+    protected void loadPrefixes(Collection<GuildObject> guilds)
     {
-        return this.token;
+        Map<Long, String> prefixes = this.prefixLoader != null ? this.prefixLoader.loadAll(guilds) : null;
+        for (GuildObject guild : guilds)
+        {
+            String prefix = prefixes != null ? prefixes.get(guild.getLongID()) : null;
+            guild.setPrefix(prefix != null ? prefix : Bot.prefix);
+        }
     }
 
-    public IMessage sendMessage(EmbedObject embed, IChannel channel)
+    /**
+     * Memory-maps the given snapshot file so that {@link #createGuildObjects()} can restore the guild states from it.
+     * 
+     * @param file
+     *            The snapshot file.
+     * @return true if the snapshot was loaded, false if the file does not exist or is not a valid snapshot.
+     */
+    public boolean loadSnapshot(Path file)
     {
         try
         {
-            checkClient();
+            this.snapshot = GuildSnapshot.open(file);
+            indexRoles(this.snapshot, null);
+            log.print(this, "Loaded snapshot with " + this.snapshot.getGuildCount() + " guilds.");
+            return true;
         }
-        catch (BowtieClientException e)
+        catch (IOException e)
         {
-            e.printStackTrace();
-            return null;
+            errorLog.print(this, "Failed to load the snapshot " + file + ".");
+            errorLog.print(this, e);
+            return false;
         }
+    }
+
+    /**
+     * Gets the snapshot that has been loaded by {@link #loadSnapshot(Path)}.
+     * 
+     * <p>
+     * The aliases of the commands can be restored with {@link GuildSnapshot#restore(Command)}.
+     * </p>
+     * 
+     * @return The snapshot or null if none has been loaded.
+     */
+    public GuildSnapshot getSnapshot()
+    {
+        return this.snapshot;
+    }
 
+    /**
+     * Writes a snapshot of all registered {@link GuildObject}s and the given commands to the given file.
+     * 
+     * <p>
+     * If a {@link #openJournal(Path, Collection) journal} is open, it is compacted by the new snapshot.
+     * </p>
+     * 
+     * @param file
+     *            The snapshot file.
+     * @param commands
+     *            The commands whichs aliases should be saved.
+     * @return true if the snapshot was written successfully.
+     */
+    public boolean writeSnapshot(Path file, Collection<Command> commands)
+    {
         try
         {
-            return RequestBuffer.request(new IRequest<IMessage>()
+            GuildJournal journal = this.journal;
+            if (journal != null)
             {
-                @Override
-                public IMessage request()
-                {
-                    IMessage msg = null;
-
-                    try
-                    {
-                        msg = channel.sendMessage(embed);
-                    }
-                    catch (RateLimitException rte)
-                    {
-                        throw rte;
-                    }
-                    catch (MissingPermissionsException mpe)
-                    {
-                        return null;
-                    }
-                    catch (Exception e)
-                    {
-                        throw e;
-                    }
-
-                    return msg;
-                }
-            }).get();
+                journal.compact(file, this.guilds.values(), commands);
+            }
+            else
+            {
+                GuildSnapshot.write(file, this.guilds.values(), commands);
+            }
+            return true;
         }
-        catch (Exception e)
+        catch (IOException e)
         {
+            errorLog.print(this, "Failed to write the snapshot " + file + ".");
             errorLog.print(this, e);
+            return false;
         }
-        return null;
     }
 
-    public IMessage sendMessage(String text, EmbedObject embed, IChannel channel)
+    /**
+     * Starts to write snapshots to the given file at the given interval.
+     * 
+     * <p>
+     * A final snapshot will be written on {@link #logout()} or {@link #stopSnapshots()}.
+     * </p>
+     * 
+     * @param file
+     *            The snapshot file.
+     * @param commands
+     *            The commands whichs aliases should be saved.
+     * @param interval
+     *            The interval in milliseconds.
+     */
+    public synchronized void startSnapshots(Path file, Collection<Command> commands, long interval)
     {
-        try
+        if (this.snapshotFuture != null)
         {
-            checkClient();
+            this.snapshotFuture.cancel(false);
         }
-        catch (BowtieClientException e)
+        this.snapshotFile = file;
+        this.snapshotCommands = commands;
+        this.snapshotFuture = Threads.schedulerPool.scheduleWithFixedDelay(() -> writeSnapshot(file, commands),
+                interval,
+                interval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic snapshots started by {@link #startSnapshots(Path, Collection, long)} and writes a final
+     * snapshot.
+     */
+    public synchronized void stopSnapshots()
+    {
+        if (this.snapshotFuture != null)
         {
-            e.printStackTrace();
-            return null;
+            this.snapshotFuture.cancel(false);
+            this.snapshotFuture = null;
+            writeSnapshot(this.snapshotFile, this.snapshotCommands);
         }
+    }
 
+    /**
+     * Opens the given journal file, replays its changes and journals all further configuration changes of the
+     * registered {@link GuildObject}s and the given commands.
+     * 
+     * <p>
+     * This should be called after {@link #createGuildObjects()}, so that the journaled changes are applied on top of
+     * the loaded or {@link #loadSnapshot(Path) restored} guild states. Periodic
+     * {@link #startSnapshots(Path, Collection, long) snapshots} will compact the journal.
+     * </p>
+     * 
+     * <p>
+     * The entries of guilds that are not loaded yet, for example because {@link #setLazyGuildLoading(boolean) lazy
+     * guild loading} is enabled, are replayed when the guild is loaded. They are kept in the journal until the guild
+     * is contained in a snapshot.
+     * </p>
+     * 
+     * @param file
+     *            The journal file.
+     * @param commands
+     *            The commands whichs alias changes should be journaled and replayed.
+     * @return true if the journal was opened and replayed successfully.
+     */
+    public synchronized boolean openJournal(Path file, Collection<Command> commands)
+    {
+        closeJournal();
         try
         {
-            return RequestBuffer.request(new IRequest<IMessage>()
-            {
-                @Override
-                public IMessage request()
-                {
-                    IMessage msg = null;
-
-                    try
-                    {
-                        msg = channel.sendMessage(text, embed);
-                    }
-                    catch (RateLimitException rte)
-                    {
-                        throw rte;
-                    }
-                    catch (MissingPermissionsException mpe)
-                    {
-                        return null;
-                    }
-                    catch (Exception e)
-                    {
-
-                    }
+            GuildJournal journal = new GuildJournal(file);
+            // guilds that are not loaded yet get their entries replayed once they are loaded
+            int count = journal.replay(id -> this.guilds.get(id), commands);
+            log.print(this, "Replayed " + count + " journal entries.");
 
-                    return msg;
-                }
-            }).get();
+            this.journal = journal;
+            for (Command command : commands)
+            {
+                command.setJournal(journal);
+            }
+            for (GuildObject guild : this.guilds.values())
+            {
+                journal.replay(guild);
+                guild.setJournal(journal);
+            }
+            return true;
         }
-        catch (Exception e)
+        catch (IOException e)
         {
+            errorLog.print(this, "Failed to open the journal " + file + ".");
             errorLog.print(this, e);
+            return false;
         }
-        return null;
     }
 
     /**
-     * Sends an embedded message to the given channel.
-     * 
-     * @param message
-     *            The text of the message.
-     * @param channel
-     *            The channel to which the message should be sent. Can be a private channel.
-     * @param color
-     *            The color of the embeded message.
-     * @param icon
-     *            The icon that will be displayed in the foootnote.
-     * @param fast
-     *            true if the message should be sent directly, false if it should be added to the {@link RequestBuffer}.
-     *            Sending it directly can mean that message wont be sent at all if the rate limit is exceeded.
-     * @return
+     * Gets the journal that has been opened by {@link #openJournal(Path, Collection)}.
      * 
-     * @see #sendMessage(String, IChannel)
-     * @see #sendMessage(String, IChannel, boolean)
-     * @see #sendMessage(String, IChannel, Color)
-     * @see #sendMessage(String, IChannel, String)
-     * @see #sendMessage(String, IChannel, Color, boolean)
-     * @see #sendMessage(String, IChannel, Color, String)
-     * @see #sendMessage(String, IChannel, String, boolean)
+     * @return The journal or null if none is open.
      */
-    public IMessage sendMessage(String message, IChannel channel, Color color, String icon, boolean fast)
+    public GuildJournal getJournal()
     {
-        try
-        {
-            checkClient();
-        }
-        catch (BowtieClientException e)
+        return this.journal;
+    }
+
+    /**
+     * Writes all pending changes of the open journal to disk and closes it.
+     */
+    public synchronized void closeJournal()
+    {
+        GuildJournal journal = this.journal;
+        if (journal == null)
         {
-            e.printStackTrace();
-            return null;
+            return;
         }
-
-        EmbedBuilder builder = new EmbedBuilder();
-        builder.withDesc(message);
-        builder.withColor(color);
-        if (icon != null)
+        this.journal = null;
+        for (GuildObject guild : this.guilds.values())
         {
-            builder.withThumbnail(icon);
+            guild.setJournal(null);
         }
         try
         {
-            if (fast)
-            {
-                channel.sendMessage(builder.build());
-            }
-            else
-            {
-                return RequestBuffer.request(new IRequest<IMessage>()
-                {
-                    @Override
-                    public IMessage request()
-                    {
-                        IMessage message = null;
-                        try
-                        {
-                            message = channel.sendMessage(builder.build());
-                        }
-                        catch (RateLimitException rte)
-                        {
-                            throw rte;
-                        }
-                        catch (MissingPermissionsException mpe)
-                        {
-                            return null;
-                        }
-                        catch (Exception e)
-                        {
-
-                        }
-                        return message;
-                    }
-                }).get();
-            }
+            journal.close();
         }
-        catch (Exception e)
+        catch (IOException e)
         {
+            errorLog.print(this, "Failed to close the journal.");
             errorLog.print(this, e);
         }
-        return null;
     }
 
     /**
-     * Sends an embedded message to the given channel.
+     * Binds the given {@link GuildObject} to this bot before it is added to {@link #guilds}.
      * 
-     * @param message
-     *            The text of the message.
-     * @param channel
-     *            The channel to which the message should be sent. Can be a private channel.
-     * @param color
-     *            The color of the embeded message.
-     * @param fast
-     *            true if the message should be sent directly, false if it should be added to the {@link RequestBuffer}.
-     *            Sending it directly can mean that message wont be sent at all if the rate limit is exceeded.
+     * <p>
+     * This is called after the state of the guild has been loaded, so that loading it is not journaled. Journal
+     * entries of the guild which were deferred when the journal was opened are replayed on top of the loaded state.
+     * </p>
      * 
-     * @see #sendMessage(String, IChannel, Color, String, boolean)
+     * @param guild
+     *            The guild.
      */
-    public IMessage sendMessage(String message, IChannel channel, Color color, boolean fast)
+    protected void prepareGuildObject(GuildObject guild)
     {
-        return sendMessage(message, channel, color, null, fast);
+        guild.setPermissionContext(this.permissionContext);
+        guild.setCommandOrdinals(this.commandOrdinals);
+        GuildJournal journal = this.journal;
+        if (journal != null)
+        {
+            // the entries which were deferred when the journal was opened, since the guild was not loaded
+            journal.replay(guild);
+        }
+        guild.setJournal(journal);
+        guild.setMentionPrefix(getMentionPrefixID());
+        guild.setRoleIndex(this.roleIndex);
+        Function<GuildObject, CommandHandler> factory = this.commandHandlerFactory;
+        if (factory != null && guild.getCommandHandler() == null)
+        {
+            guild.setCommandHandler(factory.apply(guild));
+        }
     }
 
     /**
-     * Sends an embedded message to the given channel.
+     * Gets the index of the owners and masters of all guilds, which answers {@link #isOwner(IUser)} and
+     * {@link #isMaster(IUser)}.
      * 
-     * @param message
-     *            The text of the message.
-     * @param channel
-     *            The channel to which the message should be sent. Can be a private channel.
+     * <p>
+     * It contains every guild that has been registered to this bot, also after it has been evicted, and the guilds of
+     * the {@link #loadSnapshot(Path) snapshot} and the {@link #setGuildStore(GuildStore) guild store}. With
+     * {@link #setLazyGuildLoading(boolean) lazy guild loading}, guilds whose state is only known to the
+     * {@link GuildLoader} are missing until they have been loaded once, so a snapshot should be used as well.
+     * </p>
      * 
-     * @see #sendMessage(String, IChannel, Color, String, boolean)
+     * @return The index.
      */
-    public IMessage sendMessage(String message, IChannel channel)
+    public RoleIndex getRoleIndex()
     {
-        return sendMessage(message, channel, false);
+        return this.roleIndex;
     }
 
     /**
-     * Sends an embedded message to the given channel.
-     * 
-     * @param message
-     *            The text of the message.
-     * @param channel
-     *            The channel to which the message should be sent. Can be a private channel.
-     * @param icon
-     *            The icon that will be displayed in the foootnote.
-     * 
-     * @see #sendMessage(String, IChannel, Color, String, boolean)
+     * Adds the owners and masters of the given snapshot or store to the {@link #roleIndex}, and then those of the
+     * guilds in memory again, since their state is more recent.
      */
-    public IMessage sendMessage(String message, IChannel channel, String icon)
+    private void indexRoles(GuildSnapshot snapshot, GuildStore store)
     {
-        return sendMessage(message, channel, Colors.DEFAULT, icon, false);
+        try
+        {
+            if (snapshot != null)
+            {
+                snapshot.indexRoles(this.roleIndex);
+            }
+            if (store != null)
+            {
+                store.indexRoles(this.roleIndex);
+            }
+        }
+        catch (RuntimeException e)
+        {
+            errorLog.print(this, "Failed to index the owners and masters.");
+            errorLog.print(this, e);
+        }
+        for (GuildObject guild : this.guilds.values())
+        {
+            if (guild.getRoleIndex() == this.roleIndex)
+            {
+                guild.setRoleIndex(this.roleIndex);
+            }
+        }
     }
 
     /**
-     * Sends an embedded message to the given channel.
+     * Sets whether a mention of the bot is accepted as command prefix on all guilds, for example '@Bot help'.
      * 
-     * @param message
-     *            The text of the message.
-     * @param channel
-     *            The channel to which the message should be sent. Can be a private channel.
-     * @param color
-     *            The color of the embeded message.
-     * 
-     * @see #sendMessage(String, IChannel, Color, String, boolean)
+     * @param enabled
+     *            true to accept mentions as prefix.
      */
-    public IMessage sendMessage(String message, IChannel channel, Color color)
+    public void setMentionPrefix(boolean enabled)
     {
-        return sendMessage(message, channel, color, false);
+        this.mentionPrefix = enabled;
+        long id = getMentionPrefixID();
+        for (GuildObject guild : this.guilds.values())
+        {
+            guild.setMentionPrefix(id);
+        }
     }
 
     /**
-     * Sends an embedded message to the given channel.
-     * 
-     * @param message
-     *            The text of the message.
-     * @param channel
-     *            The channel to which the message should be sent. Can be a private channel.
-     * @param color
-     *            The color of the embeded message.
-     * @param icon
-     *            The icon that will be displayed in the foootnote.
+     * Indicates whether a mention of the bot is accepted as command prefix.
      * 
-     * @see #sendMessage(String, IChannel, Color, String, boolean)
+     * @return true if mentions are accepted.
+     * @see #setMentionPrefix(boolean)
      */
-    public IMessage sendMessage(String message, IChannel channel, Color color, String icon)
+    public boolean isMentionPrefix()
     {
-        return sendMessage(message, channel, color, icon, false);
+        return this.mentionPrefix;
+    }
+
+    private long getMentionPrefixID()
+    {
+        if (!this.mentionPrefix || this.client == null || this.client.getOurUser() == null)
+        {
+            return 0;
+        }
+        return this.client.getOurUser().getLongID();
     }
 
     /**
-     * Sends an embedded message to the given channel.
+     * Gets {@link #guilds} which contains all registered {@link GuildObject}s.
      * 
-     * @param message
-     *            The text of the message.
-     * @param channel
-     *            The channel to which the message should be sent. Can be a private channel.
-     * @param fast
-     *            true if the message should be sent directly, false if it should be added to the {@link RequestBuffer}.
-     *            Sending it directly can mean that message wont be sent at all if the rate limit is exceeded.
+     * @return A {@link List} containing the registered {@link GuildObject}s.
      */
-    public IMessage sendMessage(String message, IChannel channel, boolean fast)
+    public List<GuildObject> getGuildObjects()
     {
-        return sendMessage(message, channel, Colors.DEFAULT, fast);
+        return new ArrayList<GuildObject>(this.guilds.values());
     }
 
     /**
-     * Sends an embedded message to the given channel.
-     * 
-     * @param message
-     *            The text of the message.
-     * @param channel
-     *            The channel to which the message should be sent. Can be a private channel.
-     * @param icon
-     *            The icon that will be displayed in the foootnote.
-     * @param fast
-     *            true if the message should be sent directly, false if it should be added to the {@link RequestBuffer}.
-     *            Sending it directly can mean that message wont be sent at all if the rate limit is exceeded.
+     * Sets the {@link #guilds}.
      * 
-     * @see #sendMessage(String, IChannel, Color, String, boolean)
+     * @param guilds
+     *            A {@link Map} containing the {@link GuildObject}s.
      */
-    public IMessage sendMessage(String message, IChannel channel, String icon, boolean fast)
+    public void setGuildObjects(Map<Long, GuildObject> guilds)
     {
-        return sendMessage(message, channel, Colors.DEFAULT, icon, fast);
+        this.guilds = guilds;
     }
 
     /**
-     * Creates {@link EmbedObject} from the given messages with the given settings and returns them in a list.
+     * Adds a single {@link GuildObject} to the {@link #guilds} list.
      * 
-     * @param title
-     *            The text displayed on top of the first message.
-     * @param titles
-     *            The titles for each message.
-     * @param messages
-     *            All the messages that should be listed.
-     * @param color
-     *            The color of the embeded messages.
-     * @param icon
-     *            The icon that will be displayed in the foootnotes.
-     * @param numberPerMsg
-     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
-     *            should be used.
-     * @param inline
-     *            Indicates whether multiple elements should be put in one line.
-     * @return The list of EmbedObjects.
+     * @param guild
+     *            The {@link GuildObect} which should be added.
+     * @return true always
      */
-    public List<EmbedObject> createListEmbeds(String title,
-            List<String> titles,
-            List<String> messages,
-            Color color,
-            String icon,
-            int numberPerMsg,
-            boolean inline)
+    public boolean addGuildObject(GuildObject guild)
     {
-        if (titles.size() != messages.size())
-        {
-            throw new IllegalArgumentException("Not enough titles for the given messages.");
-        }
-        EmbedBuilder builder = new EmbedBuilder();
-        builder.setLenient(true);
-        builder.withTitle(title);
-        if (icon != null)
-        {
-            builder.withThumbnail(icon);
-        }
-        builder.withColor(color);
-        List<EmbedObject> embedObjects = new ArrayList<EmbedObject>();
-        for (int i = 0; i < messages.size(); i ++ )
+        if (!this.guilds.containsKey(guild.getLongID()))
         {
-            boolean clear = false;
-            if (numberPerMsg == -1)
+            if (this.prefixLoader != null)
             {
-                if (builder.getTotalVisibleCharacters() + messages.get(i).length() + Integer.toString(i + 1).length()
-                > EmbedBuilder.MAX_CHAR_LIMIT)
-                {
-                    clear = true;
-                }
-                else
-                {
-                    builder.appendField(titles.get(i), messages.get(i), inline);
-                }
+                guild.setPrefix(this.prefixLoader.load(guild));
             }
             else
             {
-                if (builder.getFieldCount() < numberPerMsg)
-                {
-                    builder.appendField(titles.get(i), messages.get(i), inline);
-                }
-                else
-                {
-                    clear = true;
-                }
-            }
-            if (clear)
-            {
-                // builds the full embed
-                embedObjects.add(builder.build());
-                // resets the builder and continues adding messages to the "new" embed
-                builder.withTitle("");
-                if (icon != null)
-                {
-                    builder.withThumbnail(icon);
-                }
-                builder.withColor(color);
-                builder.clearFields();
-                builder.appendField(titles.get(i), messages.get(i), inline);
+                guild.setPrefix(Bot.prefix);
             }
-        }
-        if (inline)
-        {
-            // adds empty embeds to avoid weird shifting of the elements
-            while (builder.getFieldCount() % 3 != 0)
+            if (this.guildLoader != null)
             {
-                builder.appendField("-", "-", true);
+                this.guildLoader.load(guild);
             }
+            prepareGuildObject(guild);
+            putGuildObject(guild);
+            return true;
         }
-        // builds the last embed
-        embedObjects.add(builder.build());
-
-        return embedObjects;
+        return false;
     }
 
     /**
-     * Creates {@link EmbedObject} from the given messages with the given settings and returns them in a list.
+     * Adds all given {@link GuildObject}s that are not registered yet to the {@link #guilds} map.
      * 
-     * @param title
-     *            The text displayed on top of the first message.
-     * @param titles
-     *            The titles for each message.
-     * @param messages
-     *            All the messages that should be listed.
-     * @param icon
-     *            The icon that will be displayed in the foootnotes.
-     * @param numberPerMsg
-     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
-     *            should be used.
-     * @param inline
-     *            Indicates whether multiple elements should be put in one line.
-     * @return The list of EmbedObjects.
+     * <p>
+     * The prefixes of all new guilds are loaded with a single call to {@link PrefixLoader#loadAll(Collection)}.
+     * </p>
+     * 
+     * @param guilds
+     *            The {@link GuildObject}s which should be added.
+     * @return The number of guilds that were added.
      */
-    public List<EmbedObject> createListEmbeds(String title,
-            List<String> titles,
-            List<String> messages,
-            String icon,
-            int numberPerMsg,
-            boolean inline)
+    public int addGuildObjects(Collection<GuildObject> guilds)
     {
-        return createListEmbeds(title, titles, messages, Colors.DEFAULT, icon, numberPerMsg, inline);
+        List<GuildObject> added = new ArrayList<>(guilds.size());
+        for (GuildObject guild : guilds)
+        {
+            if (!this.guilds.containsKey(guild.getLongID()))
+            {
+                added.add(guild);
+            }
+        }
+        loadPrefixes(added);
+        loadGuildStates(added);
+        for (GuildObject guild : added)
+        {
+            prepareGuildObject(guild);
+            putGuildObject(guild);
+        }
+        return added.size();
     }
 
     /**
-     * Creates {@link EmbedObject} from the given messages with the given settings and returns them in a list.
-     * 
-     * @param title
-     *            The text displayed on top of the first message.
-     * @param titles
-     *            The titles for each message.
-     * @param messages
-     *            All the messages that should be listed.
-     * @param color
-     *            The color of the embeded messages.
-     * @param numberPerMsg
-     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
-     *            should be used.
-     * @param inline
-     *            Indicates whether multiple elements should be put in one line.
-     * @return The list of EmbedObjects.
+     * Puts the given guildobject into {@link #guilds} and into {@link #stagedGuilds} if {@link #createGuildObjects()}
+     * is running, so that it is not lost when the staged map replaces {@link #guilds}.
      */
-    public List<EmbedObject> createListEmbeds(String title,
-            List<String> titles,
-            List<String> messages,
-            Color color,
-            int numberPerMsg,
-            boolean inline)
+    private void putGuildObject(GuildObject guild)
     {
-        return createListEmbeds(title, titles, messages, color, null, numberPerMsg, inline);
+        synchronized (this.guildsLock)
+        {
+            this.guilds.put(guild.getLongID(), guild);
+            if (this.stagedGuilds != null)
+            {
+                this.stagedGuilds.put(guild.getLongID(), guild);
+            }
+        }
     }
 
     /**
-     * Creates {@link EmbedObject} from the given messages with the given settings and returns them in a list.
+     * Remooves the given {@link GuildObject} from the {@link #guilds} list.
      * 
-     * @param title
-     *            The text displayed on top of the first message.
-     * @param titles
-     *            The titles for each message.
-     * @param messages
-     *            All the messages that should be listed.
-     * @param numberPerMsg
-     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
-     *            should be used.
-     * @param inline
-     *            Indicates whether multiple elements should be put in one line.
-     * @return The list of EmbedObjects.
+     * @param guild
+     *            The {@link GuildObect} which should be removed.
+     * @return true if {@link #guilds} contained the given {@link GuildObject} and if it was successfully removed.
      */
-    public List<EmbedObject> createListEmbeds(String title,
-            List<String> titles,
-            List<String> messages,
-            int numberPerMsg,
-            boolean inline)
+    public boolean removeGuildObject(GuildObject guild)
     {
-        return createListEmbeds(title, titles, messages, Colors.DEFAULT, null, numberPerMsg, inline);
+        synchronized (this.guildsLock)
+        {
+            this.roleIndex.remove(guild.getLongID());
+            boolean removed = this.guilds.remove(guild.getLongID()) != null;
+            if (this.stagedGuilds != null)
+            {
+                // a guild which is being staged must not come back when the staged map is published
+                removed |= this.stagedGuilds.remove(guild.getLongID()) != null;
+            }
+            return removed;
+        }
     }
 
     /**
-     * Creates {@link EmbedObject} from the given messages with the given settings and returns them in a list.
+     * Searches the {@link #guilds} map for a {@link GuildObject} with the given ID and returns it.
      * 
-     * @param title
-     *            The text displayed on top of the first message.
-     * @param messages
-     *            All the messages that should be listed.
-     * @param color
-     *            The color of the embeded messages.
-     * @param icon
-     *            The icon that will be displayed in the foootnotes.
-     * @param numberPerMsg
-     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
-     *            should be used.
-     * @param inline
-     *            Indicates whether multiple elements should be put in one line.
-     * @return The list of EmbedObjects.
+     * <p>
+     * If {@link #setLazyGuildLoading(boolean) lazy guild loading} is enabled, a missing guildobject will be loaded if
+     * the client is connected to the guild.
+     * </p>
+     * 
+     * @param guildID
+     *            The String ID of the {@link GuildObject} that should be returned.
+     * @return The {@link GuildObject} with the given ID or null if no element in {@link #guilds} has the given ID.
      */
-    public List<EmbedObject> createListEmbeds(String title,
-            List<String> messages,
-            Color color,
-            String icon,
-            int numberPerMsg,
-            boolean inline)
+    public GuildObject getGuildObjectByID(String guildID)
     {
-        EmbedBuilder builder = new EmbedBuilder();
-        builder.setLenient(true);
-        builder.withTitle(title);
-        if (icon != null)
+        long key = -1;
+        try
         {
-            builder.withThumbnail(icon);
+            key = Long.parseLong(guildID);
         }
-        builder.withColor(color);
-        List<EmbedObject> embedObjects = new ArrayList<EmbedObject>();
-        for (int i = 0; i < messages.size(); i ++ )
+        catch (Exception e)
         {
-            boolean clear = false;
-            if (numberPerMsg == -1)
-            {
-                if (builder.getTotalVisibleCharacters() + messages.get(i).length() + Integer.toString(i + 1).length()
-                > EmbedBuilder.MAX_CHAR_LIMIT)
-                {
-                    clear = true;
-                }
-                else
-                {
-                    builder.appendField(Integer.toString(i + 1), messages.get(i), inline);
-                }
-            }
-            else
-            {
-                if (builder.getFieldCount() < numberPerMsg)
-                {
-                    builder.appendField(Integer.toString(i + 1), messages.get(i), inline);
-                }
-                else
-                {
-                    clear = true;
-                }
-            }
-            if (clear)
-            {
-                // builds the full embed
-                embedObjects.add(builder.build());
-                // resets the builder and continues adding messages to the "new" embed
-                builder.withTitle("");
-                if (icon != null)
-                {
-                    builder.withThumbnail(icon);
-                }
-                builder.withColor(color);
-                builder.clearFields();
-                builder.appendField(Integer.toString(i + 1), messages.get(i), inline);
-            }
         }
-        if (inline)
+
+        GuildObject guildObject = this.guilds.get(key);
+        if (guildObject != null)
         {
-            // adds empty embeds to avoid weird shifting of the elements
-            while (builder.getFieldCount() % 3 != 0)
+            guildObject.touch();
+        }
+        else if (this.lazyGuildLoading && this.client != null)
+        {
+            IGuild guild = this.client.getGuildByID(key);
+            if (guild != null)
             {
-                builder.appendField("-", "-", true);
+                guildObject = loadGuildObject(guild);
             }
         }
-        // builds the last embed
-        embedObjects.add(builder.build());
-
-        return embedObjects;
+        return guildObject;
     }
 
     /**
-     * Creates {@link EmbedObject} from the given messages with the given settings and returns them in a list.
+     * Gets the IDs of all banned users.
      * 
-     * @param title
-     *            The text displayed on top of the first message.
-     * @param messages
-     *            All the messages that should be listed.
-     * @param icon
-     *            The icon that will be displayed in the foootnotes.
-     * @param numberPerMsg
-     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
-     *            should be used.
-     * @param inline
-     *            Indicates whether multiple elements should be put in one line.
-     * @return The list of EmbedObjects.
+     * @return A new list containing the String IDs of the banned users.
      */
-    public List<EmbedObject> createListEmbeds(String title,
-            List<String> messages,
-            String icon,
-            int numberPerMsg,
-            boolean inline)
+    public List<String> getBannedUsers()
     {
-        return createListEmbeds(title, messages, Colors.DEFAULT, icon, numberPerMsg, inline);
+        long[] ids = this.bannedUsers.toArray();
+        List<String> banned = new ArrayList<>(ids.length);
+        for (long id : ids)
+        {
+            banned.add(Long.toString(id));
+        }
+        return banned;
     }
 
     /**
-     * Creates {@link EmbedObject} from the given messages with the given settings and returns them in a list.
+     * Gets the {@link BanList} which contains the IDs of all banned users.
      * 
-     * @param title
-     *            The text displayed on top of the first message.
-     * @param messages
-     *            All the messages that should be listed.
-     * @param color
-     *            The color of the embeded messages.
-     * @param numberPerMsg
-     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
-     *            should be used.
-     * @param inline
-     *            Indicates whether multiple elements should be put in one line.
-     * @return The list of EmbedObjects.
+     * @return {@link #bannedUsers}.
      */
-    public List<EmbedObject> createListEmbeds(String title,
-            List<String> messages,
-            Color color,
-            int numberPerMsg,
-            boolean inline)
+    public BanList getBanList()
     {
-        return createListEmbeds(title, messages, color, null, numberPerMsg, inline);
+        return this.bannedUsers;
     }
 
     /**
-     * Creates {@link EmbedObject} from the given messages with the given settings and returns them in a list.
+     * Checks if the given user is banned from using commands.
      * 
-     * @param title
-     *            The text displayed on top of the first message.
-     * @param messages
-     *            All the messages that should be listed.
-     * @param numberPerMsg
-     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
-     *            should be used.
-     * @param inline
-     *            Indicates whether multiple elements should be put in one line.
-     * @return The list of EmbedObjects.
+     * @param user
+     *            The user which should be checked.
+     * @return true if the user is banned.
      */
-    public List<EmbedObject> createListEmbeds(String title,
-            List<String> messages,
-            int numberPerMsg,
-            boolean inline)
+    public boolean isBanned(IUser user)
     {
-        return createListEmbeds(title, messages, Colors.DEFAULT, null, numberPerMsg, inline);
+        return this.bannedUsers.isBanned(user.getLongID());
     }
 
     /**
-     * Sends an embedded message with the elements from the list to the given channel. If the list contains more
-     * elements than 'numberPerMsg' this method will create another embedded message.
+     * Adds the given user to the {@link #bannedUsers} list which stops him from using any command.
      * 
-     * @param title
-     *            The text displayed on top of the first message.
-     * @param titles
-     *            The titles for each message.
-     * @param messages
-     *            All the messages that should be listed.
-     * @param channel
-     *            The channel to which the messages should be sent. Can be a private channel.
-     * @param color
-     *            The color of the embeded messages.
-     * @param icon
+     * @param user
+     *            The user which should be banned.
+     * @return true if the user was not yet banned and was successfully added to {@link #bannedUsers}.
+     */
+    public boolean banUser(IUser user)
+    {
+        return this.bannedUsers.ban(user.getLongID());
+    }
+
+    public boolean banUser(String id)
+    {
+        try
+        {
+            return this.bannedUsers.ban(Long.parseLong(id));
+        }
+        catch (NumberFormatException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Removes the given user from {@link #bannedUsers} if he was contained.
+     * 
+     * @param user
+     *            The user which should no longer be banned.
+     * @return true if the user was successfully removed from {@link #bannedUsers}.
+     */
+    public boolean unbanUser(IUser user)
+    {
+        return this.bannedUsers.unban(user.getLongID());
+    }
+
+    /**
+     * Bans all users with the given IDs at once.
+     * 
+     * <p>
+     * Unlike calling {@link #banUser(String)} for every ID, this is linear in the number of IDs.
+     * </p>
+     * 
+     * @param ids
+     *            The long IDs of the users which should be banned.
+     * @return The number of users that were not banned yet.
+     */
+    public int banUsers(long[] ids)
+    {
+        return this.bannedUsers.banAll(ids);
+    }
+
+    /**
+     * Bans all users with the given IDs at once. IDs which are not numeric are ignored.
+     * 
+     * @param ids
+     *            The String IDs of the users which should be banned.
+     * @return The number of users that were not banned yet.
+     * @see #banUsers(long[])
+     */
+    public int banUsers(Collection<String> ids)
+    {
+        long[] parsed = new long[ids.size()];
+        int count = 0;
+        for (String id : ids)
+        {
+            try
+            {
+                parsed[count] = Long.parseLong(id);
+                count ++ ;
+            }
+            catch (NumberFormatException e)
+            {
+            }
+        }
+        return banUsers(Arrays.copyOf(parsed, count));
+    }
+
+    /**
+     * Gets the long IDs of all banned users.
+     * 
+     * @return A new sorted array containing the IDs.
+     */
+    public long[] exportBannedUsers()
+    {
+        long[] ids = this.bannedUsers.toArray();
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Replaces all bans with the IDs of the given {@link BanFile}.
+     * 
+     * <p>
+     * The file is memory-mapped and its IDs are looked up directly in the mapped file, so loading it does not copy
+     * the IDs onto the heap. Bans that are changed afterwards are kept in memory until the next
+     * {@link #writeBanFile(Path)}.
+     * </p>
+     * 
+     * @param file
+     *            The ban file.
+     * @return true if the file was loaded.
+     */
+    public boolean loadBanFile(Path file)
+    {
+        try
+        {
+            BanFile banFile = BanFile.open(file);
+            this.bannedUsers.load(banFile);
+            log.print(this, "Loaded " + banFile.size() + " banned users.");
+            return true;
+        }
+        catch (IOException e)
+        {
+            errorLog.print(this, "Failed to load the ban file " + file + ".");
+            errorLog.print(this, e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the IDs of all banned users into the given {@link BanFile}.
+     * 
+     * @param file
+     *            The ban file.
+     * @return true if the file was written.
+     */
+    public boolean writeBanFile(Path file)
+    {
+        try
+        {
+            this.bannedUsers.write(file);
+            return true;
+        }
+        catch (IOException e)
+        {
+            errorLog.print(this, "Failed to write the ban file " + file + ".");
+            errorLog.print(this, e);
+            return false;
+        }
+    }
+
+    /**
+     * Removes the user with the given ID from {@link #bannedUsers} if he was contained.
+     * 
+     * @param id
+     *            The String ID of the user which should no longer be banned.
+     * @return true if the user was successfully removed from {@link #bannedUsers}.
+     */
+    public boolean unbanUser(String id)
+    {
+        try
+        {
+            return this.bannedUsers.unban(Long.parseLong(id));
+        }
+        catch (NumberFormatException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Checks if the given user is a owner on any of the registered guilds, including the guilds which are not in
+     * memory. See {@link #getRoleIndex()} for the guilds which are known.
+     * 
+     * @param user
+     *            The user which should be checked.
+     * @return true if the given user is an owneer on any guild.
+     */
+    public boolean isOwner(IUser user)
+    {
+        return this.roleIndex.isOwner(user.getLongID());
+    }
+
+    /**
+     * Checks if the given user is a master on any of the registered guilds, including the guilds which are not in
+     * memory. See {@link #getRoleIndex()} for the guilds which are known.
+     * 
+     * @param user
+     *            The user which should be checked.
+     * @return true if the given user is a master on any guild.
+     */
+    public boolean isMaster(IUser user)
+    {
+        return this.roleIndex.isMaster(user.getLongID());
+    }
+
+    /**
+     * Gets {@link #creators} which contains all registered creator IDs.
+     * 
+     * @return {@link #creators}.
+     */
+    public List<String> getCreators()
+    {
+        return this.creators;
+    }
+
+    /**
+     * Checks if the given user is a registered creator.
+     * 
+     * @param user
+     *            The user which should be checked.
+     * @return true if the user is a creator.
+     */
+    public boolean isCreator(IUser user)
+    {
+        return this.creators.contains(user.getStringID());
+    }
+
+    public boolean isAppOwner(IUser user)
+    {
+        return this.appOwner.equals(user.getStringID());
+    }
+
+    public void setAppOwner()
+    {
+        this.appOwner = this.client.getApplicationOwner().getStringID();
+    }
+
+    /**
+     * Gets the long ID of the application owner.
+     * 
+     * @return The ID or -1 if the application owner has not been set yet.
+     */
+    public long getAppOwnerID()
+    {
+        return this.appOwner == null ? -1 : Long.parseLong(this.appOwner);
+    }
+
+    /**
+     * Adds the given user to the {@link #creators} list which enables him to use every command.
+     * 
+     * @param user
+     *            The user which should be added as a creator.
+     * @return true if the user was not yet a creator and was successfully added to {@link #creators}.
+     */
+    public boolean addCreator(IUser user)
+    {
+        if (!this.creators.contains(user.getStringID()))
+        {
+            return this.creators.add(user.getStringID());
+        }
+        return false;
+    }
+
+    /**
+     * Adds the given id to the {@link #creators} list which enables the user to use every command.
+     * 
+     * @param id
+     *            The user id which should be added as a creator.
+     * @return true if the user was not yet a creator and was successfully added to {@link #creators}.
+     */
+    public boolean addCreator(String id)
+    {
+        if (!this.creators.contains(id))
+        {
+            return this.creators.add(id);
+        }
+        return false;
+    }
+
+    /**
+     * Loads the ID's from the 'creators' field in the property file.
+     * <p>
+     * ID's loaded by this are treated as creators and are able to use any command on any guild.
+     * </p>
+     * 
+     * @return The number of creators or -1 if the client has not been built yet.
+     */
+    public int loadCreators()
+    {
+        try
+        {
+            checkClient();
+        }
+        catch (BowtieClientException e)
+        {
+            errorLog.print(this, e);
+            return -1;
+        }
+        String[] ids = Properties.getValueOf("creators").split(" ");
+        for (String id : ids)
+        {
+            this.addCreator(id);
+        }
+        log.print(this, getCreators().size() > 1 || this.getCreators().size() == 0
+                ? "Registered " + this.getCreators().size() + " creators."
+                : "Registered " + this.getCreators().size() + " creator.");
+        return this.getCreators().size();
+    }
+
+    /**
+     * Removes the given user from {@link #creators} if he was contained.
+     * 
+     * @param user
+     *            The user which should no longer be a creator.
+     * @return true if the user was successfully removed from {@link #creators}.
+     */
+    public boolean removeCreator(IUser user)
+    {
+        return this.creators.remove(user.getStringID());
+    }
+
+    /**
+     * Gets the application token the bot is using to log into Discord with.
+     * 
+     * @return The application token.
+     */
+    public String getToken()
+    {
+        return this.token;
+    }
+
+    public IMessage sendMessage(EmbedObject embed, IChannel channel)
+    {
+        try
+        {
+            checkClient();
+        }
+        catch (BowtieClientException e)
+        {
+            e.printStackTrace();
+            return null;
+        }
+
+        return awaitSend(() -> sendMessageAsync(embed, channel));
+    }
+
+    public IMessage sendMessage(String text, EmbedObject embed, IChannel channel)
+    {
+        try
+        {
+            checkClient();
+        }
+        catch (BowtieClientException e)
+        {
+            e.printStackTrace();
+            return null;
+        }
+
+        return awaitSend(() -> sendMessageAsync(text, embed, channel));
+    }
+
+    /**
+     * Sends an embedded message to the given channel.
+     * 
+     * @param message
+     *            The text of the message.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @param color
+     *            The color of the embeded message.
+     * @param icon
+     *            The icon that will be displayed in the foootnote.
+     * @param fast
+     *            true if the message should be sent directly, false if it should be queued in the {@link MessageSender}
+     *            and sent once the channel and global rate limit buckets allow it. Sending it directly bypasses these
+     *            buckets, which can mean that the message wont be sent at all if the rate limit is exceeded.
+     * @return
+     * 
+     * @see #sendMessage(String, IChannel)
+     * @see #sendMessage(String, IChannel, boolean)
+     * @see #sendMessage(String, IChannel, Color)
+     * @see #sendMessage(String, IChannel, String)
+     * @see #sendMessage(String, IChannel, Color, boolean)
+     * @see #sendMessage(String, IChannel, Color, String)
+     * @see #sendMessage(String, IChannel, String, boolean)
+     */
+    public IMessage sendMessage(String message, IChannel channel, Color color, String icon, boolean fast)
+    {
+        try
+        {
+            checkClient();
+        }
+        catch (BowtieClientException e)
+        {
+            e.printStackTrace();
+            return null;
+        }
+
+        EmbedBuilder builder = new EmbedBuilder();
+        builder.withDesc(message);
+        builder.withColor(color);
+        if (icon != null)
+        {
+            builder.withThumbnail(icon);
+        }
+        try
+        {
+            if (fast)
+            {
+                channel.sendMessage(builder.build());
+            }
+            else
+            {
+                return awaitSend(() -> sendMessageAsync(builder.build(), channel));
+            }
+        }
+        catch (Exception e)
+        {
+            errorLog.print(this, e);
+        }
+        return null;
+    }
+
+    /**
+     * Sends an embedded message to the given channel.
+     * 
+     * @param message
+     *            The text of the message.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @param color
+     *            The color of the embeded message.
+     * @param fast
+     *            true if the message should be sent directly, false if it should be queued in the {@link MessageSender}
+     *            and sent once the channel and global rate limit buckets allow it. Sending it directly bypasses these
+     *            buckets, which can mean that the message wont be sent at all if the rate limit is exceeded.
+     * 
+     * @see #sendMessage(String, IChannel, Color, String, boolean)
+     */
+    public IMessage sendMessage(String message, IChannel channel, Color color, boolean fast)
+    {
+        return sendMessage(message, channel, color, null, fast);
+    }
+
+    /**
+     * Sends an embedded message to the given channel.
+     * 
+     * @param message
+     *            The text of the message.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * 
+     * @see #sendMessage(String, IChannel, Color, String, boolean)
+     */
+    public IMessage sendMessage(String message, IChannel channel)
+    {
+        return sendMessage(message, channel, false);
+    }
+
+    /**
+     * Sends an embedded message to the given channel.
+     * 
+     * @param message
+     *            The text of the message.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @param icon
+     *            The icon that will be displayed in the foootnote.
+     * 
+     * @see #sendMessage(String, IChannel, Color, String, boolean)
+     */
+    public IMessage sendMessage(String message, IChannel channel, String icon)
+    {
+        return sendMessage(message, channel, Colors.DEFAULT, icon, false);
+    }
+
+    /**
+     * Sends an embedded message to the given channel.
+     * 
+     * @param message
+     *            The text of the message.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @param color
+     *            The color of the embeded message.
+     * 
+     * @see #sendMessage(String, IChannel, Color, String, boolean)
+     */
+    public IMessage sendMessage(String message, IChannel channel, Color color)
+    {
+        return sendMessage(message, channel, color, false);
+    }
+
+    /**
+     * Sends an embedded message to the given channel.
+     * 
+     * @param message
+     *            The text of the message.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @param color
+     *            The color of the embeded message.
+     * @param icon
+     *            The icon that will be displayed in the foootnote.
+     * 
+     * @see #sendMessage(String, IChannel, Color, String, boolean)
+     */
+    public IMessage sendMessage(String message, IChannel channel, Color color, String icon)
+    {
+        return sendMessage(message, channel, color, icon, false);
+    }
+
+    /**
+     * Sends an embedded message to the given channel.
+     * 
+     * @param message
+     *            The text of the message.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @param fast
+     *            true if the message should be sent directly, false if it should be queued in the {@link MessageSender}
+     *            and sent once the channel and global rate limit buckets allow it. Sending it directly bypasses these
+     *            buckets, which can mean that the message wont be sent at all if the rate limit is exceeded.
+     */
+    public IMessage sendMessage(String message, IChannel channel, boolean fast)
+    {
+        return sendMessage(message, channel, Colors.DEFAULT, fast);
+    }
+
+    /**
+     * Sends an embedded message to the given channel.
+     * 
+     * @param message
+     *            The text of the message.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @param icon
+     *            The icon that will be displayed in the foootnote.
+     * @param fast
+     *            true if the message should be sent directly, false if it should be queued in the {@link MessageSender}
+     *            and sent once the channel and global rate limit buckets allow it. Sending it directly bypasses these
+     *            buckets, which can mean that the message wont be sent at all if the rate limit is exceeded.
+     * 
+     * @see #sendMessage(String, IChannel, Color, String, boolean)
+     */
+    public IMessage sendMessage(String message, IChannel channel, String icon, boolean fast)
+    {
+        return sendMessage(message, channel, Colors.DEFAULT, icon, fast);
+    }
+
+    /**
+     * Creates {@link EmbedObject} from the given messages with the given settings and returns them in a list.
+     * 
+     * @param title
+     *            The text displayed on top of the first message.
+     * @param titles
+     *            The titles for each message.
+     * @param messages
+     *            All the messages that should be listed.
+     * @param color
+     *            The color of the embeded messages.
+     * @param icon
+     *            The icon that will be displayed in the foootnotes.
+     * @param numberPerMsg
+     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
+     *            should be used.
+     * @param inline
+     *            Indicates whether multiple elements should be put in one line.
+     * @return The list of EmbedObjects.
+     */
+    public List<EmbedObject> createListEmbeds(String title,
+            List<String> titles,
+            List<String> messages,
+            Color color,
+            String icon,
+            int numberPerMsg,
+            boolean inline)
+    {
+        if (titles.size() != messages.size())
+        {
+            throw new IllegalArgumentException("Not enough titles for the given messages.");
+        }
+        EmbedBuilder builder = new EmbedBuilder();
+        builder.setLenient(true);
+        builder.withTitle(title);
+        if (icon != null)
+        {
+            builder.withThumbnail(icon);
+        }
+        builder.withColor(color);
+        List<EmbedObject> embedObjects = new ArrayList<EmbedObject>();
+        for (int i = 0; i < messages.size(); i ++ )
+        {
+            boolean clear = false;
+            if (numberPerMsg == -1)
+            {
+                if (builder.getTotalVisibleCharacters() + messages.get(i).length() + Integer.toString(i + 1).length()
+                > EmbedBuilder.MAX_CHAR_LIMIT)
+                {
+                    clear = true;
+                }
+                else
+                {
+                    builder.appendField(titles.get(i), messages.get(i), inline);
+                }
+            }
+            else
+            {
+                if (builder.getFieldCount() < numberPerMsg)
+                {
+                    builder.appendField(titles.get(i), messages.get(i), inline);
+                }
+                else
+                {
+                    clear = true;
+                }
+            }
+            if (clear)
+            {
+                // builds the full embed
+                embedObjects.add(builder.build());
+                // resets the builder and continues adding messages to the "new" embed
+                builder.withTitle("");
+                if (icon != null)
+                {
+                    builder.withThumbnail(icon);
+                }
+                builder.withColor(color);
+                builder.clearFields();
+                builder.appendField(titles.get(i), messages.get(i), inline);
+            }
+        }
+        if (inline)
+        {
+            // adds empty embeds to avoid weird shifting of the elements
+            while (builder.getFieldCount() % 3 != 0)
+            {
+                builder.appendField("-", "-", true);
+            }
+        }
+        // builds the last embed
+        embedObjects.add(builder.build());
+
+        return embedObjects;
+    }
+
+    /**
+     * Creates {@link EmbedObject} from the given messages with the given settings and returns them in a list.
+     * 
+     * @param title
+     *            The text displayed on top of the first message.
+     * @param titles
+     *            The titles for each message.
+     * @param messages
+     *            All the messages that should be listed.
+     * @param icon
+     *            The icon that will be displayed in the foootnotes.
+     * @param numberPerMsg
+     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
+     *            should be used.
+     * @param inline
+     *            Indicates whether multiple elements should be put in one line.
+     * @return The list of EmbedObjects.
+     */
+    public List<EmbedObject> createListEmbeds(String title,
+            List<String> titles,
+            List<String> messages,
+            String icon,
+            int numberPerMsg,
+            boolean inline)
+    {
+        return createListEmbeds(title, titles, messages, Colors.DEFAULT, icon, numberPerMsg, inline);
+    }
+
+    /**
+     * Creates {@link EmbedObject} from the given messages with the given settings and returns them in a list.
+     * 
+     * @param title
+     *            The text displayed on top of the first message.
+     * @param titles
+     *            The titles for each message.
+     * @param messages
+     *            All the messages that should be listed.
+     * @param color
+     *            The color of the embeded messages.
+     * @param numberPerMsg
+     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
+     *            should be used.
+     * @param inline
+     *            Indicates whether multiple elements should be put in one line.
+     * @return The list of EmbedObjects.
+     */
+    public List<EmbedObject> createListEmbeds(String title,
+            List<String> titles,
+            List<String> messages,
+            Color color,
+            int numberPerMsg,
+            boolean inline)
+    {
+        return createListEmbeds(title, titles, messages, color, null, numberPerMsg, inline);
+    }
+
+    /**
+     * Creates {@link EmbedObject} from the given messages with the given settings and returns them in a list.
+     * 
+     * @param title
+     *            The text displayed on top of the first message.
+     * @param titles
+     *            The titles for each message.
+     * @param messages
+     *            All the messages that should be listed.
+     * @param numberPerMsg
+     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
+     *            should be used.
+     * @param inline
+     *            Indicates whether multiple elements should be put in one line.
+     * @return The list of EmbedObjects.
+     */
+    public List<EmbedObject> createListEmbeds(String title,
+            List<String> titles,
+            List<String> messages,
+            int numberPerMsg,
+            boolean inline)
+    {
+        return createListEmbeds(title, titles, messages, Colors.DEFAULT, null, numberPerMsg, inline);
+    }
+
+    /**
+     * Creates {@link EmbedObject} from the given messages with the given settings and returns them in a list.
+     * 
+     * @param title
+     *            The text displayed on top of the first message.
+     * @param messages
+     *            All the messages that should be listed.
+     * @param color
+     *            The color of the embeded messages.
+     * @param icon
+     *            The icon that will be displayed in the foootnotes.
+     * @param numberPerMsg
+     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
+     *            should be used.
+     * @param inline
+     *            Indicates whether multiple elements should be put in one line.
+     * @return The list of EmbedObjects.
+     */
+    public List<EmbedObject> createListEmbeds(String title,
+            List<String> messages,
+            Color color,
+            String icon,
+            int numberPerMsg,
+            boolean inline)
+    {
+        EmbedBuilder builder = new EmbedBuilder();
+        builder.setLenient(true);
+        builder.withTitle(title);
+        if (icon != null)
+        {
+            builder.withThumbnail(icon);
+        }
+        builder.withColor(color);
+        List<EmbedObject> embedObjects = new ArrayList<EmbedObject>();
+        for (int i = 0; i < messages.size(); i ++ )
+        {
+            boolean clear = false;
+            if (numberPerMsg == -1)
+            {
+                if (builder.getTotalVisibleCharacters() + messages.get(i).length() + Integer.toString(i + 1).length()
+                > EmbedBuilder.MAX_CHAR_LIMIT)
+                {
+                    clear = true;
+                }
+                else
+                {
+                    builder.appendField(Integer.toString(i + 1), messages.get(i), inline);
+                }
+            }
+            else
+            {
+                if (builder.getFieldCount() < numberPerMsg)
+                {
+                    builder.appendField(Integer.toString(i + 1), messages.get(i), inline);
+                }
+                else
+                {
+                    clear = true;
+                }
+            }
+            if (clear)
+            {
+                // builds the full embed
+                embedObjects.add(builder.build());
+                // resets the builder and continues adding messages to the "new" embed
+                builder.withTitle("");
+                if (icon != null)
+                {
+                    builder.withThumbnail(icon);
+                }
+                builder.withColor(color);
+                builder.clearFields();
+                builder.appendField(Integer.toString(i + 1), messages.get(i), inline);
+            }
+        }
+        if (inline)
+        {
+            // adds empty embeds to avoid weird shifting of the elements
+            while (builder.getFieldCount() % 3 != 0)
+            {
+                builder.appendField("-", "-", true);
+            }
+        }
+        // builds the last embed
+        embedObjects.add(builder.build());
+
+        return embedObjects;
+    }
+
+    /**
+     * Creates {@link EmbedObject} from the given messages with the given settings and returns them in a list.
+     * 
+     * @param title
+     *            The text displayed on top of the first message.
+     * @param messages
+     *            All the messages that should be listed.
+     * @param icon
+     *            The icon that will be displayed in the foootnotes.
+     * @param numberPerMsg
+     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
+     *            should be used.
+     * @param inline
+     *            Indicates whether multiple elements should be put in one line.
+     * @return The list of EmbedObjects.
+     */
+    public List<EmbedObject> createListEmbeds(String title,
+            List<String> messages,
+            String icon,
+            int numberPerMsg,
+            boolean inline)
+    {
+        return createListEmbeds(title, messages, Colors.DEFAULT, icon, numberPerMsg, inline);
+    }
+
+    /**
+     * Creates {@link EmbedObject} from the given messages with the given settings and returns them in a list.
+     * 
+     * @param title
+     *            The text displayed on top of the first message.
+     * @param messages
+     *            All the messages that should be listed.
+     * @param color
+     *            The color of the embeded messages.
+     * @param numberPerMsg
+     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
+     *            should be used.
+     * @param inline
+     *            Indicates whether multiple elements should be put in one line.
+     * @return The list of EmbedObjects.
+     */
+    public List<EmbedObject> createListEmbeds(String title,
+            List<String> messages,
+            Color color,
+            int numberPerMsg,
+            boolean inline)
+    {
+        return createListEmbeds(title, messages, color, null, numberPerMsg, inline);
+    }
+
+    /**
+     * Creates {@link EmbedObject} from the given messages with the given settings and returns them in a list.
+     * 
+     * @param title
+     *            The text displayed on top of the first message.
+     * @param messages
+     *            All the messages that should be listed.
+     * @param numberPerMsg
+     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
+     *            should be used.
+     * @param inline
+     *            Indicates whether multiple elements should be put in one line.
+     * @return The list of EmbedObjects.
+     */
+    public List<EmbedObject> createListEmbeds(String title,
+            List<String> messages,
+            int numberPerMsg,
+            boolean inline)
+    {
+        return createListEmbeds(title, messages, Colors.DEFAULT, null, numberPerMsg, inline);
+    }
+
+    /**
+     * Sends an embedded message with the elements from the list to the given channel. If the list contains more
+     * elements than 'numberPerMsg' this method will create another embedded message.
+     * 
+     * @param title
+     *            The text displayed on top of the first message.
+     * @param titles
+     *            The titles for each message.
+     * @param messages
+     *            All the messages that should be listed.
+     * @param channel
+     *            The channel to which the messages should be sent. Can be a private channel.
+     * @param color
+     *            The color of the embeded messages.
+     * @param icon
+     *            The icon that will be displayed in the foootnotes.
+     * @param numberPerMsg
+     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
+     *            should be used.
+     * @param inline
+     *            Indicates whether multiple elements should be put in one line.
+     * 
+     * @see #sendListMessage(String, List, IChannel, int, boolean)
+     * @see #sendListMessage(String, List, IChannel, Color, int, boolean)
+     * @see #sendListMessage(String, List, IChannel, String, int, boolean)
+     */
+    public void sendListMessage(String title,
+            List<String> titles,
+            List<String> messages,
+            IChannel channel,
+            Color color,
+            String icon,
+            int numberPerMsg,
+            boolean inline)
+    {
+        try
+        {
+            checkClient();
+        }
+        catch (BowtieClientException e)
+        {
+            e.printStackTrace();
+            return;
+        }
+        List<EmbedObject> embedObjects = createListEmbeds(title, titles, messages, color, icon, numberPerMsg, inline);
+
+        awaitSend(() -> sendListMessageAsync(embedObjects, channel));
+    }
+
+    /**
+     * Sends an embedded message with the elements from the list to the given channel. If the list contains more
+     * elements than 'numberPerMsg' this method will create another embedded message.
+     * 
+     * @param title
+     *            The text displayed on top of the first message.
+     * @param titles
+     *            The titles for each message.
+     * @param messages
+     *            All the messages that should be listed.
+     * @param channel
+     *            The channel to which the messages should be sent. Can be a private channel.
+     * @param icon
+     *            The icon that will be displayed in the foootnotes.
+     * @param numberPerMsg
+     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
+     *            should be used.
+     * @param inline
+     *            Indicates whether multiple elements should be put in one line.
+     * 
+     * @see #sendListMessage(String, List, IChannel, Color, String, int, boolean)
+     */
+    public void sendListMessage(String title,
+            List<String> titles,
+            List<String> messages,
+            IChannel channel,
+            String icon,
+            int numberPerMsg,
+            boolean inline)
+    {
+        sendListMessage(title, titles, messages, channel, Colors.DEFAULT, icon, numberPerMsg, inline);
+    }
+
+    /**
+     * Sends an embedded message with the elements from the list to the given channel. If the list contains more
+     * elements than 'numberPerMsg' this method will create another embedded message.
+     * 
+     * @param title
+     *            The text displayed on top of the first message.
+     * @param titles
+     *            The titles for each message.
+     * @param messages
+     *            All the messages that should be listed.
+     * @param channel
+     *            The channel to which the messages should be sent. Can be a private channel.
+     * @param color
+     *            The color of the embeded messages.
+     * @param numberPerMsg
+     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
+     *            should be used.
+     * @param inline
+     *            Indicates whether multiple elements should be put in one line.
+     * 
+     * @see #sendListMessage(String, List, IChannel, Color, String, int, boolean)
+     */
+    public void sendListMessage(String title,
+            List<String> titles,
+            List<String> messages,
+            IChannel channel,
+            Color color,
+            int numberPerMsg,
+            boolean inline)
+    {
+        sendListMessage(title, titles, messages, channel, color, null, numberPerMsg, inline);
+    }
+
+    /**
+     * Sends an embedded message with the elements from the list. If the list contains more elements than 'numberPerMsg'
+     * this method will create another embedded message.
+     * 
+     * @param title
+     *            The text displayed on top of the first message.
+     * @param titles
+     *            The titles for each message.
+     * @param messages
+     *            All the messages that should be listed.
+     * @param channel
+     *            The channel to which the messages should be sent. Can be a private channel.
+     * @param numberPerMsg
+     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
+     *            should be used.
+     * @param inline
+     *            Indicates whether multiple elements should be put in one line.
+     * 
+     * @see #sendListMessage(String, List, IChannel, Color, String, int, boolean)
+     */
+    public void sendListMessage(String title,
+            List<String> titles,
+            List<String> messages,
+            IChannel channel,
+            int numberPerMsg,
+            boolean inline)
+    {
+        sendListMessage(title, titles, messages, channel, Colors.DEFAULT, null, numberPerMsg, inline);
+    }
+
+    /**
+     * Sends an embedded message with the elements from the list to the given channel. If the list contains more
+     * elements than 'numberPerMsg' this method will create another embedded message.
+     * 
+     * @param title
+     *            The text displayed on top of the first message.
+     * @param messages
+     *            All the messages that should be listed.
+     * @param channel
+     *            The channel to which the messages should be sent. Can be a private channel.
+     * @param color
+     *            The color of the embeded messages.
+     * @param icon
      *            The icon that will be displayed in the foootnotes.
      * @param numberPerMsg
      *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
@@ -1635,7 +3049,6 @@ public class Bot
      * @see #sendListMessage(String, List, IChannel, String, int, boolean)
      */
     public void sendListMessage(String title,
-            List<String> titles,
             List<String> messages,
             IChannel channel,
             Color color,
@@ -1652,37 +3065,200 @@ public class Bot
             e.printStackTrace();
             return;
         }
-        List<EmbedObject> embedObjects = createListEmbeds(title, titles, messages, color, icon, numberPerMsg, inline);
-
+        List<EmbedObject> embedObjects = createListEmbeds(title, messages, color, icon, numberPerMsg, inline);
+
+        awaitSend(() -> sendListMessageAsync(embedObjects, channel));
+    }
+
+    /**
+     * Sends an embedded message with the elements from the list to the given channel. If the list contains more
+     * elements than 'numberPerMsg' this method will create another embedded message.
+     * 
+     * @param title
+     *            The text displayed on top of the first message.
+     * @param messages
+     *            All the messages that should be listed.
+     * @param channel
+     *            The channel to which the messages should be sent. Can be a private channel.
+     * @param icon
+     *            The icon that will be displayed in the foootnotes.
+     * @param numberPerMsg
+     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
+     *            should be used.
+     * @param inline
+     *            Indicates whether multiple elements should be put in one line.
+     * 
+     * @see #sendListMessage(String, List, IChannel, Color, String, int, boolean)
+     */
+    public void sendListMessage(String title,
+            List<String> messages,
+            IChannel channel,
+            String icon,
+            int numberPerMsg,
+            boolean inline)
+    {
+        sendListMessage(title, messages, channel, Colors.DEFAULT, icon, numberPerMsg, inline);
+    }
+
+    /**
+     * Sends an embedded message with the elements from the list to the given channel. If the list contains more
+     * elements than 'numberPerMsg' this method will create another embedded message.
+     * 
+     * @param title
+     *            The text displayed on top of the first message.
+     * @param messages
+     *            All the messages that should be listed.
+     * @param channel
+     *            The channel to which the messages should be sent. Can be a private channel.
+     * @param color
+     *            The color of the embeded messages.
+     * @param numberPerMsg
+     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
+     *            should be used.
+     * @param inline
+     *            Indicates whether multiple elements should be put in one line.
+     * 
+     * @see #sendListMessage(String, List, IChannel, Color, String, int, boolean)
+     */
+    public void sendListMessage(String title,
+            List<String> messages,
+            IChannel channel,
+            Color color,
+            int numberPerMsg,
+            boolean inline)
+    {
+        sendListMessage(title, messages, channel, color, null, numberPerMsg, inline);
+    }
+
+    /**
+     * Sends an embedded message with the elements from the list. If the list contains more elements than 'numberPerMsg'
+     * this method will create another embedded message.
+     * 
+     * @param title
+     *            The text displayed on top of the first message.
+     * @param messages
+     *            All the messages that should be listed.
+     * @param channel
+     *            The channel to which the messages should be sent. Can be a private channel.
+     * @param numberPerMsg
+     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
+     *            should be used.
+     * @param inline
+     *            Indicates whether multiple elements should be put in one line.
+     * 
+     * @see #sendListMessage(String, List, IChannel, Color, String, int, boolean)
+     */
+    public void sendListMessage(String title,
+            List<String> messages,
+            IChannel channel,
+            int numberPerMsg,
+            boolean inline)
+    {
+        sendListMessage(title, messages, channel, Colors.DEFAULT, null, numberPerMsg, inline);
+    }
+
+    /**
+     * Sends the given embeds to the given channel without blocking the calling thread.
+     * 
+     * <p>
+     * All embeds are queued at once and keep their order within the channel, so the rate limit is the only thing
+     * that separates them.
+     * </p>
+     * 
+     * @param embeds
+     *            The embeds, usually created by one of the createListEmbeds methods.
+     * @param channel
+     *            The channel to which the messages should be sent. Can be a private channel.
+     * @return A future which completes with the sent messages in order, or exceptionally with a {@link SendException}
+     *         if any of them could not be sent.
+     * 
+     * @see MessageSender#sendAll(IChannel, List, Priority)
+     */
+    public CompletableFuture<List<IMessage>> sendListMessageAsync(List<EmbedObject> embeds, IChannel channel)
+    {
+        if (!isClientBuilt())
+        {
+            CompletableFuture<List<IMessage>> future = new CompletableFuture<>();
+            future.completeExceptionally(new SendException(Reason.NO_CLIENT, "The client has to be built first."));
+            return future;
+        }
+        List<IRequest<IMessage>> requests = new ArrayList<>(embeds.size());
+        for (EmbedObject embed : embeds)
+        {
+            requests.add(() -> channel.sendMessage(embed));
+        }
+        return this.messageSender.sendAll(channel, requests, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Sends an embedded message with the elements from the list to the given channel without blocking the calling
+     * thread. If the list contains more elements than 'numberPerMsg' this method will create another embedded
+     * message.
+     * 
+     * @param title
+     *            The text displayed on top of the first message.
+     * @param messages
+     *            All the messages that should be listed.
+     * @param channel
+     *            The channel to which the messages should be sent. Can be a private channel.
+     * @param color
+     *            The color of the embeded messages.
+     * @param icon
+     *            The icon that will be displayed in the foootnotes.
+     * @param numberPerMsg
+     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
+     *            should be used.
+     * @param inline
+     *            Indicates whether multiple elements should be put in one line.
+     * @return A future which completes with the sent messages in order.
+     * 
+     * @see #sendListMessageAsync(List, IChannel)
+     */
+    public CompletableFuture<List<IMessage>> sendListMessageAsync(String title,
+            List<String> messages,
+            IChannel channel,
+            Color color,
+            String icon,
+            int numberPerMsg,
+            boolean inline)
+    {
+        return sendListMessageAsync(createListEmbeds(title, messages, color, icon, numberPerMsg, inline), channel);
+    }
+
+    /**
+     * Sends a standard text message to the given channel.
+     * 
+     * @param message
+     *            The text of the message.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @param fast
+     *            true if the message should be sent directly, false if it should be queued in the {@link MessageSender}
+     *            and sent once the channel and global rate limit buckets allow it. Sending it directly bypasses these
+     *            buckets, which can mean that the message wont be sent at all if the rate limit is exceeded.
+     * 
+     * @see #sendPlainMessage(String, IChannel)
+     */
+    public void sendPlainMessage(String message, IChannel channel, boolean fast)
+    {
+        try
+        {
+            checkClient();
+        }
+        catch (BowtieClientException e)
+        {
+            e.printStackTrace();
+            return;
+        }
         try
         {
-            for (EmbedObject embed : embedObjects)
+            if (fast)
             {
-                RequestBuffer.request(new IRequest<IMessage>()
-                {
-                    @Override
-                    public IMessage request()
-                    {
-                        IMessage message = null;
-                        try
-                        {
-                            message = channel.sendMessage(embed);
-                        }
-                        catch (RateLimitException rte)
-                        {
-                            throw rte;
-                        }
-                        catch (MissingPermissionsException mpe)
-                        {
-                            return null;
-                        }
-                        catch (Exception e)
-                        {
-
-                        }
-                        return message;
-                    }
-                }).get();
+                channel.sendMessage(message);
+            }
+            else
+            {
+                awaitSend(() -> sendPlainMessageAsync(message, channel));
             }
         }
         catch (Exception e)
@@ -1692,126 +3268,444 @@ public class Bot
     }
 
     /**
-     * Sends an embedded message with the elements from the list to the given channel. If the list contains more
-     * elements than 'numberPerMsg' this method will create another embedded message.
+     * Sends a standard text message to the given channel.
      * 
-     * @param title
-     *            The text displayed on top of the first message.
-     * @param titles
-     *            The titles for each message.
-     * @param messages
-     *            All the messages that should be listed.
+     * @param message
+     *            The text of the message.
      * @param channel
-     *            The channel to which the messages should be sent. Can be a private channel.
+     *            The channel to which the message should be sent. Can be a private channel.
+     * 
+     * @see #sendPlainMessage(String, IChannel, boolean)
+     */
+    public void sendPlainMessage(String message, IChannel channel)
+    {
+        sendPlainMessage(message, channel, false);
+    }
+
+    /**
+     * Gets the {@link MessageSender} which performs the requests of the asynchronous send methods.
+     * 
+     * <p>
+     * The sender is shut down on {@link #logout()} and replaced by a new one with the default settings on the next
+     * {@link #login()}.
+     * </p>
+     * 
+     * @return The sender.
+     */
+    public MessageSender getMessageSender()
+    {
+        return this.messageSender;
+    }
+
+    /**
+     * Sends the given embed to the given channel without blocking the calling thread.
+     * 
+     * @param embed
+     *            The embed.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @return A future which completes with the sent message or exceptionally with a {@link SendException}.
+     */
+    public CompletableFuture<IMessage> sendMessageAsync(EmbedObject embed, IChannel channel)
+    {
+        return sendMessageAsync(embed, channel, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Sends the given embed to the given channel in the given lane without blocking the calling thread.
+     * 
+     * @param embed
+     *            The embed.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @param priority
+     *            The lane of the message. Replies to users should use {@link Priority#INTERACTIVE}.
+     * @return A future which completes with the sent message or exceptionally with a {@link SendException}.
+     */
+    public CompletableFuture<IMessage> sendMessageAsync(EmbedObject embed, IChannel channel, Priority priority)
+    {
+        return sendAsync(channel, () -> channel.sendMessage(embed), priority);
+    }
+
+    /**
+     * Sends the given embed to the given channel without blocking the calling thread, unless it has already been sent
+     * with the same idempotency key.
+     * 
+     * <p>
+     * A send with a key that has been used for the same channel within the
+     * {@link MessageSender#setDedupeWindow(long) dedupe window} makes no request, its future completes with the
+     * message of the first send. The window starts once the first send has completed. This keeps a command which is
+     * executed twice, for example after a reconnect, from replying twice. Keys of failed sends are forgotten, so the
+     * send can be retried with the same key.
+     * </p>
+     * 
+     * @param embed
+     *            The embed.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @param idempotencyKey
+     *            The key which identifies this send, for example the ID of the command message it replies to. Or null
+     *            to always send the message.
+     * @return A future which completes with the sent message or exceptionally with a {@link SendException}.
+     */
+    public CompletableFuture<IMessage> sendMessageAsyncOnce(EmbedObject embed, IChannel channel, String idempotencyKey)
+    {
+        return sendAsync(channel, () -> channel.sendMessage(embed), Priority.INTERACTIVE, idempotencyKey);
+    }
+
+    /**
+     * Sends the given text and embed to the given channel without blocking the calling thread.
+     * 
+     * @param text
+     *            The text which is shown above the embed.
+     * @param embed
+     *            The embed.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @return A future which completes with the sent message or exceptionally with a {@link SendException}.
+     */
+    public CompletableFuture<IMessage> sendMessageAsync(String text, EmbedObject embed, IChannel channel)
+    {
+        return sendAsync(channel, () -> channel.sendMessage(text, embed));
+    }
+
+    /**
+     * Sends an embedded message to the given channel without blocking the calling thread.
+     * 
+     * @param message
+     *            The text of the message.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @param color
+     *            The color of the embeded message.
      * @param icon
-     *            The icon that will be displayed in the foootnotes.
-     * @param numberPerMsg
-     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
-     *            should be used.
-     * @param inline
-     *            Indicates whether multiple elements should be put in one line.
+     *            The icon that will be displayed in the foootnote or null.
+     * @return A future which completes with the sent message or exceptionally with a {@link SendException}.
+     */
+    public CompletableFuture<IMessage> sendMessageAsync(String message, IChannel channel, Color color, String icon)
+    {
+        EmbedBuilder builder = new EmbedBuilder();
+        builder.withDesc(message);
+        builder.withColor(color);
+        if (icon != null)
+        {
+            builder.withThumbnail(icon);
+        }
+        return sendMessageAsync(builder.build(), channel);
+    }
+
+    /**
+     * Sends an embedded message to the given channel without blocking the calling thread.
      * 
-     * @see #sendListMessage(String, List, IChannel, Color, String, int, boolean)
+     * @param message
+     *            The text of the message.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @param color
+     *            The color of the embeded message.
+     * @return A future which completes with the sent message or exceptionally with a {@link SendException}.
      */
-    public void sendListMessage(String title,
-            List<String> titles,
-            List<String> messages,
+    public CompletableFuture<IMessage> sendMessageAsync(String message, IChannel channel, Color color)
+    {
+        return sendMessageAsync(message, channel, color, null);
+    }
+
+    /**
+     * Sends an embedded message with the {@link Colors#DEFAULT default color} to the given channel without blocking
+     * the calling thread.
+     * 
+     * @param message
+     *            The text of the message.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @return A future which completes with the sent message or exceptionally with a {@link SendException}.
+     */
+    public CompletableFuture<IMessage> sendMessageAsync(String message, IChannel channel)
+    {
+        return sendMessageAsync(message, channel, Colors.DEFAULT, null);
+    }
+
+    /**
+     * Sends a plain text message to the given channel without blocking the calling thread.
+     * 
+     * @param message
+     *            The text of the message.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @return A future which completes with the sent message or exceptionally with a {@link SendException}.
+     */
+    public CompletableFuture<IMessage> sendPlainMessageAsync(String message, IChannel channel)
+    {
+        return sendPlainMessageAsync(message, channel, false);
+    }
+
+    /**
+     * Sends a plain text message to the given channel without blocking the calling thread.
+     * 
+     * <p>
+     * If coalesce is true, the text may be merged with other coalesced texts which are sent to the same channel
+     * shortly after it, so that a burst of small messages only costs one request. The returned future then completes
+     * with the merged message.
+     * </p>
+     * 
+     * @param message
+     *            The text of the message.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @param coalesce
+     *            true if the text may be merged with other texts.
+     * @return A future which completes with the sent message or exceptionally with a {@link SendException}.
+     * 
+     * @see MessageSender#send(IChannel, String, boolean)
+     */
+    public CompletableFuture<IMessage> sendPlainMessageAsync(String message, IChannel channel, boolean coalesce)
+    {
+        return sendPlainMessageAsync(message, channel, coalesce, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Sends a plain text message to the given channel in the given lane without blocking the calling thread.
+     * 
+     * @param message
+     *            The text of the message.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @param coalesce
+     *            true if the text may be merged with other texts of the same lane.
+     * @param priority
+     *            The lane of the message. Replies to users should use {@link Priority#INTERACTIVE}.
+     * @return A future which completes with the sent message or exceptionally with a {@link SendException}.
+     * 
+     * @see MessageSender#send(IChannel, String, boolean, Priority)
+     */
+    public CompletableFuture<IMessage> sendPlainMessageAsync(String message,
             IChannel channel,
-            String icon,
-            int numberPerMsg,
-            boolean inline)
+            boolean coalesce,
+            Priority priority)
     {
-        sendListMessage(title, titles, messages, channel, Colors.DEFAULT, icon, numberPerMsg, inline);
+        if (!isClientBuilt())
+        {
+            return failedSend();
+        }
+        return this.messageSender.send(channel, message, coalesce, priority);
     }
 
     /**
-     * Sends an embedded message with the elements from the list to the given channel. If the list contains more
-     * elements than 'numberPerMsg' this method will create another embedded message.
+     * Sends a plain text message to the given channel without blocking the calling thread, unless it has already been
+     * sent with the same idempotency key.
      * 
-     * @param title
-     *            The text displayed on top of the first message.
-     * @param titles
-     *            The titles for each message.
-     * @param messages
-     *            All the messages that should be listed.
+     * @param message
+     *            The text of the message.
      * @param channel
-     *            The channel to which the messages should be sent. Can be a private channel.
-     * @param color
-     *            The color of the embeded messages.
-     * @param numberPerMsg
-     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
-     *            should be used.
-     * @param inline
-     *            Indicates whether multiple elements should be put in one line.
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @param idempotencyKey
+     *            The key which identifies this send, for example the ID of the command message it replies to. Or null
+     *            to always send the message.
+     * @return A future which completes with the sent message or exceptionally with a {@link SendException}.
+     * 
+     * @see #sendMessageAsyncOnce(EmbedObject, IChannel, String)
+     */
+    public CompletableFuture<IMessage> sendPlainMessageAsyncOnce(String message,
+            IChannel channel,
+            String idempotencyKey)
+    {
+        if (!isClientBuilt())
+        {
+            return failedSend();
+        }
+        return this.messageSender.send(channel, message, false, Priority.INTERACTIVE, idempotencyKey);
+    }
+
+    /**
+     * Queues the given embed for the given channel and returns right away, without a way to get the sent message.
+     * 
+     * <p>
+     * Unlike the fast mode of {@link #sendMessage(String, IChannel, Color, String, boolean)}, the message is not lost
+     * when the rate limit is exceeded. Only if too many posted messages are waiting, the
+     * {@link MessageSender#setOverflowPolicy(bowt.send.OverflowPolicy) overflow policy} drops one, which is counted
+     * by {@link #getDroppedMessageCount()}.
+     * </p>
+     * 
+     * @param embed
+     *            The embed.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @return true if the message was queued, false if it was dropped or the client has not been built yet.
+     * 
+     * @see MessageSender#post(IChannel, IRequest, Priority)
+     */
+    public boolean postMessage(EmbedObject embed, IChannel channel)
+    {
+        return isClientBuilt()
+                && this.messageSender.post(channel, () -> channel.sendMessage(embed), Priority.INTERACTIVE);
+    }
+
+    /**
+     * Queues the given text for the given channel and returns right away, without a way to get the sent message.
+     * 
+     * @param message
+     *            The text of the message.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @return true if the message was queued, false if it was dropped or the client has not been built yet.
+     * 
+     * @see #postMessage(EmbedObject, IChannel)
+     */
+    public boolean postPlainMessage(String message, IChannel channel)
+    {
+        return postPlainMessage(message, channel, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Queues the given text for the given channel in the given lane and returns right away, without a way to get the
+     * sent message.
+     * 
+     * @param message
+     *            The text of the message.
+     * @param channel
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @param priority
+     *            The lane of the message.
+     * @return true if the message was queued, false if it was dropped or the client has not been built yet.
+     * 
+     * @see #postMessage(EmbedObject, IChannel)
+     */
+    public boolean postPlainMessage(String message, IChannel channel, Priority priority)
+    {
+        return isClientBuilt() && this.messageSender.post(channel, () -> channel.sendMessage(message), priority);
+    }
+
+    /**
+     * Gets the number of posted messages which have been dropped because too many posted messages were waiting.
+     * 
+     * @return The number of dropped messages.
+     */
+    public long getDroppedMessageCount()
+    {
+        return this.messageSender.getDroppedCount();
+    }
+
+    /**
+     * Creates a {@link Broadcast} which sends the given embed to one channel of every guild the bot is connected to.
+     * 
+     * <p>
+     * The channel selector gets the guilds of the client, so the broadcast does not load their {@link GuildObject}s
+     * with {@link #setLazyGuildLoading(boolean) lazy guild loading}. Call {@link Broadcast#start()} to begin sending.
+     * </p>
+     * 
+     * @param embed
+     *            The embed.
+     * @param channelSelector
+     *            Picks the channel of a guild or returns null to skip it.
+     * @return The broadcast.
+     * @throws BowtieClientException
+     *             If the client has not been built yet.
+     */
+    public Broadcast createBroadcast(EmbedObject embed, Function<IGuild, IChannel> channelSelector)
+            throws BowtieClientException
+    {
+        return createBroadcast(channelSelector, channel -> () -> channel.sendMessage(embed));
+    }
+
+    /**
+     * Creates a {@link Broadcast} which sends the given text to one channel of every guild the bot is connected to.
      * 
-     * @see #sendListMessage(String, List, IChannel, Color, String, int, boolean)
+     * @param message
+     *            The text of the message.
+     * @param channelSelector
+     *            Picks the channel of a guild or returns null to skip it.
+     * @return The broadcast.
+     * @throws BowtieClientException
+     *             If the client has not been built yet.
+     * 
+     * @see #createBroadcast(EmbedObject, Function)
      */
-    public void sendListMessage(String title,
-            List<String> titles,
-            List<String> messages,
-            IChannel channel,
-            Color color,
-            int numberPerMsg,
-            boolean inline)
+    public Broadcast createBroadcast(String message, Function<IGuild, IChannel> channelSelector)
+            throws BowtieClientException
     {
-        sendListMessage(title, titles, messages, channel, color, null, numberPerMsg, inline);
+        return createBroadcast(channelSelector, channel -> () -> channel.sendMessage(message));
+    }
+
+    private Broadcast createBroadcast(Function<IGuild, IChannel> channelSelector,
+            Function<IChannel, IRequest<IMessage>> requestFactory) throws BowtieClientException
+    {
+        checkClient();
+        List<IGuild> connected = new ArrayList<>(this.client.getGuilds());
+        return new Broadcast(this.messageSender, connected, channelSelector, requestFactory);
     }
 
     /**
-     * Sends an embedded message with the elements from the list. If the list contains more elements than 'numberPerMsg'
-     * this method will create another embedded message.
+     * Sends the given text to the given channel and returns a {@link LiveMessage} through which the content of the
+     * message can be updated as often as needed.
      * 
-     * @param title
-     *            The text displayed on top of the first message.
-     * @param titles
-     *            The titles for each message.
-     * @param messages
-     *            All the messages that should be listed.
+     * @param message
+     *            The initial text of the message.
      * @param channel
-     *            The channel to which the messages should be sent. Can be a private channel.
-     * @param numberPerMsg
-     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
-     *            should be used.
-     * @param inline
-     *            Indicates whether multiple elements should be put in one line.
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @return The live message.
+     */
+    public LiveMessage createLiveMessage(String message, IChannel channel)
+    {
+        return new LiveMessage(this.messageSender,
+                channel,
+                sendPlainMessageAsync(message, channel),
+                message,
+                Priority.INTERACTIVE);
+    }
+
+    /**
+     * Gets the handler which turns the pages of the messages sent by
+     * {@link #sendPaginatedMessage(String, List, List, IChannel, Color, String, int, boolean)}. It is created and
+     * registered with the client when it is first needed.
      * 
-     * @see #sendListMessage(String, List, IChannel, Color, String, int, boolean)
+     * @return The handler.
+     * @throws BowtieClientException
+     *             If the client has not been built yet.
      */
-    public void sendListMessage(String title,
-            List<String> titles,
-            List<String> messages,
-            IChannel channel,
-            int numberPerMsg,
-            boolean inline)
+    public synchronized PaginationHandler getPaginationHandler() throws BowtieClientException
     {
-        sendListMessage(title, titles, messages, channel, Colors.DEFAULT, null, numberPerMsg, inline);
+        if (this.paginationHandler == null)
+        {
+            checkClient();
+            this.paginationHandler = new PaginationHandler(this);
+            this.client.getDispatcher().registerListener(this.paginationHandler);
+            this.paginationHandler.start();
+        }
+        return this.paginationHandler;
     }
 
     /**
-     * Sends an embedded message with the elements from the list to the given channel. If the list contains more
-     * elements than 'numberPerMsg' this method will create another embedded message.
+     * Sends the first page of a list as an embedded message which users can page through by reacting with
+     * {@link PaginationHandler#PREVIOUS} and {@link PaginationHandler#NEXT}.
+     * 
+     * <p>
+     * Unlike {@link #sendListMessageAsync(String, List, IChannel, Color, String, int, boolean)}, which sends every
+     * part of the list at once, only the first page is rendered and sent. The other pages are rendered when a user
+     * turns to them. The page state is kept by the {@link #getPaginationHandler() pagination handler} until the pages
+     * have not been turned for its time to live.
+     * </p>
      * 
      * @param title
-     *            The text displayed on top of the first message.
+     *            The text displayed on top of every page.
+     * @param titles
+     *            The titles for each message.
      * @param messages
      *            All the messages that should be listed.
      * @param channel
-     *            The channel to which the messages should be sent. Can be a private channel.
+     *            The channel to which the message should be sent. Can be a private channel.
      * @param color
-     *            The color of the embeded messages.
+     *            The color of the embeded message.
      * @param icon
-     *            The icon that will be displayed in the foootnotes.
+     *            The icon that will be displayed in the foootnotes or null.
      * @param numberPerMsg
-     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
-     *            should be used.
+     *            The number of elements per page. Or -1 to use {@link PagedMessage#DEFAULT_PAGE_SIZE}.
      * @param inline
      *            Indicates whether multiple elements should be put in one line.
-     * 
-     * @see #sendListMessage(String, List, IChannel, int, boolean)
-     * @see #sendListMessage(String, List, IChannel, Color, int, boolean)
-     * @see #sendListMessage(String, List, IChannel, String, int, boolean)
+     * @return A future which completes with the message that shows the pages or exceptionally with a
+     *         {@link SendException}.
      */
-    public void sendListMessage(String title,
+    public CompletableFuture<IMessage> sendPaginatedMessage(String title,
+            List<String> titles,
             List<String> messages,
             IChannel channel,
             Color color,
@@ -1819,218 +3713,260 @@ public class Bot
             int numberPerMsg,
             boolean inline)
     {
-        try
+        if (titles.size() != messages.size())
         {
-            checkClient();
+            throw new IllegalArgumentException("Not enough titles for the given messages.");
         }
-        catch (BowtieClientException e)
+        if (!isClientBuilt())
         {
-            e.printStackTrace();
-            return;
+            return failedSend();
         }
-        List<EmbedObject> embedObjects = createListEmbeds(title, messages, color, icon, numberPerMsg, inline);
+        // the number of elements that fit by characters would differ per page, so a fixed size is used instead
+        int pageSize = numberPerMsg > 0 ? numberPerMsg : PagedMessage.DEFAULT_PAGE_SIZE;
+        int pageCount = Math.max(1, (messages.size() + pageSize - 1) / pageSize);
+        IntFunction<EmbedObject> renderer = page -> createPageEmbed(title,
+                titles,
+                messages,
+                color,
+                icon,
+                pageSize,
+                inline,
+                page,
+                pageCount);
 
-        try
+        return sendMessageAsync(renderer.apply(0), channel).thenApply(message ->
         {
-            for (EmbedObject embed : embedObjects)
+            if (pageCount > 1)
             {
-                RequestBuffer.request(new IRequest<IMessage>()
+                try
+                {
+                    getPaginationHandler().add(new PagedMessage(message, renderer, pageCount));
+                }
+                catch (BowtieClientException e)
                 {
-                    @Override
-                    public IMessage request()
+                    errorLog.print(this, e);
+                    return message;
+                }
+                // queued in order in the same lane, so the arrows appear in the right order
+                for (String arrow : Arrays.asList(PaginationHandler.PREVIOUS, PaginationHandler.NEXT))
+                {
+                    this.messageSender.sendReaction(channel, () ->
                     {
-                        IMessage message = null;
-                        try
-                        {
-                            message = channel.sendMessage(embed);
-                        }
-                        catch (RateLimitException rte)
-                        {
-                            throw rte;
-                        }
-                        catch (MissingPermissionsException mpe)
-                        {
-                            return null;
-                        }
-                        catch (Exception e)
-                        {
-
-                        }
+                        message.addReaction(ReactionEmoji.of(arrow));
                         return message;
-                    }
-                }).get();
+                    }, Priority.INTERACTIVE).exceptionally(e ->
+                    {
+                        errorLog.print(this, e);
+                        return null;
+                    });
+                }
             }
-        }
-        catch (Exception e)
-        {
-            errorLog.print(this, e);
-        }
+            return message;
+        });
     }
 
     /**
-     * Sends an embedded message with the elements from the list to the given channel. If the list contains more
-     * elements than 'numberPerMsg' this method will create another embedded message.
+     * Sends the first page of a numbered list as an embedded message which users can page through by reacting with
+     * {@link PaginationHandler#PREVIOUS} and {@link PaginationHandler#NEXT}.
      * 
      * @param title
-     *            The text displayed on top of the first message.
+     *            The text displayed on top of every page.
      * @param messages
      *            All the messages that should be listed.
      * @param channel
-     *            The channel to which the messages should be sent. Can be a private channel.
+     *            The channel to which the message should be sent. Can be a private channel.
+     * @param color
+     *            The color of the embeded message.
      * @param icon
-     *            The icon that will be displayed in the foootnotes.
+     *            The icon that will be displayed in the foootnotes or null.
      * @param numberPerMsg
-     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
-     *            should be used.
+     *            The number of elements per page. Or -1 to use {@link PagedMessage#DEFAULT_PAGE_SIZE}.
      * @param inline
      *            Indicates whether multiple elements should be put in one line.
+     * @return A future which completes with the message that shows the pages or exceptionally with a
+     *         {@link SendException}.
      * 
-     * @see #sendListMessage(String, List, IChannel, Color, String, int, boolean)
+     * @see #sendPaginatedMessage(String, List, List, IChannel, Color, String, int, boolean)
      */
-    public void sendListMessage(String title,
+    public CompletableFuture<IMessage> sendPaginatedMessage(String title,
             List<String> messages,
             IChannel channel,
+            Color color,
             String icon,
             int numberPerMsg,
             boolean inline)
     {
-        sendListMessage(title, messages, channel, Colors.DEFAULT, icon, numberPerMsg, inline);
+        List<String> titles = new ArrayList<String>(messages.size());
+        for (int i = 0; i < messages.size(); i ++ )
+        {
+            titles.add(Integer.toString(i + 1));
+        }
+        return sendPaginatedMessage(title, titles, messages, channel, color, icon, numberPerMsg, inline);
     }
 
     /**
-     * Sends an embedded message with the elements from the list to the given channel. If the list contains more
-     * elements than 'numberPerMsg' this method will create another embedded message.
+     * Creates the embed of one page of a paged list.
      * 
      * @param title
-     *            The text displayed on top of the first message.
+     *            The text displayed on top of the page.
+     * @param titles
+     *            The titles for each message of the whole list.
      * @param messages
-     *            All the messages that should be listed.
-     * @param channel
-     *            The channel to which the messages should be sent. Can be a private channel.
+     *            All the messages of the list.
      * @param color
-     *            The color of the embeded messages.
-     * @param numberPerMsg
-     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
-     *            should be used.
+     *            The color of the embed.
+     * @param icon
+     *            The icon that will be displayed in the foootnotes or null.
+     * @param pageSize
+     *            The number of elements per page.
      * @param inline
      *            Indicates whether multiple elements should be put in one line.
-     * 
-     * @see #sendListMessage(String, List, IChannel, Color, String, int, boolean)
+     * @param page
+     *            The index of the page.
+     * @param pageCount
+     *            The number of pages.
+     * @return The embed of the page.
      */
-    public void sendListMessage(String title,
+    protected EmbedObject createPageEmbed(String title,
+            List<String> titles,
             List<String> messages,
-            IChannel channel,
             Color color,
-            int numberPerMsg,
-            boolean inline)
+            String icon,
+            int pageSize,
+            boolean inline,
+            int page,
+            int pageCount)
     {
-        sendListMessage(title, messages, channel, color, null, numberPerMsg, inline);
+        EmbedBuilder builder = new EmbedBuilder();
+        builder.setLenient(true);
+        builder.withTitle(title);
+        if (icon != null)
+        {
+            builder.withThumbnail(icon);
+        }
+        builder.withColor(color);
+        int end = Math.min(messages.size(), (page + 1) * pageSize);
+        for (int i = page * pageSize; i < end; i ++ )
+        {
+            builder.appendField(titles.get(i), messages.get(i), inline);
+        }
+        if (inline)
+        {
+            // adds empty embeds to avoid weird shifting of the elements
+            while (builder.getFieldCount() % 3 != 0)
+            {
+                builder.appendField("-", "-", true);
+            }
+        }
+        builder.withFooterText("Page " + (page + 1) + "/" + pageCount);
+        return builder.build();
     }
 
     /**
-     * Sends an embedded message with the elements from the list. If the list contains more elements than 'numberPerMsg'
-     * this method will create another embedded message.
-     * 
-     * @param title
-     *            The text displayed on top of the first message.
-     * @param messages
-     *            All the messages that should be listed.
-     * @param channel
-     *            The channel to which the messages should be sent. Can be a private channel.
-     * @param numberPerMsg
-     *            The number of elements per message. Or -1 if the maximum number based on the amount of characters
-     *            should be used.
-     * @param inline
-     *            Indicates whether multiple elements should be put in one line.
+     * Starts the given send and blocks until it has finished.
      * 
-     * @see #sendListMessage(String, List, IChannel, Color, String, int, boolean)
-     */
-    public void sendListMessage(String title,
-            List<String> messages,
-            IChannel channel,
-            int numberPerMsg,
-            boolean inline)
-    {
-        sendListMessage(title, messages, channel, Colors.DEFAULT, null, numberPerMsg, inline);
-    }
-
-    /**
-     * Sends a standard text message to the given channel.
+     * <p>
+     * On a {@link MessageSender#isSenderThread() thread of the sender}, for example in a callback of another send, the
+     * messages are {@link MessageSender#sendInline(Supplier) sent inline}, since waiting for the other threads of the
+     * sender could deadlock.
+     * </p>
      * 
-     * @param message
-     *            The text of the message.
-     * @param channel
-     *            The channel to which the message should be sent. Can be a private channel.
-     * @param fast
-     *            true if the message should be sent directly, false if it should be added to the {@link RequestBuffer}.
-     *            Sending it directly can mean that message wont be sent at all if the rate limit is exceeded.
+     * <p>
+     * Failures are logged, except for missing permissions which the blocking send methods have always ignored.
+     * </p>
      * 
-     * @see #sendPlainMessage(String, IChannel)
+     * @param send
+     *            Starts an asynchronous send and returns its future.
+     * @return The result of the send, usually the sent message, or null if it could not be sent.
      */
-    public void sendPlainMessage(String message, IChannel channel, boolean fast)
+    protected <T> T awaitSend(Supplier<CompletableFuture<T>> send)
     {
+        MessageSender sender = this.messageSender;
+        CompletableFuture<T> future = sender.isSenderThread() ? sender.sendInline(send) : send.get();
         try
         {
-            checkClient();
-        }
-        catch (BowtieClientException e)
-        {
-            e.printStackTrace();
-            return;
+            return future.get();
         }
-        try
+        catch (ExecutionException e)
         {
-            if (fast)
-            {
-                channel.sendMessage(message);
-            }
-            else
+            if (!(e.getCause() instanceof SendException)
+                    || ((SendException)e.getCause()).getReason() != Reason.MISSING_PERMISSIONS)
             {
-                RequestBuffer.request(new IRequest<IMessage>()
-                {
-                    @Override
-                    public IMessage request()
-                    {
-                        IMessage msg = null;
-                        try
-                        {
-                            msg = channel.sendMessage(message);
-                        }
-                        catch (RateLimitException rte)
-                        {
-                            throw rte;
-                        }
-                        catch (MissingPermissionsException mpe)
-                        {
-                            return null;
-                        }
-                        catch (Exception e)
-                        {
-
-                        }
-                        return msg;
-                    }
-                }).get();
+                errorLog.print(this, e.getCause());
             }
         }
-        catch (Exception e)
+        catch (InterruptedException e)
         {
-            errorLog.print(this, e);
+            Thread.currentThread().interrupt();
         }
+        return null;
     }
 
     /**
-     * Sends a standard text message to the given channel.
+     * Hands the given request to the {@link #messageSender} in the {@link Priority#INTERACTIVE interactive} lane.
      * 
-     * @param message
-     *            The text of the message.
      * @param channel
-     *            The channel to which the message should be sent. Can be a private channel.
+     *            The channel to which the message is sent.
+     * @param request
+     *            The request which sends the message.
+     * @return A future which completes with the sent message or exceptionally with a {@link SendException}.
+     */
+    protected CompletableFuture<IMessage> sendAsync(IChannel channel, IRequest<IMessage> request)
+    {
+        return sendAsync(channel, request, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Hands the given request to the {@link #messageSender}.
      * 
-     * @see #sendPlainMessage(String, IChannel, boolean)
+     * @param channel
+     *            The channel to which the message is sent.
+     * @param request
+     *            The request which sends the message.
+     * @param priority
+     *            The lane of the message.
+     * @return A future which completes with the sent message or exceptionally with a {@link SendException}.
      */
-    public void sendPlainMessage(String message, IChannel channel)
+    protected CompletableFuture<IMessage> sendAsync(IChannel channel, IRequest<IMessage> request, Priority priority)
     {
-        sendPlainMessage(message, channel, false);
+        return sendAsync(channel, request, priority, null);
+    }
+
+    /**
+     * Hands the given request to the {@link #messageSender} unless a send with the same idempotency key to the same
+     * channel has been started recently.
+     * 
+     * @param channel
+     *            The channel to which the message is sent.
+     * @param request
+     *            The request which sends the message.
+     * @param priority
+     *            The lane of the message.
+     * @param idempotencyKey
+     *            The idempotency key or null to always send the message.
+     * @return A future which completes with the sent message or exceptionally with a {@link SendException}.
+     * 
+     * @see MessageSender#send(IChannel, IRequest, Priority, String)
+     */
+    protected CompletableFuture<IMessage> sendAsync(IChannel channel,
+            IRequest<IMessage> request,
+            Priority priority,
+            String idempotencyKey)
+    {
+        if (!isClientBuilt())
+        {
+            return failedSend();
+        }
+        return this.messageSender.send(channel, request, priority, idempotencyKey);
+    }
+
+    /**
+     * Creates a future for a message which could not be sent because the client has not been built yet.
+     */
+    private CompletableFuture<IMessage> failedSend()
+    {
+        CompletableFuture<IMessage> future = new CompletableFuture<>();
+        future.completeExceptionally(new SendException(Reason.NO_CLIENT, "The client has to be built first."));
+        return future;
     }
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package bowt.bot.exc;
+
+/**
+ * Thrown when a message could not be sent.
+ * 
+ * <p>
+ * The {@link Reason} tells whether the message was rejected by Discord, could not be sent because of missing
+ * permissions or was never sent at all.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public class SendException extends Exception
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The reasons why a message could not be sent.
+     */
+    public enum Reason
+    {
+        /** The client of the bot has not been built or is not logged in. */
+        NO_CLIENT,
+
+        /** The message was still rate limited after all retries. */
+        RATE_LIMITED,
+
+        /** The bot is missing the permissions to send the message to the channel. */
+        MISSING_PERMISSIONS,
+
+        /** Discord rejected the message or could not be reached. */
+        DISCORD_ERROR,
+
+        /** The message was dropped because the buffer for posted messages was full. */
+        DROPPED,
+
+        /** The message failed for any other reason. */
+        UNKNOWN
+    }
+
+    /** The reason why the message could not be sent. */
+    private final Reason reason;
+
+    /**
+     * Create a new exception with a reason and a detail message.
+     * 
+     * @param reason
+     *            The reason why the message could not be sent.
+     * @param message
+     *            The message describing the cause of this exception.
+     */
+    public SendException(Reason reason, String message)
+    {
+        super(message);
+        this.reason = reason;
+    }
+
+    /**
+     * Create a new exception with a reason and a detail message.
+     * 
+     * @param reason
+     *            The reason why the message could not be sent.
+     * @param message
+     *            The message describing the cause of this exception.
+     * @param e
+     *            The exception causing this exception to be thrown.
+     */
+    public SendException(Reason reason, String message, Throwable e)
+    {
+        super(message, e);
+        this.reason = reason;
+    }
+
+    /**
+     * Gets the reason why the message could not be sent.
+     * 
+     * @return The reason.
+     */
+    public Reason getReason()
+    {
+        return this.reason;
+    }
+}
@@ -1,5 +1,7 @@
 package bowt.cmnd;
 
+import java.util.Collection;
+
 /**
  * @author &#8904
  *
@@ -7,4 +9,23 @@ package bowt.cmnd;
 public interface AliasLoader
 {
     public void load(Command command);
-}
\ No newline at end of file
+
+    /**
+     * Loads the aliases of all the given commands at once.
+     * 
+     * <p>
+     * The default implementation calls {@link #load(Command)} for every command. Loaders that are backed by a database
+     * should override this to fetch all aliases with as few queries as possible.
+     * </p>
+     * 
+     * @param commands
+     *            The commands whichs aliases should be loaded.
+     */
+    public default void loadAll(Collection<Command> commands)
+    {
+        for (Command command : commands)
+        {
+            load(command);
+        }
+    }
+}
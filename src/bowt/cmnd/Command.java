@@ -1,12 +1,15 @@
 package bowt.cmnd;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import sx.blah.discord.api.internal.json.objects.EmbedObject;
+import bowt.bot.Bot;
 import bowt.evnt.impl.CommandEvent;
+import bowt.guild.GuildJournal;
 import bowt.guild.GuildObject;
 import bowt.hand.intf.CommandHandler;
 
@@ -52,7 +55,8 @@ public abstract class Command
     /** A list which contains all the strings that are considered valid for this command. */
     protected List<String> validExpressions;
 
-    protected Map<Long, Integer> overrides;
+    /** The ordinal of this command in the {@link CommandOrdinals} it was last resolved in or null. */
+    private volatile ResolvedOrdinal resolvedOrdinal;
 
     protected Map<Long, Boolean> cooldowns;
 
@@ -64,6 +68,9 @@ public abstract class Command
 
     protected Map<String, String> aliases;
 
+    /** The journal to which alias changes are written or null. */
+    protected volatile GuildJournal journal;
+
     /**
      * Creates a new {@link Command} instance.
      * 
@@ -81,7 +88,6 @@ public abstract class Command
         }
         this.defaultPermission = permission;
         this.canOverridePermission = true;
-        this.overrides = new ConcurrentHashMap<>();
         this.cooldowns = new ConcurrentHashMap<>();
         this.aliases = new ConcurrentHashMap<>();
     }
@@ -99,7 +105,6 @@ public abstract class Command
         this.validExpressions = validExpressions;
         this.defaultPermission = permission;
         this.canOverridePermission = true;
-        this.overrides = new ConcurrentHashMap<>();
         this.cooldowns = new ConcurrentHashMap<>();
         this.aliases = new ConcurrentHashMap<>();
     }
@@ -123,7 +128,6 @@ public abstract class Command
         }
         this.defaultPermission = permission;
         this.canOverridePermission = canOverride;
-        this.overrides = new ConcurrentHashMap<>();
         this.cooldowns = new ConcurrentHashMap<>();
         this.aliases = new ConcurrentHashMap<>();
     }
@@ -143,11 +147,93 @@ public abstract class Command
         this.validExpressions = validExpressions;
         this.defaultPermission = permission;
         this.canOverridePermission = canOverride;
-        this.overrides = new ConcurrentHashMap<>();
         this.cooldowns = new ConcurrentHashMap<>();
+        this.aliases = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Gets the ordinal of this command in the given {@link CommandOrdinals}, which is used as index into the
+     * permission override table of the {@link GuildObject}s that use them.
+     * 
+     * <p>
+     * The ordinal is cached for the ordinals it was last resolved in, so looking it up again for guilds of the same bot
+     * is a single field read.
+     * </p>
+     * 
+     * @param ordinals
+     *            The ordinals of the bot.
+     * @return The ordinal or -1 if this command has no valid expressions and can therefore not be overriden.
+     */
+    public int getOrdinal(CommandOrdinals ordinals)
+    {
+        ResolvedOrdinal resolved = this.resolvedOrdinal;
+        if (resolved == null || resolved.ordinals != ordinals)
+        {
+            int ordinal = this.validExpressions.isEmpty() ? -1 : ordinals.getOrdinal(this.validExpressions.get(0));
+            resolved = new ResolvedOrdinal(ordinals, ordinal);
+            this.resolvedOrdinal = resolved;
+        }
+        return resolved.ordinal;
+    }
+
+    /**
+     * Gets the overriden permission level of this command on the given guild.
+     * 
+     * @return The overriden level or {@link GuildObject#NO_OVERRIDE}.
+     */
+    private int getOverride(GuildObject guild)
+    {
+        int ordinal = getOrdinal(guild.getCommandOrdinals());
+        return ordinal < 0 ? GuildObject.NO_OVERRIDE : guild.getPermissionOverride(ordinal);
     }
 
     public void addAlias(String guildID, String alias)
+    {
+        this.aliases.put(guildID, alias.toLowerCase());
+        GuildJournal journal = this.journal;
+        // the journal identifies commands by their first expression
+        if (journal != null && !this.validExpressions.isEmpty())
+        {
+            try
+            {
+                journal.logAlias(Long.parseLong(guildID), this.validExpressions.get(0), alias);
+            }
+            catch (NumberFormatException e)
+            {
+                Bot.errorLog.print(this, e);
+            }
+        }
+    }
+
+    /**
+     * Removes the alias of this command on the given guild from memory without journaling the change.
+     * 
+     * <p>
+     * This is used by {@link bowt.guild.GuildStore}s which move the state of evicted guilds out of memory.
+     * </p>
+     * 
+     * @param guildID
+     *            The String ID of the guild.
+     * @return The removed alias or null if the command has no alias on that guild.
+     */
+    public String unloadAlias(String guildID)
+    {
+        return this.aliases.remove(guildID);
+    }
+
+    /**
+     * Sets the alias of this command on the given guild without journaling the change.
+     * 
+     * <p>
+     * This is used by {@link bowt.guild.GuildStore}s to restore the alias of a previously evicted guild.
+     * </p>
+     * 
+     * @param guildID
+     *            The String ID of the guild.
+     * @param alias
+     *            The alias.
+     */
+    public void loadAlias(String guildID, String alias)
     {
         this.aliases.put(guildID, alias.toLowerCase());
     }
@@ -159,6 +245,27 @@ public abstract class Command
         return alias;
     }
 
+    /**
+     * Sets the {@link GuildJournal} to which alias changes of this command are written.
+     * 
+     * @param journal
+     *            The journal or null if changes should not be journaled.
+     */
+    public void setJournal(GuildJournal journal)
+    {
+        this.journal = journal;
+    }
+
+    /**
+     * Gets all aliases of this command.
+     * 
+     * @return An unmodifiable map of guild IDs to the alias that is used on that guild.
+     */
+    public Map<String, String> getAliases()
+    {
+        return Collections.unmodifiableMap(this.aliases);
+    }
+
     /**
      * Checks if the given String is a valid command expression.
      * 
@@ -188,8 +295,8 @@ public abstract class Command
         {
             return permission >= this.defaultPermission;
         }
-        Integer permissionOverride = overrides.get(guild.getLongID());
-        if (permissionOverride == null)
+        int permissionOverride = getOverride(guild);
+        if (permissionOverride == GuildObject.NO_OVERRIDE)
         {
             permissionOverride = this.defaultPermission;
         }
@@ -213,8 +320,8 @@ public abstract class Command
      */
     public int getPermissionOverride(GuildObject guild)
     {
-        Integer override = overrides.get(guild.getLongID());
-        return override == null ? this.defaultPermission : override;
+        int override = getOverride(guild);
+        return override == GuildObject.NO_OVERRIDE ? this.defaultPermission : override;
     }
 
     /**
@@ -228,18 +335,19 @@ public abstract class Command
      *         <li>{@link #NEW_PERMISSION} If the permission level was changed to a new level.</li>
      *         </ul>
      */
-    public synchronized int overridePermission(int permission, GuildObject guild)
+    public int overridePermission(int permission, GuildObject guild)
     {
-        if (!this.canOverridePermission)
+        int ordinal = getOrdinal(guild.getCommandOrdinals());
+        if (!this.canOverridePermission || ordinal < 0)
         {
             return CANT_OVERRIDE;
         }
         if (this.defaultPermission == permission)
         {
-            overrides.remove(guild.getLongID());
+            guild.removePermissionOverride(ordinal);
             return DEFAULT_PERMISSION;
         }
-        overrides.put(guild.getLongID(), permission);
+        guild.setPermissionOverride(ordinal, permission);
         return NEW_PERMISSION;
     }
 
@@ -309,4 +417,17 @@ public abstract class Command
      * @return The help embed.
      */
     public abstract EmbedObject getHelp(GuildObject guild);
-}
\ No newline at end of file
+
+    private static final class ResolvedOrdinal
+    {
+        private final CommandOrdinals ordinals;
+
+        private final int ordinal;
+
+        private ResolvedOrdinal(CommandOrdinals ordinals, int ordinal)
+        {
+            this.ordinals = ordinals;
+            this.ordinal = ordinal;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package bowt.cmnd;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import bowt.guild.GuildObject;
+
+/**
+ * Assigns dense ordinals to the commands of one bot.
+ * 
+ * <p>
+ * A command is identified by its first valid expression. Ordinals are assigned starting at 0 in the order in which
+ * the expressions are first seen, and index the permission override table of every {@link GuildObject} that uses
+ * this instance. Every {@link bowt.bot.Bot} has its own instance, so commands of different bots never share an
+ * override slot.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public class CommandOrdinals
+{
+    /** Maps the first valid expression of every command to its ordinal. */
+    private final Map<String, Integer> ordinals = new ConcurrentHashMap<>();
+
+    /** Contains the first valid expression of every command at the index of its ordinal. */
+    private final List<String> expressions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Gets the ordinal that is assigned to commands with the given first valid expression, assigning the next one if
+     * the expression has not been seen yet.
+     * 
+     * @param expression
+     *            The first valid expression of the command.
+     * @return The ordinal.
+     */
+    public int getOrdinal(String expression)
+    {
+        Integer ordinal = this.ordinals.get(expression);
+        if (ordinal == null)
+        {
+            synchronized (this)
+            {
+                ordinal = this.ordinals.get(expression);
+                if (ordinal == null)
+                {
+                    ordinal = this.expressions.size();
+                    this.expressions.add(expression);
+                    this.ordinals.put(expression, ordinal);
+                }
+            }
+        }
+        return ordinal;
+    }
+
+    /**
+     * Gets the first valid expression of the commands with the given ordinal.
+     * 
+     * @param ordinal
+     *            The ordinal.
+     * @return The expression or null if the ordinal has not been assigned yet.
+     */
+    public String getExpression(int ordinal)
+    {
+        return ordinal >= 0 && ordinal < this.expressions.size() ? this.expressions.get(ordinal) : null;
+    }
+
+    /**
+     * Gets the number of assigned ordinals.
+     * 
+     * @return The number of ordinals.
+     */
+    public int size()
+    {
+        return this.expressions.size();
+    }
+}
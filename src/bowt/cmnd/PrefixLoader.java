@@ -1,5 +1,9 @@
 package bowt.cmnd;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 import bowt.guild.GuildObject;
 
 /**
@@ -9,4 +13,26 @@ import bowt.guild.GuildObject;
 public interface PrefixLoader
 {
     public String load(GuildObject guild);
-}
\ No newline at end of file
+
+    /**
+     * Loads the prefixes of all the given guilds at once.
+     * 
+     * <p>
+     * The default implementation calls {@link #load(GuildObject)} for every guild. Loaders that are backed by a
+     * database should override this to fetch all prefixes with as few queries as possible.
+     * </p>
+     * 
+     * @param guilds
+     *            The guilds whichs prefixes should be loaded.
+     * @return A map of guild IDs to prefixes. Guilds without an entry will use the default prefix.
+     */
+    public default Map<Long, String> loadAll(Collection<GuildObject> guilds)
+    {
+        Map<Long, String> prefixes = new HashMap<>(guilds.size() * 2);
+        for (GuildObject guild : guilds)
+        {
+            prefixes.put(guild.getLongID(), load(guild));
+        }
+        return prefixes;
+    }
+}
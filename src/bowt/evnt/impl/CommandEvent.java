@@ -14,6 +14,9 @@ import sx.blah.discord.handle.obj.IUser;
 import bowt.bot.Bot;
 import bowt.evnt.BotEvent;
 import bowt.guild.GuildObject;
+import bowt.guild.Prefix;
+import bowt.util.perm.PermissionContext;
+import bowt.util.perm.UserPermissions;
 
 /**
  * A class to transmit command information.
@@ -39,6 +42,9 @@ public class CommandEvent implements BotEvent
 
     private Map<String, String> parameters;
 
+    /** The context used to resolve the permission level of the author. */
+    private final PermissionContext permissionContext;
+
     public static String parameterIndicator = "-";
 
     private final String oneWordParam = "-(\\w+)=(\\w+)";
@@ -50,14 +56,34 @@ public class CommandEvent implements BotEvent
     /**
      * Creates a new event instance.
      * 
+     * <p>
+     * The {@link PermissionContext} of the given guildobject will be used.
+     * </p>
+     * 
      * @param guildObject
      *            The guildobject on which the event was caused.
      * @param message
      *            The message of the event.
      */
     public CommandEvent(GuildObject guildObject, IMessage message)
+    {
+        this(guildObject, message, guildObject.getPermissionContext());
+    }
+
+    /**
+     * Creates a new event instance.
+     * 
+     * @param guildObject
+     *            The guildobject on which the event was caused.
+     * @param message
+     *            The message of the event.
+     * @param permissionContext
+     *            The context used to resolve the permission level of the author.
+     */
+    public CommandEvent(GuildObject guildObject, IMessage message, PermissionContext permissionContext)
     {
         this.guildObject = guildObject;
+        this.permissionContext = permissionContext;
         if (message == null)
         {
             this.guild = guildObject.getGuild();
@@ -71,21 +97,47 @@ public class CommandEvent implements BotEvent
         {
             this.guild = message.getGuild();
             this.message = message;
-            this.command = message.getContent().toLowerCase().split(" ")[0].replace(guildObject.getPrefix(), "");
-            this.fixedContent = fixCase(message.getContent());
+            String content = message.getContent();
+            int prefixLength = guildObject.matchPrefix(content);
+            int commandStart = findCommandStart(content,
+                    prefixLength,
+                    guildObject.isMentionPrefix(content, prefixLength));
+            int commandEnd = findCommandEnd(content, commandStart);
+            this.command = content.substring(commandStart, commandEnd).toLowerCase();
+            this.fixedContent = fixCase(content, commandEnd);
             this.parameters = findParameters(this.fixedContent);
             this.parameterlessContent = this.fixedContent.replaceAll(textParam, "").replaceAll(oneWordParam, "");
         }
     }
 
     /**
-     * Creates a new event instance.
+     * Creates a new event instance without a {@link PermissionContext}.
+     * 
+     * <p>
+     * The permission level of the author is then resolved by the {@link bowt.hand.impl.PrivateCommandHandler} if it
+     * has a context, otherwise by the static methods of {@link UserPermissions}. Prefer
+     * {@link Bot#createCommandEvent(IMessage)} which passes the context of the bot.
+     * </p>
      * 
      * @param message
      *            The message of the event.
      */
     public CommandEvent(IMessage message)
     {
+        this(message, null);
+    }
+
+    /**
+     * Creates a new event instance.
+     * 
+     * @param message
+     *            The message of the event.
+     * @param permissionContext
+     *            The context used to resolve the permission level of the author.
+     */
+    public CommandEvent(IMessage message, PermissionContext permissionContext)
+    {
+        this.permissionContext = permissionContext;
         if (message == null)
         {
             this.message = null;
@@ -101,8 +153,14 @@ public class CommandEvent implements BotEvent
             this.message = message;
             this.guildObject = null;
             this.guild = message.getGuild();
-            this.command = message.getContent().toLowerCase().split(" ")[0].replace(Bot.getPrefix(), "");
-            this.fixedContent = fixCase(message.getContent());
+            String content = message.getContent();
+            Prefix prefix = Prefix.of(Bot.getPrefix());
+            int commandStart = findCommandStart(content,
+                    prefix != null && prefix.matches(content) ? prefix.length() : -1,
+                    false);
+            int commandEnd = findCommandEnd(content, commandStart);
+            this.command = content.substring(commandStart, commandEnd).toLowerCase();
+            this.fixedContent = fixCase(content, commandEnd);
             this.parameters = findParameters(this.fixedContent);
             this.parameterlessContent = this.fixedContent.replaceAll(textParam, "").replaceAll(oneWordParam, "");
         }
@@ -113,6 +171,40 @@ public class CommandEvent implements BotEvent
         return this.guild.getClient().getApplicationClientID();
     }
 
+    /**
+     * Returns the {@link PermissionContext} that is used to resolve the permission level of the author.
+     * 
+     * @return The context or null if none was given.
+     */
+    public PermissionContext getPermissionContext()
+    {
+        return this.permissionContext;
+    }
+
+    /**
+     * Gets the permission level of the author of the message.
+     * 
+     * <p>
+     * If no {@link PermissionContext} was given this will fall back to the static methods of {@link UserPermissions}.
+     * </p>
+     * 
+     * @return The permission level.
+     */
+    public int getAuthorPermissionLevel()
+    {
+        IUser author = this.message.getAuthor();
+
+        if (this.guildObject == null)
+        {
+            return this.permissionContext != null
+                    ? this.permissionContext.getPermissionLevel(author)
+                    : UserPermissions.getPermissionLevel(author);
+        }
+        return this.permissionContext != null
+                ? this.permissionContext.getPermissionLevel(author, this.guildObject)
+                : UserPermissions.getPermissionLevel(author, this.guildObject);
+    }
+
     private Map<String, String> findParameters(String text)
     {
         Map<String, String> params = new HashMap<>();
@@ -257,18 +349,45 @@ public class CommandEvent implements BotEvent
         return this.parameterlessContent;
     }
 
-    private String fixCase(String text)
+    /**
+     * Finds the start of the command word, which is the first word after the prefix.
+     * 
+     * @param content
+     *            The content of the message.
+     * @param prefixLength
+     *            The length of the prefix at the start of the content or -1 if the content does not start with a
+     *            prefix.
+     * @param mention
+     *            true if the prefix is a mention of the bot.
+     * @return The index of the first character of the command word.
+     */
+    private int findCommandStart(String content, int prefixLength, boolean mention)
     {
-        String[] parts = text.split(" ");
-        parts[0] = parts[0].toLowerCase();
+        int index = Math.max(prefixLength, 0);
 
-        StringBuilder sb = new StringBuilder();
+        // mention prefixes are usually separated from the command by a space, other prefixes never are
+        if (mention)
+        {
+            while (index < content.length() && content.charAt(index) == ' ')
+            {
+                index ++ ;
+            }
+        }
+        return index;
+    }
 
-        for (String part : parts)
+    private int findCommandEnd(String content, int commandStart)
+    {
+        int index = commandStart;
+        while (index < content.length() && content.charAt(index) != ' ')
         {
-            sb.append(part + " ");
+            index ++ ;
         }
+        return index;
+    }
 
-        return sb.toString().trim();
+    private String fixCase(String text, int commandEnd)
+    {
+        return (text.substring(0, commandEnd).toLowerCase() + text.substring(commandEnd)).trim();
     }
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+package bowt.guild;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import bowt.bot.Bot;
+
+/**
+ * A {@link GuildStore} which saves the state of every guild into its own small binary file inside a directory.
+ * 
+ * <p>
+ * The files use the same record layout as the guild records of a {@link GuildSnapshot}.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public class FileGuildStore implements GuildStore
+{
+    /** The directory which contains the guild files. */
+    private final Path directory;
+
+    /**
+     * Creates a new store which uses the given directory.
+     * 
+     * @param directory
+     *            The directory for the guild files. It will be created if it does not exist.
+     * @throws IOException
+     *             If the directory could not be created.
+     */
+    public FileGuildStore(Path directory) throws IOException
+    {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * @see bowt.guild.GuildStore#save(bowt.guild.GuildObject)
+     */
+    @Override
+    public boolean save(GuildObject guild)
+    {
+        Path file = getFile(guild.getLongID());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try
+        {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+            {
+                GuildSnapshot.writeGuild(out, guild);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        }
+        catch (IOException e)
+        {
+            Bot.errorLog.print(this, "Failed to save guild " + guild.getStringID() + ".");
+            Bot.errorLog.print(this, e);
+            return false;
+        }
+    }
+
+    /**
+     * @see bowt.guild.GuildStore#load(bowt.guild.GuildObject)
+     */
+    @Override
+    public boolean load(GuildObject guild)
+    {
+        try
+        {
+            byte[] bytes = Files.readAllBytes(getFile(guild.getLongID()));
+            GuildSnapshot.readGuild(ByteBuffer.wrap(bytes), guild);
+            return true;
+        }
+        catch (NoSuchFileException e)
+        {
+            return false;
+        }
+        catch (IOException e)
+        {
+            Bot.errorLog.print(this, "Failed to load guild " + guild.getStringID() + ".");
+            Bot.errorLog.print(this, e);
+            return false;
+        }
+    }
+
+    /**
+     * @see bowt.guild.GuildStore#getSaveTime(long)
+     */
+    @Override
+    public long getSaveTime(long guildID)
+    {
+        try
+        {
+            return Files.getLastModifiedTime(getFile(guildID)).toMillis();
+        }
+        catch (NoSuchFileException e)
+        {
+            return -1;
+        }
+        catch (IOException e)
+        {
+            Bot.errorLog.print(this, e);
+            return -1;
+        }
+    }
+
+    /**
+     * @see bowt.guild.GuildStore#indexRoles(bowt.guild.RoleIndex)
+     */
+    @Override
+    public void indexRoles(RoleIndex index)
+    {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "*.guild"))
+        {
+            for (Path file : files)
+            {
+                String name = file.getFileName().toString();
+                try
+                {
+                    long guildID = Long.parseLong(name.substring(0, name.length() - ".guild".length()));
+                    GuildSnapshot.readRoles(ByteBuffer.wrap(Files.readAllBytes(file)), guildID, index);
+                }
+                catch (IOException | RuntimeException e)
+                {
+                    // a file which can't be read is skipped, its guild is indexed once it is loaded again
+                    Bot.errorLog.print(this, "Failed to index " + name + ".");
+                    Bot.errorLog.print(this, e);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            Bot.errorLog.print(this, e);
+        }
+    }
+
+    private Path getFile(long guildID)
+    {
+        return this.directory.resolve(guildID + ".guild");
+    }
+}
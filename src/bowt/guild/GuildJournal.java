@@ -0,0 +1,792 @@
+package bowt.guild;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+import bowt.bot.Bot;
+import bowt.cmnd.Command;
+import bowt.thread.Threads;
+
+/**
+ * An append-only write-behind journal for changes to the configuration of guilds.
+ * 
+ * <p>
+ * Changes to the prefix, owners, masters, permission overrides and aliases are queued in memory and written to the
+ * journal file in batches at a fixed interval. Every batch is forced to disk with a single fsync, so that many changes
+ * only cost one disk synchronization.
+ * </p>
+ * 
+ * <p>
+ * On startup the journal is {@link #replay(LongFunction, Collection) replayed} on top of the guild states that were
+ * restored from a {@link GuildSnapshot} or loaded otherwise. The journal can be {@link #compact(Path, Collection,
+ * Collection) compacted} by writing a new snapshot, which removes all entries that are contained in that snapshot.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public class GuildJournal
+{
+    /** The default interval in milliseconds in which queued changes are written to disk. */
+    public static final long DEFAULT_FLUSH_INTERVAL = 100;
+
+    private static final byte PREFIX = 1;
+    private static final byte OWNER_ADDED = 2;
+    private static final byte OWNER_REMOVED = 3;
+    private static final byte MASTER_ADDED = 4;
+    private static final byte MASTER_REMOVED = 5;
+    private static final byte OWNERS = 6;
+    private static final byte MASTERS = 7;
+    private static final byte OVERRIDE = 8;
+    private static final byte OVERRIDE_REMOVED = 9;
+    private static final byte ALIAS = 10;
+
+    /** The journal file. */
+    private final Path file;
+
+    /** The channel used to append to the journal file. */
+    private FileChannel channel;
+
+    /** The encoded entries that have not been written yet. */
+    private final Queue<byte[]> pending;
+
+    /** The task which periodically writes the pending entries. */
+    private final ScheduledFuture<?> flushFuture;
+
+    /** Indicates whether changes on the current thread should not be journaled, because they are being replayed. */
+    private final ThreadLocal<Boolean> replaying;
+
+    /** The commands whichs aliases are replayed, mapped by their first valid expression. */
+    private final Map<String, Command> commands;
+
+    /** The entries of guilds that were not loaded when the journal was replayed, mapped by the guild ID. */
+    private final Map<Long, List<byte[]>> deferred;
+
+    /** Indicates whether this journal has been closed and ignores further changes. */
+    private volatile boolean closed;
+
+    /**
+     * Opens the given journal file with the {@link #DEFAULT_FLUSH_INTERVAL}.
+     * 
+     * @param file
+     *            The journal file. It will be created if it does not exist.
+     * @throws IOException
+     *             If the file could not be opened.
+     */
+    public GuildJournal(Path file) throws IOException
+    {
+        this(file, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Opens the given journal file.
+     * 
+     * <p>
+     * An entry at the end of the file which was not written completely, for example because the process was killed
+     * during a flush, is removed.
+     * </p>
+     * 
+     * @param file
+     *            The journal file. It will be created if it does not exist.
+     * @param flushInterval
+     *            The interval in milliseconds in which queued changes are written to disk.
+     * @throws IOException
+     *             If the file could not be opened.
+     */
+    public GuildJournal(Path file, long flushInterval) throws IOException
+    {
+        this.file = file;
+        this.channel = openChannel(file);
+        try
+        {
+            truncateIncompleteEntry();
+        }
+        catch (IOException e)
+        {
+            this.channel.close();
+            throw e;
+        }
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.commands = new ConcurrentHashMap<>();
+        this.deferred = new ConcurrentHashMap<>();
+        this.replaying = ThreadLocal.withInitial(() -> false);
+        this.flushFuture = Threads.schedulerPool.scheduleWithFixedDelay(this::flushQuietly,
+                flushInterval,
+                flushInterval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Journals a changed prefix.
+     * 
+     * @param guildID
+     *            The long ID of the guild.
+     * @param prefix
+     *            The new prefix.
+     */
+    public void logPrefix(long guildID, String prefix)
+    {
+        append(PREFIX, guildID, out -> writeString(out, prefix));
+    }
+
+    /**
+     * Journals an added owner.
+     * 
+     * @param guildID
+     *            The long ID of the guild.
+     * @param userID
+     *            The ID of the new owner.
+     */
+    public void logOwnerAdded(long guildID, String userID)
+    {
+        append(OWNER_ADDED, guildID, out -> writeString(out, userID));
+    }
+
+    /**
+     * Journals a removed owner.
+     * 
+     * @param guildID
+     *            The long ID of the guild.
+     * @param userID
+     *            The ID of the removed owner.
+     */
+    public void logOwnerRemoved(long guildID, String userID)
+    {
+        append(OWNER_REMOVED, guildID, out -> writeString(out, userID));
+    }
+
+    /**
+     * Journals an added master.
+     * 
+     * @param guildID
+     *            The long ID of the guild.
+     * @param userID
+     *            The ID of the new master.
+     */
+    public void logMasterAdded(long guildID, String userID)
+    {
+        append(MASTER_ADDED, guildID, out -> writeString(out, userID));
+    }
+
+    /**
+     * Journals a removed master.
+     * 
+     * @param guildID
+     *            The long ID of the guild.
+     * @param userID
+     *            The ID of the removed master.
+     */
+    public void logMasterRemoved(long guildID, String userID)
+    {
+        append(MASTER_REMOVED, guildID, out -> writeString(out, userID));
+    }
+
+    /**
+     * Journals a replaced list of owners.
+     * 
+     * @param guildID
+     *            The long ID of the guild.
+     * @param userIDs
+     *            The IDs of all owners.
+     */
+    public void logOwners(long guildID, List<String> userIDs)
+    {
+        append(OWNERS, guildID, out -> writeStrings(out, userIDs));
+    }
+
+    /**
+     * Journals a replaced list of masters.
+     * 
+     * @param guildID
+     *            The long ID of the guild.
+     * @param userIDs
+     *            The IDs of all masters.
+     */
+    public void logMasters(long guildID, List<String> userIDs)
+    {
+        append(MASTERS, guildID, out -> writeStrings(out, userIDs));
+    }
+
+    /**
+     * Journals an overriden permission level.
+     * 
+     * @param guildID
+     *            The long ID of the guild.
+     * @param command
+     *            The first valid expression of the command.
+     * @param permission
+     *            The new permission level.
+     */
+    public void logOverride(long guildID, String command, int permission)
+    {
+        append(OVERRIDE, guildID, out ->
+        {
+            writeString(out, command);
+            out.writeInt(permission);
+        });
+    }
+
+    /**
+     * Journals a removed permission override.
+     * 
+     * @param guildID
+     *            The long ID of the guild.
+     * @param command
+     *            The first valid expression of the command.
+     */
+    public void logOverrideRemoved(long guildID, String command)
+    {
+        append(OVERRIDE_REMOVED, guildID, out -> writeString(out, command));
+    }
+
+    /**
+     * Journals a changed alias.
+     * 
+     * @param guildID
+     *            The long ID of the guild.
+     * @param command
+     *            The first valid expression of the command.
+     * @param alias
+     *            The new alias.
+     */
+    public void logAlias(long guildID, String command, String alias)
+    {
+        append(ALIAS, guildID, out ->
+        {
+            writeString(out, command);
+            writeString(out, alias);
+        });
+    }
+
+    /**
+     * Writes all queued entries to the journal file and forces them to disk.
+     * 
+     * @throws IOException
+     *             If the entries could not be written.
+     */
+    public synchronized void flush() throws IOException
+    {
+        List<byte[]> batch = new ArrayList<>();
+        int size = 0;
+        byte[] entry;
+        while ((entry = this.pending.poll()) != null)
+        {
+            batch.add(entry);
+            size += entry.length;
+        }
+        if (batch.isEmpty())
+        {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] bytes : batch)
+        {
+            buffer.put(bytes);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            this.channel.write(buffer);
+        }
+        this.channel.force(false);
+    }
+
+    /**
+     * Replays all entries of the journal file.
+     * 
+     * <p>
+     * Changes that are made while replaying are not journaled again. The entries of guilds that are not loaded yet are
+     * kept in memory and replayed by {@link #replay(GuildObject)} once the guild is loaded.
+     * </p>
+     * 
+     * @param guilds
+     *            A function which returns the loaded guild for the given ID or null if the guild is not loaded.
+     * @param commands
+     *            The commands whichs aliases should be replayed.
+     * @return The number of replayed entries, including the deferred ones.
+     * @throws IOException
+     *             If the journal could not be read.
+     */
+    public synchronized int replay(LongFunction<GuildObject> guilds, Collection<Command> commands) throws IOException
+    {
+        flush();
+
+        for (Command command : commands)
+        {
+            // commands are identified by their first expression, so commands without one are never journaled
+            if (!command.getValidExpressions().isEmpty())
+            {
+                this.commands.put(command.getValidExpressions().get(0), command);
+            }
+        }
+
+        int count = 0;
+        this.replaying.set(true);
+        try (FileChannel source = FileChannel.open(this.file, StandardOpenOption.READ))
+        {
+            ByteBuffer buffer = source.map(FileChannel.MapMode.READ_ONLY, 0, source.size());
+            while (buffer.hasRemaining())
+            {
+                int start = buffer.position();
+                if (!skipEntry(buffer))
+                {
+                    // only possible if the file was changed by someone else since it was opened
+                    break;
+                }
+                byte[] entry = new byte[buffer.position() - start];
+                ByteBuffer bytes = buffer.duplicate();
+                bytes.position(start);
+                bytes.get(entry);
+
+                long guildID = buffer.getLong(start + 1);
+                GuildObject guild = guilds.apply(guildID);
+                if (guild == null)
+                {
+                    this.deferred.computeIfAbsent(guildID, id -> new ArrayList<>()).add(entry);
+                }
+                else
+                {
+                    replayEntry(entry, guild);
+                }
+                count ++ ;
+            }
+        }
+        finally
+        {
+            this.replaying.set(false);
+        }
+        return count;
+    }
+
+    /**
+     * Replays the entries of the given guild that were deferred by {@link #replay(LongFunction, Collection)},
+     * because the guild was not loaded at that time.
+     * 
+     * <p>
+     * The entries are only replayed once. They stay in the journal file until the guild is contained in a
+     * {@link #compact(Path, Collection, Collection) compacting} snapshot.
+     * </p>
+     * 
+     * @param guild
+     *            The newly loaded guild.
+     * @return The number of replayed entries.
+     */
+    public int replay(GuildObject guild)
+    {
+        List<byte[]> entries = this.deferred.remove(guild.getLongID());
+        if (entries == null)
+        {
+            return 0;
+        }
+
+        this.replaying.set(true);
+        try
+        {
+            for (byte[] entry : entries)
+            {
+                replayEntry(entry, guild);
+            }
+        }
+        catch (IOException e)
+        {
+            Bot.errorLog.print(this, "Failed to replay the journal entries of guild " + guild.getStringID() + ".");
+            Bot.errorLog.print(this, e);
+        }
+        finally
+        {
+            this.replaying.set(false);
+        }
+        return entries.size();
+    }
+
+    /**
+     * Writes a new snapshot of the given guilds and commands and removes the entries of those guilds from the journal
+     * that were written before the snapshot was started.
+     * 
+     * <p>
+     * The snapshot is forced to disk before any entry is removed, so that a crash during or right after compacting
+     * loses neither. Entries that are written while the snapshot is created are kept, so that no change can be lost.
+     * Replaying them on top of the new snapshot is harmless, since every entry describes the resulting state of a
+     * change. Entries of guilds that are not contained in the snapshot, for example because they have been evicted to
+     * a {@link GuildStore}, are kept as well.
+     * </p>
+     * 
+     * @param snapshotFile
+     *            The file to which the snapshot is written.
+     * @param guilds
+     *            The guilds that should be included in the snapshot.
+     * @param commands
+     *            The commands whichs aliases should be included in the snapshot.
+     * @throws IOException
+     *             If the snapshot or the journal could not be written.
+     */
+    public void compact(Path snapshotFile, Collection<GuildObject> guilds, Collection<Command> commands)
+            throws IOException
+    {
+        // the guilds are copied, so that exactly those that are written to the snapshot are compacted
+        List<GuildObject> included = new ArrayList<>(guilds);
+        Set<Long> includedIDs = new HashSet<>(included.size() * 2);
+        for (GuildObject guild : included)
+        {
+            includedIDs.add(guild.getLongID());
+        }
+
+        long position;
+        synchronized (this)
+        {
+            flush();
+            position = this.channel.size();
+        }
+
+        GuildSnapshot.write(snapshotFile, included, commands);
+
+        synchronized (this)
+        {
+            flush();
+            Path temp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+            try (FileChannel source = FileChannel.open(this.file, StandardOpenOption.READ);
+                    FileChannel tail = FileChannel.open(temp,
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING))
+            {
+                ByteBuffer head = source.map(FileChannel.MapMode.READ_ONLY, 0, position);
+                while (head.hasRemaining())
+                {
+                    int start = head.position();
+                    if (!skipEntry(head))
+                    {
+                        break;
+                    }
+                    if (!includedIDs.contains(head.getLong(start + 1)))
+                    {
+                        ByteBuffer entry = head.duplicate();
+                        entry.position(start);
+                        entry.limit(head.position());
+                        while (entry.hasRemaining())
+                        {
+                            tail.write(entry);
+                        }
+                    }
+                }
+
+                long size = source.size();
+                long transferred = 0;
+                while (transferred < size - position)
+                {
+                    transferred += source.transferTo(position + transferred, size - position - transferred, tail);
+                }
+                tail.force(false);
+            }
+            // the old channel is only replaced once the compacted file is in place, so a failed move keeps it usable
+            Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            GuildSnapshot.syncDirectory(this.file);
+            FileChannel old = this.channel;
+            this.channel = openChannel(this.file);
+            old.close();
+        }
+    }
+
+    /**
+     * Stops the periodic flushing, writes all queued entries and closes the journal file.
+     * 
+     * @throws IOException
+     *             If the entries could not be written.
+     */
+    public synchronized void close() throws IOException
+    {
+        this.closed = true;
+        this.flushFuture.cancel(false);
+        flush();
+        this.channel.close();
+    }
+
+    private void replayEntry(byte[] entry, GuildObject guild) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry));
+        byte type = in.readByte();
+        long guildID = in.readLong();
+        if (type == ALIAS)
+        {
+            Command command = this.commands.get(readString(in));
+            String alias = readString(in);
+            if (command != null)
+            {
+                command.addAlias(Long.toString(guildID), alias);
+            }
+        }
+        else
+        {
+            replayGuildEntry(type, guild, in);
+        }
+    }
+
+    private void replayGuildEntry(byte type, GuildObject guild, DataInputStream in) throws IOException
+    {
+        switch (type)
+        {
+        case PREFIX:
+            String prefix = readString(in);
+            if (guild != null)
+            {
+                guild.setPrefix(prefix);
+            }
+            break;
+        case OWNER_ADDED:
+            String newOwner = readString(in);
+            if (guild != null)
+            {
+                guild.addOwner(newOwner);
+            }
+            break;
+        case OWNER_REMOVED:
+            String oldOwner = readString(in);
+            if (guild != null)
+            {
+                guild.removeOwner(oldOwner);
+            }
+            break;
+        case MASTER_ADDED:
+            String newMaster = readString(in);
+            if (guild != null)
+            {
+                guild.addMaster(newMaster);
+            }
+            break;
+        case MASTER_REMOVED:
+            String oldMaster = readString(in);
+            if (guild != null)
+            {
+                guild.removeMaster(oldMaster);
+            }
+            break;
+        case OWNERS:
+            List<String> owners = readStrings(in);
+            if (guild != null)
+            {
+                guild.setOwners(owners);
+            }
+            break;
+        case MASTERS:
+            List<String> masters = readStrings(in);
+            if (guild != null)
+            {
+                guild.setMasters(masters);
+            }
+            break;
+        case OVERRIDE:
+            String overriden = readString(in);
+            int permission = in.readInt();
+            if (guild != null)
+            {
+                guild.setPermissionOverride(guild.getCommandOrdinals().getOrdinal(overriden), permission);
+            }
+            break;
+        case OVERRIDE_REMOVED:
+            String reverted = readString(in);
+            if (guild != null)
+            {
+                guild.removePermissionOverride(guild.getCommandOrdinals().getOrdinal(reverted));
+            }
+            break;
+        default:
+            throw new IOException("Unknown journal entry type " + type + ".");
+        }
+    }
+
+    /**
+     * Cuts off an entry at the end of the journal file which was not written completely. Otherwise all further entries
+     * would be appended behind its partial bytes and could not be read anymore.
+     * 
+     * @throws IOException
+     *             If the file could not be read or truncated, or contains an entry of an unknown type.
+     */
+    private void truncateIncompleteEntry() throws IOException
+    {
+        long end = 0;
+        try (FileChannel source = FileChannel.open(this.file, StandardOpenOption.READ))
+        {
+            ByteBuffer buffer = source.map(FileChannel.MapMode.READ_ONLY, 0, source.size());
+            while (buffer.hasRemaining() && skipEntry(buffer))
+            {
+                end = buffer.position();
+            }
+        }
+
+        long size = this.channel.size();
+        if (end < size)
+        {
+            Bot.errorLog.print(this, "Removing an incomplete entry of " + (size - end)
+                    + " bytes from the guild journal.");
+            this.channel.truncate(end);
+            this.channel.force(false);
+        }
+    }
+
+    /**
+     * Moves the position of the given buffer behind the entry that starts at its current position.
+     * 
+     * @param buffer
+     *            The buffer positioned at the start of an entry.
+     * @return true if the entry was skipped, false if the buffer ends before the entry is complete.
+     * @throws IOException
+     *             If the entry has an unknown type.
+     */
+    private static boolean skipEntry(ByteBuffer buffer) throws IOException
+    {
+        try
+        {
+            byte type = buffer.get();
+            buffer.getLong();
+            switch (type)
+            {
+            case PREFIX:
+            case OWNER_ADDED:
+            case OWNER_REMOVED:
+            case MASTER_ADDED:
+            case MASTER_REMOVED:
+            case OVERRIDE_REMOVED:
+                skipString(buffer);
+                break;
+            case OWNERS:
+            case MASTERS:
+                int count = buffer.getInt();
+                for (int i = 0; i < count; i ++ )
+                {
+                    skipString(buffer);
+                }
+                break;
+            case OVERRIDE:
+                skipString(buffer);
+                buffer.getInt();
+                break;
+            case ALIAS:
+                skipString(buffer);
+                skipString(buffer);
+                break;
+            default:
+                throw new IOException("Unknown journal entry type " + type + ".");
+            }
+            return true;
+        }
+        catch (BufferUnderflowException | IllegalArgumentException e)
+        {
+            // IllegalArgumentException is thrown when a string length points behind the limit
+            return false;
+        }
+    }
+
+    private static void skipString(ByteBuffer buffer)
+    {
+        if (buffer.get() != 0)
+        {
+            int length = buffer.getShort() & 0xFFFF;
+            buffer.position(buffer.position() + length);
+        }
+    }
+
+    private void append(byte type, long guildID, EntryWriter writer)
+    {
+        if (this.closed || this.replaying.get())
+        {
+            return;
+        }
+        try
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            out.writeLong(guildID);
+            writer.write(out);
+            this.pending.add(bytes.toByteArray());
+        }
+        catch (IOException e)
+        {
+            Bot.errorLog.print(this, e);
+        }
+    }
+
+    private void flushQuietly()
+    {
+        try
+        {
+            flush();
+        }
+        catch (IOException e)
+        {
+            Bot.errorLog.print(this, "Failed to write the guild journal.");
+            Bot.errorLog.print(this, e);
+        }
+    }
+
+    private static FileChannel openChannel(Path file) throws IOException
+    {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException
+    {
+        out.writeBoolean(text != null);
+        if (text != null)
+        {
+            out.writeUTF(text);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> texts) throws IOException
+    {
+        List<String> copy = new ArrayList<>(texts);
+        out.writeInt(copy.size());
+        for (String text : copy)
+        {
+            writeString(out, text);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException
+    {
+        int count = in.readInt();
+        List<String> texts = new ArrayList<>(count);
+        for (int i = 0; i < count; i ++ )
+        {
+            texts.add(readString(in));
+        }
+        return texts;
+    }
+
+    /**
+     * Writes the payload of a single journal entry.
+     */
+    @FunctionalInterface
+    private interface EntryWriter
+    {
+        public void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,42 @@
+package bowt.guild;
+
+import java.util.Collection;
+
+/**
+ * A loader which restores the persisted state of a {@link GuildObject}, such as its owners, masters and permission
+ * overrides, when the guildobject is created.
+ * 
+ * <p>
+ * The prefix is loaded separately by the {@link bowt.cmnd.PrefixLoader}.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public interface GuildLoader
+{
+    /**
+     * Loads the state of the given guild.
+     * 
+     * @param guild
+     *            The guild whichs state should be loaded.
+     */
+    public void load(GuildObject guild);
+
+    /**
+     * Loads the state of all the given guilds at once.
+     * 
+     * <p>
+     * The default implementation calls {@link #load(GuildObject)} for every guild.
+     * </p>
+     * 
+     * @param guilds
+     *            The guilds whichs state should be loaded.
+     */
+    public default void loadAll(Collection<GuildObject> guilds)
+    {
+        for (GuildObject guild : guilds)
+        {
+            load(guild);
+        }
+    }
+}
@@ -1,35 +1,88 @@
 package bowt.guild;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import sx.blah.discord.handle.obj.IGuild;
 import sx.blah.discord.handle.obj.IUser;
+import bowt.cmnd.Command;
+import bowt.cmnd.CommandOrdinals;
 import bowt.hand.intf.CommandHandler;
+import bowt.util.perm.PermissionContext;
 
 /**
  * A class which represents a Discord guild.
  * 
+ * <p>
+ * Instances are safe to use from multiple threads. The owners and masters are held in an immutable {@link Roles}
+ * snapshot, so reads never lock. Changes are serialized on the instance and publish a new snapshot, which makes
+ * compound changes like promoting a master to an owner atomic.
+ * </p>
+ * 
  * @author &#8904
  */
 public class GuildObject
 {
-    /**
-     * A list containing the users in this guild which have permission to command the bot.
-     */
-    protected List<String> masters;
+    /** Marks a command in {@link #permissionOverrides} whichs permission level has not been overriden. */
+    public static final int NO_OVERRIDE = Integer.MIN_VALUE;
 
-    /** A list containing the users that function as bot admins on this guild. */
-    protected List<String> owners;
+    /** The current owners and masters of this guild. */
+    protected volatile Roles roles;
 
     /** The {@link IGuild} object this instance is representing. */
     protected final IGuild guild;
 
     /** The standard handler for commands. */
-    protected CommandHandler commandHandler;
+    protected volatile CommandHandler commandHandler;
+
+    /** The interned command prefix for this guild. */
+    protected volatile Prefix prefix;
+
+    /** The prefixes that are accepted in addition to {@link #prefix}. */
+    protected volatile List<String> additionalPrefixes;
+
+    /** The ID of the user whichs mention is accepted as prefix or 0 if mentions are not accepted. */
+    protected volatile long mentionPrefixID;
+
+    /** The trie which contains all accepted prefixes of this guild. */
+    protected volatile PrefixTrie prefixTrie;
+
+    /**
+     * The overriden permission levels of the commands on this guild, indexed by the ordinals of
+     * {@link #commandOrdinals}.
+     * 
+     * <p>
+     * The array is never modified after it has been published. Every change replaces it with an updated copy.
+     * </p>
+     */
+    protected volatile int[] permissionOverrides;
+
+    /** Assigns the ordinals which index {@link #permissionOverrides} or null if none have been needed yet. */
+    protected volatile CommandOrdinals commandOrdinals;
 
-    /** The command prefix for this guild. */
-    protected String prefix;
+    /** The context of the bot this guild is registered to. */
+    protected volatile PermissionContext permissionContext;
+
+    /** The time in milliseconds at which this guild was last requested from its bot. */
+    protected volatile long lastAccess;
+
+    /** The journal to which configuration changes of this guild are written or null. */
+    protected volatile GuildJournal journal;
+
+    /** Indicates whether this guild has been evicted from its bot and rejects further changes of its state. */
+    protected volatile boolean evicted;
+
+    /** The index to which changes of the owners and masters are reported or null. */
+    protected volatile RoleIndex roleIndex;
 
     /**
      * Creates a new {@link GuildObject} instance.
@@ -40,8 +93,11 @@ public class GuildObject
     public GuildObject(IGuild guild)
     {
         this.guild = guild;
-        this.masters = new ArrayList<>();
-        this.owners = new ArrayList<>();
+        this.roles = Roles.EMPTY;
+        this.additionalPrefixes = Collections.emptyList();
+        this.prefixTrie = PrefixTrie.EMPTY;
+        this.permissionOverrides = new int[0];
+        this.lastAccess = System.currentTimeMillis();
     }
 
     /**
@@ -80,9 +136,16 @@ public class GuildObject
      * @param prefix
      *            The new prefix.
      */
-    public void setPrefix(String prefix)
+    public synchronized void setPrefix(String prefix)
     {
-        this.prefix = prefix;
+        checkResident();
+        this.prefix = Prefix.of(prefix);
+        rebuildPrefixTrie();
+        GuildJournal journal = this.journal;
+        if (journal != null)
+        {
+            journal.logPrefix(getLongID(), prefix);
+        }
     }
 
     /**
@@ -91,105 +154,393 @@ public class GuildObject
      * @return The prefix.
      */
     public String getPrefix()
+    {
+        Prefix prefix = this.prefix;
+        return prefix != null ? prefix.getValue() : null;
+    }
+
+    /**
+     * Gets the interned command prefix for this guild.
+     * 
+     * <p>
+     * Guilds with the same prefix share the same instance, so prefixes can be compared by reference.
+     * </p>
+     * 
+     * @return The prefix or null if none has been set.
+     */
+    public Prefix getInternedPrefix()
     {
         return this.prefix;
     }
 
     /**
-     * Gets this instances {@link #owners}.
+     * Adds a prefix which is accepted in addition to the {@link #getPrefix() main prefix}.
+     * 
+     * <p>
+     * Additional prefixes are not journaled or saved with the guild state and have to be set by the application on
+     * startup, for example from its {@link bowt.cmnd.PrefixLoader}.
+     * </p>
+     * 
+     * @param prefix
+     *            The additional prefix.
+     * @return true if the prefix was not accepted yet.
+     */
+    public synchronized boolean addPrefix(String prefix)
+    {
+        if (this.additionalPrefixes.contains(prefix))
+        {
+            return false;
+        }
+        List<String> prefixes = new ArrayList<>(this.additionalPrefixes);
+        prefixes.add(Prefix.of(prefix).getValue());
+        this.additionalPrefixes = Collections.unmodifiableList(prefixes);
+        rebuildPrefixTrie();
+        return true;
+    }
+
+    /**
+     * Removes an additional prefix.
+     * 
+     * @param prefix
+     *            The additional prefix.
+     * @return true if the prefix was accepted before.
+     */
+    public synchronized boolean removePrefix(String prefix)
+    {
+        if (!this.additionalPrefixes.contains(prefix))
+        {
+            return false;
+        }
+        List<String> prefixes = new ArrayList<>(this.additionalPrefixes);
+        prefixes.remove(prefix);
+        this.additionalPrefixes = Collections.unmodifiableList(prefixes);
+        rebuildPrefixTrie();
+        return true;
+    }
+
+    /**
+     * Gets all prefixes that are accepted on this guild, including the main prefix and the mention prefixes.
+     * 
+     * @return An unmodifiable list of the prefixes.
+     */
+    public List<String> getPrefixes()
+    {
+        return this.prefixTrie.getPrefixes();
+    }
+
+    /**
+     * Sets the user whichs mention is accepted as prefix on this guild.
+     * 
+     * <p>
+     * Both mention forms {@code <@id>} and {@code <@!id>} are accepted. This is usually set to the bot user by
+     * {@link bowt.bot.Bot#setMentionPrefix(boolean)}.
+     * </p>
+     * 
+     * @param userID
+     *            The long ID of the user or 0 to not accept mentions as prefix.
+     */
+    public synchronized void setMentionPrefix(long userID)
+    {
+        if (this.mentionPrefixID != userID)
+        {
+            this.mentionPrefixID = userID;
+            rebuildPrefixTrie();
+        }
+    }
+
+    /**
+     * Gets the trie which contains all accepted prefixes of this guild.
+     * 
+     * @return The trie.
+     */
+    public PrefixTrie getPrefixTrie()
+    {
+        return this.prefixTrie;
+    }
+
+    /**
+     * Finds the longest accepted prefix at the start of the given text, ignoring case.
+     * 
+     * @param text
+     *            The text to check, usually the content of a message.
+     * @return The length of the prefix or -1 if the text does not start with an accepted prefix.
+     */
+    public int matchPrefix(String text)
+    {
+        return this.prefixTrie.match(text);
+    }
+
+    /**
+     * Checks if the prefix of the given length at the start of the given text is a mention of the bot.
+     * 
+     * @param text
+     *            The text to check, usually the content of a message.
+     * @param prefixLength
+     *            The length of the prefix that was {@link #matchPrefix(String) matched}.
+     * @return true if the prefix is a mention which is accepted as prefix.
+     */
+    public boolean isMentionPrefix(String text, int prefixLength)
+    {
+        long mentionID = this.mentionPrefixID;
+        if (mentionID == 0 || prefixLength <= 0 || text.charAt(prefixLength - 1) != '>')
+        {
+            return false;
+        }
+        String id = Long.toString(mentionID);
+        int idStart = text.startsWith("<@!") ? 3 : text.startsWith("<@") ? 2 : -1;
+        return idStart > 0 && prefixLength == idStart + id.length() + 1 && text.startsWith(id, idStart);
+    }
+
+    /**
+     * Rebuilds {@link #prefixTrie} after the accepted prefixes have changed.
+     * 
+     * <p>
+     * Guilds which only accept their main prefix share the trie of the interned {@link Prefix}.
+     * </p>
+     */
+    protected void rebuildPrefixTrie()
+    {
+        Prefix prefix = this.prefix;
+        if (this.additionalPrefixes.isEmpty() && this.mentionPrefixID == 0)
+        {
+            this.prefixTrie = prefix != null ? prefix.getTrie() : PrefixTrie.EMPTY;
+            return;
+        }
+
+        List<String> prefixes = new ArrayList<>();
+        if (prefix != null)
+        {
+            prefixes.add(prefix.getValue());
+        }
+        prefixes.addAll(this.additionalPrefixes);
+        if (this.mentionPrefixID != 0)
+        {
+            prefixes.add("<@" + this.mentionPrefixID + ">");
+            prefixes.add("<@!" + this.mentionPrefixID + ">");
+        }
+        this.prefixTrie = PrefixTrie.of(prefixes);
+    }
+
+    /**
+     * Gets the IDs of the owners of this guild.
+     * 
+     * <p>
+     * The returned list is a view which always shows the current owners. Changes to it are made through
+     * {@link #addOwner(String)}, {@link #removeOwner(String)} and {@link #setOwners(List)}, so they are journaled like
+     * any other change. Since an ID is contained at most once, adding a contained ID does not change the list, and
+     * added IDs are always appended.
+     * </p>
      * 
-     * @return This instances {@link #owners}.
+     * @return A view of the owners.
      */
     public List<String> getOwners()
     {
-        return this.owners;
+        return new RoleList(true);
     }
 
     /**
-     * Sets this instances {@link #owners}.
+     * Gets the number of owners of this guild.
      * 
-     * @param masters
-     *            The {@link List} which should be set as {@link #owners}.
+     * @return The number of owners.
      */
-    public void setOwners(List<String> owners)
+    public int getOwnerCount()
     {
-        this.owners = owners;
+        return this.roles.owners.size();
     }
 
     /**
-     * Adds the given user to this instances {@link #owners} if it is not yet contained.
+     * Replaces the owners of this guild.
      * 
-     * @param master
+     * @param owners
+     *            The IDs of the new owners. The list is copied.
+     */
+    public synchronized void setOwners(List<String> owners)
+    {
+        checkResident();
+        setRoles(new Roles(owners, this.roles.masters));
+        GuildJournal journal = this.journal;
+        if (journal != null)
+        {
+            journal.logOwners(getLongID(), owners);
+        }
+    }
+
+    /**
+     * Adds the given user to the owners if it is not yet contained.
+     * 
+     * <p>
+     * If the user is a master, it is promoted to an owner in a single atomic change.
+     * </p>
+     * 
+     * @param owner
      *            The {@link IUser} that should be added.
      * @return true if the user was not yet contained and successfully added.
      */
     public boolean addOwner(IUser owner)
     {
-        if (this.owners.contains(owner.getStringID()))
-        {
-            return false;
-        }
-        this.masters.remove(owner.getStringID());
-        return this.owners.add(owner.getStringID());
+        return addOwner(owner.getStringID());
     }
 
-    public boolean addOwner(String id)
+    /**
+     * Adds the user with the given ID to the owners if it is not yet contained.
+     * 
+     * <p>
+     * If the user is a master, it is promoted to an owner in a single atomic change.
+     * </p>
+     * 
+     * @param id
+     *            The String ID of the user that should be added.
+     * @return true if the user was not yet contained and successfully added.
+     */
+    public synchronized boolean addOwner(String id)
     {
-        if (this.owners.contains(id))
+        checkResident();
+        Roles current = this.roles;
+        if (current.owners.contains(id))
         {
             return false;
         }
-        this.masters.remove(id);
-        return this.owners.add(id);
+        List<String> owners = new ArrayList<>(current.owners);
+        owners.add(id);
+        List<String> masters = new ArrayList<>(current.masters);
+        masters.remove(id);
+        setRoles(new Roles(owners, masters));
+
+        GuildJournal journal = this.journal;
+        if (journal != null)
+        {
+            journal.logOwnerAdded(getLongID(), id);
+        }
+        return true;
     }
 
     /**
-     * Removes the given {@link IUser} from this instances {@link #owners}.
+     * Removes the given {@link IUser} from the owners.
      * 
-     * @param master
+     * @param owner
      *            The {@link IUser} that should be removed.
      * @return true if the given user was contained and successfully removed.
      */
     public boolean removeOwner(IUser owner)
     {
-        return this.owners.remove(owner.getStringID());
+        return removeOwner(owner.getStringID());
+    }
+
+    /**
+     * Removes the user with the given ID from the owners.
+     * 
+     * @param id
+     *            The String ID of the user that should be removed.
+     * @return true if the given user was contained and successfully removed.
+     */
+    public synchronized boolean removeOwner(String id)
+    {
+        checkResident();
+        Roles current = this.roles;
+        if (!current.owners.contains(id))
+        {
+            return false;
+        }
+        List<String> owners = new ArrayList<>(current.owners);
+        owners.remove(id);
+        setRoles(new Roles(owners, current.masters));
+
+        GuildJournal journal = this.journal;
+        if (journal != null)
+        {
+            journal.logOwnerRemoved(getLongID(), id);
+        }
+        return true;
+    }
+
+    /**
+     * Demotes the owner with the given ID to a master in a single atomic change.
+     * 
+     * @param id
+     *            The String ID of the owner.
+     * @return true if the user was an owner and has been demoted.
+     */
+    public synchronized boolean demoteOwner(String id)
+    {
+        checkResident();
+        Roles current = this.roles;
+        if (!current.owners.contains(id))
+        {
+            return false;
+        }
+        List<String> owners = new ArrayList<>(current.owners);
+        owners.remove(id);
+        List<String> masters = new ArrayList<>(current.masters);
+        masters.add(id);
+        setRoles(new Roles(owners, masters));
+
+        GuildJournal journal = this.journal;
+        if (journal != null)
+        {
+            journal.logOwnerRemoved(getLongID(), id);
+            journal.logMasterAdded(getLongID(), id);
+        }
+        return true;
     }
 
     /**
      * Checks if the given user is an owner in this guild.
      * 
      * @param user
-     *            The {@link IUser} whichs master permissions should be checked.
-     * @return true if the given user is contained in {@link #owners}.
+     *            The {@link IUser} whichs owner permissions should be checked.
+     * @return true if the given user is an owner.
      */
     public boolean isOwner(IUser user)
     {
-        return this.owners.contains(user.getStringID());
+        return this.roles.owners.contains(user.getStringID());
     }
 
     /**
-     * Gets this instances {@link #masters}.
+     * Gets the IDs of the masters of this guild.
+     * 
+     * <p>
+     * The returned list is a view which always shows the current masters. Changes to it are made through
+     * {@link #addMaster(String)}, {@link #removeMaster(String)} and {@link #setMasters(List)}, so they are journaled
+     * like any other change. Since an ID is contained at most once, adding a contained ID or the ID of an owner does
+     * not change the list, and added IDs are always appended.
+     * </p>
      * 
-     * @return This instances {@link #masters}.
+     * @return A view of the masters.
      */
     public List<String> getMasters()
     {
-        return this.masters;
+        return new RoleList(false);
+    }
+
+    /**
+     * Gets the number of masters of this guild.
+     * 
+     * @return The number of masters.
+     */
+    public int getMasterCount()
+    {
+        return this.roles.masters.size();
     }
 
     /**
-     * Sets this instances {@link #masters}.
+     * Replaces the masters of this guild.
      * 
      * @param masters
-     *            The {@link List} which should be set as {@link #masters}.
+     *            The IDs of the new masters. The list is copied.
      */
-    public void setMasters(List<String> masters)
+    public synchronized void setMasters(List<String> masters)
     {
-        this.masters = masters;
+        checkResident();
+        setRoles(new Roles(this.roles.owners, masters));
+        GuildJournal journal = this.journal;
+        if (journal != null)
+        {
+            journal.logMasters(getLongID(), masters);
+        }
     }
 
     /**
-     * Adds the given user to this instances {@link #masters} if it is not yet contained.
+     * Adds the given user to the masters if it is neither a master nor an owner yet.
      * 
      * @param master
      *            The {@link IUser} that should be added.
@@ -197,24 +548,38 @@ public class GuildObject
      */
     public boolean addMaster(IUser master)
     {
-        if (this.masters.contains(master.getStringID()) || this.owners.contains(master.getStringID()))
-        {
-            return false;
-        }
-        return this.masters.add(master.getStringID());
+        return addMaster(master.getStringID());
     }
 
-    public boolean addMaster(String id)
+    /**
+     * Adds the user with the given ID to the masters if it is neither a master nor an owner yet.
+     * 
+     * @param id
+     *            The String ID of the user that should be added.
+     * @return true if the user was not yet contained and successfully added.
+     */
+    public synchronized boolean addMaster(String id)
     {
-        if (this.masters.contains(id) || this.owners.contains(id))
+        checkResident();
+        Roles current = this.roles;
+        if (current.masters.contains(id) || current.owners.contains(id))
         {
             return false;
         }
-        return this.masters.add(id);
+        List<String> masters = new ArrayList<>(current.masters);
+        masters.add(id);
+        setRoles(new Roles(current.owners, masters));
+
+        GuildJournal journal = this.journal;
+        if (journal != null)
+        {
+            journal.logMasterAdded(getLongID(), id);
+        }
+        return true;
     }
 
     /**
-     * Removes the given {@link IUser} from this instances {@link #masters}.
+     * Removes the given {@link IUser} from the masters.
      * 
      * @param master
      *            The {@link IUser} that should be removed.
@@ -222,7 +587,34 @@ public class GuildObject
      */
     public boolean removeMaster(IUser master)
     {
-        return this.masters.remove(master.getStringID());
+        return removeMaster(master.getStringID());
+    }
+
+    /**
+     * Removes the user with the given ID from the masters.
+     * 
+     * @param id
+     *            The String ID of the user that should be removed.
+     * @return true if the given user was contained and successfully removed.
+     */
+    public synchronized boolean removeMaster(String id)
+    {
+        checkResident();
+        Roles current = this.roles;
+        if (!current.masters.contains(id))
+        {
+            return false;
+        }
+        List<String> masters = new ArrayList<>(current.masters);
+        masters.remove(id);
+        setRoles(new Roles(current.owners, masters));
+
+        GuildJournal journal = this.journal;
+        if (journal != null)
+        {
+            journal.logMasterRemoved(getLongID(), id);
+        }
+        return true;
     }
 
     /**
@@ -230,11 +622,309 @@ public class GuildObject
      * 
      * @param user
      *            The {@link IUser} whichs master permissions should be checked.
-     * @return true if the given user is contained in {@link #masters}.
+     * @return true if the given user is a master.
      */
     public boolean isMaster(IUser user)
     {
-        return this.masters.contains(user.getStringID());
+        return this.roles.masters.contains(user.getStringID());
+    }
+
+    /**
+     * Gets the overriden permission level of the command with the given ordinal.
+     * 
+     * @param ordinal
+     *            The {@link Command#getOrdinal(CommandOrdinals) ordinal} of the command.
+     * @return The overriden permission level or {@link #NO_OVERRIDE} if it has not been overriden on this guild.
+     */
+    public int getPermissionOverride(int ordinal)
+    {
+        int[] overrides = this.permissionOverrides;
+        return ordinal < overrides.length ? overrides[ordinal] : NO_OVERRIDE;
+    }
+
+    /**
+     * Overrides the permission level of the command with the given ordinal on this guild.
+     * 
+     * @param ordinal
+     *            The {@link Command#getOrdinal(CommandOrdinals) ordinal} of the command.
+     * @param permission
+     *            The new permission level.
+     */
+    public synchronized void setPermissionOverride(int ordinal, int permission)
+    {
+        checkResident();
+        int[] overrides = this.permissionOverrides;
+        int[] copy = Arrays.copyOf(overrides, Math.max(overrides.length, ordinal + 1));
+        Arrays.fill(copy, overrides.length, copy.length, NO_OVERRIDE);
+        copy[ordinal] = permission;
+        this.permissionOverrides = copy;
+        GuildJournal journal = this.journal;
+        if (journal != null)
+        {
+            journal.logOverride(getLongID(), getCommandOrdinals().getExpression(ordinal), permission);
+        }
+    }
+
+    /**
+     * Removes the permission override of the command with the given ordinal on this guild.
+     * 
+     * @param ordinal
+     *            The {@link Command#getOrdinal(CommandOrdinals) ordinal} of the command.
+     */
+    public synchronized void removePermissionOverride(int ordinal)
+    {
+        checkResident();
+        int[] overrides = this.permissionOverrides;
+        if (ordinal < overrides.length && overrides[ordinal] != NO_OVERRIDE)
+        {
+            int[] copy = overrides.clone();
+            copy[ordinal] = NO_OVERRIDE;
+            this.permissionOverrides = copy;
+            GuildJournal journal = this.journal;
+            if (journal != null)
+            {
+                journal.logOverrideRemoved(getLongID(), getCommandOrdinals().getExpression(ordinal));
+            }
+        }
+    }
+
+    /**
+     * Gets the current permission override table of this guild.
+     * 
+     * <p>
+     * The returned array must not be modified.
+     * </p>
+     * 
+     * @return The overrides indexed by the ordinals of {@link #getCommandOrdinals()}.
+     */
+    public int[] getPermissionOverrides()
+    {
+        return this.permissionOverrides;
+    }
+
+    /**
+     * Replaces the owners, masters and permission overrides of this guild with those of the given guild, for example
+     * after they have been loaded again from their source. Only the values that differ are changed and journaled.
+     * 
+     * @param source
+     *            The guild whichs state should be adopted.
+     */
+    public synchronized void setState(GuildObject source)
+    {
+        checkResident();
+        List<String> owners = source.getOwners();
+        if (!new ArrayList<>(this.roles.owners).equals(owners))
+        {
+            setOwners(owners);
+        }
+        List<String> masters = source.getMasters();
+        if (!new ArrayList<>(this.roles.masters).equals(masters))
+        {
+            setMasters(masters);
+        }
+
+        Map<String, Integer> sourceOverrides = new HashMap<>();
+        int[] overrides = source.getPermissionOverrides();
+        CommandOrdinals sourceOrdinals = source.getCommandOrdinals();
+        for (int ordinal = 0; ordinal < overrides.length; ordinal ++ )
+        {
+            if (overrides[ordinal] != NO_OVERRIDE)
+            {
+                sourceOverrides.put(sourceOrdinals.getExpression(ordinal), overrides[ordinal]);
+            }
+        }
+        CommandOrdinals ordinals = getCommandOrdinals();
+        int[] current = this.permissionOverrides;
+        for (int ordinal = 0; ordinal < current.length; ordinal ++ )
+        {
+            if (current[ordinal] != NO_OVERRIDE && !sourceOverrides.containsKey(ordinals.getExpression(ordinal)))
+            {
+                removePermissionOverride(ordinal);
+            }
+        }
+        for (Map.Entry<String, Integer> override : sourceOverrides.entrySet())
+        {
+            int ordinal = ordinals.getOrdinal(override.getKey());
+            if (getPermissionOverride(ordinal) != override.getValue())
+            {
+                setPermissionOverride(ordinal, override.getValue());
+            }
+        }
+    }
+
+    /**
+     * Gets the {@link CommandOrdinals} which index the permission overrides of this guild.
+     * 
+     * <p>
+     * Until this guild is registered to a bot, it uses ordinals of its own, which are mapped to the ordinals of the
+     * bot by {@link #setCommandOrdinals(CommandOrdinals)}.
+     * </p>
+     * 
+     * @return The ordinals.
+     */
+    public CommandOrdinals getCommandOrdinals()
+    {
+        CommandOrdinals ordinals = this.commandOrdinals;
+        if (ordinals == null)
+        {
+            synchronized (this)
+            {
+                if (this.commandOrdinals == null)
+                {
+                    this.commandOrdinals = new CommandOrdinals();
+                }
+                ordinals = this.commandOrdinals;
+            }
+        }
+        return ordinals;
+    }
+
+    /**
+     * Sets the {@link CommandOrdinals} of the bot this guild is registered to. Overrides which have been set with
+     * other ordinals are moved to the ordinals of their commands in the new ones.
+     * 
+     * @param ordinals
+     *            The ordinals of the bot.
+     */
+    public synchronized void setCommandOrdinals(CommandOrdinals ordinals)
+    {
+        CommandOrdinals old = this.commandOrdinals;
+        if (old != null && old != ordinals)
+        {
+            int[] overrides = this.permissionOverrides;
+            int[] remapped = new int[0];
+            for (int ordinal = 0; ordinal < overrides.length; ordinal ++ )
+            {
+                if (overrides[ordinal] != NO_OVERRIDE)
+                {
+                    int moved = ordinals.getOrdinal(old.getExpression(ordinal));
+                    if (moved >= remapped.length)
+                    {
+                        int length = remapped.length;
+                        remapped = Arrays.copyOf(remapped, moved + 1);
+                        Arrays.fill(remapped, length, remapped.length, NO_OVERRIDE);
+                    }
+                    remapped[moved] = overrides[ordinal];
+                }
+            }
+            this.permissionOverrides = remapped;
+        }
+        this.commandOrdinals = ordinals;
+    }
+
+    /**
+     * Gets the {@link PermissionContext} of the bot this guild is registered to.
+     * 
+     * @return The context or null if this guild has not been added to a bot yet.
+     */
+    public PermissionContext getPermissionContext()
+    {
+        return this.permissionContext;
+    }
+
+    /**
+     * Sets the {@link PermissionContext} of the bot this guild is registered to.
+     * 
+     * @param permissionContext
+     *            The context.
+     */
+    public void setPermissionContext(PermissionContext permissionContext)
+    {
+        this.permissionContext = permissionContext;
+    }
+
+    /**
+     * Gets the {@link GuildJournal} to which configuration changes of this guild are written.
+     * 
+     * @return The journal or null if changes are not journaled.
+     */
+    public GuildJournal getJournal()
+    {
+        return this.journal;
+    }
+
+    /**
+     * Sets the {@link GuildJournal} to which configuration changes of this guild are written.
+     * 
+     * <p>
+     * This should only be set after the stored state of this guild has been loaded, so that loading it is not
+     * journaled again.
+     * </p>
+     * 
+     * @param journal
+     *            The journal or null if changes should not be journaled.
+     */
+    public void setJournal(GuildJournal journal)
+    {
+        this.journal = journal;
+    }
+
+    /**
+     * Gets the {@link RoleIndex} to which changes of the owners and masters of this guild are reported.
+     * 
+     * @return The index or null if none has been set.
+     */
+    public RoleIndex getRoleIndex()
+    {
+        return this.roleIndex;
+    }
+
+    /**
+     * Sets the {@link RoleIndex} to which changes of the owners and masters of this guild are reported, and adds the
+     * current owners and masters to it.
+     * 
+     * @param roleIndex
+     *            The index or null.
+     */
+    public synchronized void setRoleIndex(RoleIndex roleIndex)
+    {
+        this.roleIndex = roleIndex;
+        if (roleIndex != null)
+        {
+            roleIndex.set(getLongID(), this.roles.owners, this.roles.masters);
+        }
+    }
+
+    /**
+     * Marks this guild as evicted from its bot after its state has been saved to a {@link GuildStore}.
+     * 
+     * <p>
+     * From then on changes to the prefix, owners, masters and permission overrides throw an
+     * {@link IllegalStateException}, since they would not be contained in the saved state. Threads that still hold
+     * this instance have to get the guildobject from the bot again, which restores it from the store.
+     * </p>
+     */
+    public synchronized void markEvicted()
+    {
+        this.evicted = true;
+    }
+
+    /**
+     * Indicates whether this guild has been {@link #markEvicted() evicted}.
+     * 
+     * @return true if changes of the state of this guild are rejected.
+     */
+    public boolean isEvicted()
+    {
+        return this.evicted;
+    }
+
+    /**
+     * Marks this guild as used right now.
+     */
+    public void touch()
+    {
+        this.lastAccess = System.currentTimeMillis();
+    }
+
+    /**
+     * Gets the time at which this guild was last used.
+     * 
+     * @return The time in milliseconds since the epoch.
+     */
+    public long getLastAccess()
+    {
+        return this.lastAccess;
     }
 
     /**
@@ -258,6 +948,35 @@ public class GuildObject
         this.commandHandler = commandHandler;
     }
 
+    /**
+     * Replaces the owners and masters of this guild and reports them to the {@link #roleIndex}. Must be called while
+     * holding the lock of this guild.
+     * 
+     * @param roles
+     *            The new owners and masters.
+     */
+    protected void setRoles(Roles roles)
+    {
+        this.roles = roles;
+        RoleIndex index = this.roleIndex;
+        if (index != null)
+        {
+            index.set(getLongID(), roles.owners, roles.masters);
+        }
+    }
+
+    /**
+     * Throws an {@link IllegalStateException} if this guild has been {@link #markEvicted() evicted}.
+     */
+    protected void checkResident()
+    {
+        if (this.evicted)
+        {
+            throw new IllegalStateException("The guildobject of guild " + getStringID()
+                    + " has been evicted. Get it from the bot again to change it.");
+        }
+    }
+
     /**
      * @see java.lang.Object#equals(java.lang.Object)
      */
@@ -268,14 +987,209 @@ public class GuildObject
         {
             return true;
         }
-        if (obj == null)
+        if (!(obj instanceof GuildObject))
         {
             return false;
         }
-        if (this.getStringID().equals(((GuildObject)obj).getStringID()))
+        return this.getLongID() == ((GuildObject)obj).getLongID();
+    }
+
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(this.getLongID());
+    }
+
+    /**
+     * A view of the owners or masters of a guild, which reads the current {@link Roles} and changes them through the
+     * methods of the guild.
+     * 
+     * @author &#8904
+     */
+    protected final class RoleList extends AbstractList<String>
+    {
+        /** Indicates whether this list shows the owners instead of the masters. */
+        private final boolean owners;
+
+        /**
+         * Creates a new view.
+         * 
+         * @param owners
+         *            true to show the owners, false to show the masters.
+         */
+        protected RoleList(boolean owners)
+        {
+            this.owners = owners;
+        }
+
+        private Set<String> current()
         {
-            return true;
+            Roles roles = GuildObject.this.roles;
+            return this.owners ? roles.owners : roles.masters;
+        }
+
+        @Override
+        public String get(int index)
+        {
+            Set<String> ids = current();
+            if (index < 0 || index >= ids.size())
+            {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + ids.size());
+            }
+            Iterator<String> iterator = ids.iterator();
+            for (int i = 0; i < index; i ++ )
+            {
+                iterator.next();
+            }
+            return iterator.next();
+        }
+
+        @Override
+        public int size()
+        {
+            return current().size();
+        }
+
+        @Override
+        public boolean contains(Object id)
+        {
+            return current().contains(id);
+        }
+
+        @Override
+        public Iterator<String> iterator()
+        {
+            // iterates the snapshot which is current now, so concurrent changes can't shift the elements
+            Iterator<String> iterator = current().iterator();
+            return new Iterator<String>()
+            {
+                private String last;
+
+                @Override
+                public boolean hasNext()
+                {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public String next()
+                {
+                    this.last = iterator.next();
+                    return this.last;
+                }
+
+                @Override
+                public void remove()
+                {
+                    if (this.last == null)
+                    {
+                        throw new IllegalStateException();
+                    }
+                    RoleList.this.remove(this.last);
+                    this.last = null;
+                }
+            };
+        }
+
+        @Override
+        public boolean add(String id)
+        {
+            return this.owners ? addOwner(id) : addMaster(id);
+        }
+
+        @Override
+        public void add(int index, String id)
+        {
+            if (index < 0 || index > size())
+            {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            add(id);
+        }
+
+        @Override
+        public String set(int index, String id)
+        {
+            synchronized (GuildObject.this)
+            {
+                List<String> ids = new ArrayList<>(current());
+                String previous = ids.set(index, id);
+                replace(ids);
+                return previous;
+            }
+        }
+
+        @Override
+        public String remove(int index)
+        {
+            synchronized (GuildObject.this)
+            {
+                String id = get(index);
+                remove(id);
+                return id;
+            }
+        }
+
+        @Override
+        public boolean remove(Object id)
+        {
+            if (!(id instanceof String))
+            {
+                return false;
+            }
+            return this.owners ? removeOwner((String)id) : removeMaster((String)id);
+        }
+
+        @Override
+        public void clear()
+        {
+            replace(Collections.emptyList());
+        }
+
+        private void replace(List<String> ids)
+        {
+            if (this.owners)
+            {
+                setOwners(ids);
+            }
+            else
+            {
+                setMasters(ids);
+            }
+        }
+    }
+
+    /**
+     * An immutable snapshot of the owners and masters of a guild.
+     * 
+     * @author &#8904
+     */
+    protected static final class Roles
+    {
+        /** The snapshot of a guild without owners and masters. */
+        protected static final Roles EMPTY = new Roles(Collections.emptySet(), Collections.emptySet());
+
+        /** The IDs of the owners. */
+        protected final Set<String> owners;
+
+        /** The IDs of the masters. */
+        protected final Set<String> masters;
+
+        /**
+         * Creates a new snapshot with copies of the given IDs.
+         * 
+         * @param owners
+         *            The IDs of the owners.
+         * @param masters
+         *            The IDs of the masters.
+         */
+        protected Roles(Collection<String> owners, Collection<String> masters)
+        {
+            this.owners = Collections.unmodifiableSet(new LinkedHashSet<>(owners));
+            this.masters = Collections.unmodifiableSet(new LinkedHashSet<>(masters));
         }
-        return false;
     }
 }
\ No newline at end of file
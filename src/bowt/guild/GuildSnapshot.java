@@ -0,0 +1,577 @@
+package bowt.guild;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import bowt.cmnd.Command;
+import bowt.cmnd.CommandOrdinals;
+
+/**
+ * A compact binary snapshot of the state of all {@link GuildObject}s and {@link Command}s.
+ * 
+ * <p>
+ * A snapshot contains the prefixes, owners, masters and permission overrides of every guild and the aliases of every
+ * command. It is meant to be written periodically or at shutdown and to be read at startup, so that the state of a
+ * large number of guilds can be restored without querying the actual data source for every single guild.
+ * </p>
+ * 
+ * <p>
+ * The file is memory-mapped when it is {@link #open(Path) opened}. Guilds are found by a binary search over a sorted
+ * index and their records are only decoded once they are {@link #restore(GuildObject) restored}.
+ * </p>
+ * 
+ * <h1>File layout (version 1)</h1>
+ * 
+ * <pre>
+ * int     magic
+ * int     version
+ * long    creation time in milliseconds
+ * int     guild count
+ * int     command count
+ * int     offset of the command section
+ * 
+ * guild count * (long guild ID, int record offset)   sorted by guild ID
+ * 
+ * guild records:
+ *     string  prefix
+ *     int     owner count,  owner count * long
+ *     int     master count, master count * long
+ *     int     override count, override count * (string command, int permission)
+ * 
+ * command records:
+ *     string  command
+ *     int     alias count, alias count * (long guild ID, string alias)
+ * </pre>
+ * 
+ * <p>
+ * Strings are stored as an int byte length followed by the UTF-8 bytes. A length of -1 represents null.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public class GuildSnapshot
+{
+    /** The magic number at the start of every snapshot file. */
+    public static final int MAGIC = 0x42475353;
+
+    /** The current version of the file layout. */
+    public static final int VERSION = 1;
+
+    /** The size of the fixed header in bytes. */
+    private static final int HEADER_SIZE = 28;
+
+    /** The size of a single index entry in bytes. */
+    private static final int INDEX_ENTRY_SIZE = 12;
+
+    /** The mapped file. */
+    private final ByteBuffer buffer;
+
+    /** The time at which the snapshot was written. */
+    private final long creationTime;
+
+    /** The number of guilds in this snapshot. */
+    private final int guildCount;
+
+    /** Maps the command expressions to the offsets of their records. */
+    private final Map<String, Integer> commandOffsets;
+
+    private GuildSnapshot(ByteBuffer buffer) throws IOException
+    {
+        this.buffer = buffer;
+
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+        {
+            throw new IOException("The file is not a guild snapshot.");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION)
+        {
+            throw new IOException("Unsupported snapshot version " + version + ".");
+        }
+
+        this.creationTime = buffer.getLong(8);
+        this.guildCount = buffer.getInt(16);
+        int commandCount = buffer.getInt(20);
+        int commandStart = buffer.getInt(24);
+        long recordStart = HEADER_SIZE + (long)this.guildCount * INDEX_ENTRY_SIZE;
+        if (this.guildCount < 0 || commandCount < 0 || recordStart > commandStart || commandStart > buffer.limit())
+        {
+            throw new IOException("The snapshot is truncated or corrupt.");
+        }
+        for (int i = 0; i < this.guildCount; i ++ )
+        {
+            int offset = buffer.getInt(HEADER_SIZE + i * INDEX_ENTRY_SIZE + 8);
+            if (offset < recordStart || offset >= commandStart)
+            {
+                throw new IOException("The snapshot is truncated or corrupt.");
+            }
+        }
+
+        ByteBuffer commands = buffer.duplicate();
+        commands.position(commandStart);
+        this.commandOffsets = new HashMap<>();
+        try
+        {
+            for (int i = 0; i < commandCount; i ++ )
+            {
+                int offset = commands.position();
+                String expression = readString(commands);
+                this.commandOffsets.put(expression, offset);
+                int aliasCount = commands.getInt();
+                for (int j = 0; j < aliasCount; j ++ )
+                {
+                    commands.getLong();
+                    readString(commands);
+                }
+            }
+        }
+        catch (BufferUnderflowException | IllegalArgumentException e)
+        {
+            // negative lengths and counts or records which run past the end of the file
+            throw new IOException("The snapshot is truncated or corrupt.", e);
+        }
+    }
+
+    /**
+     * Memory-maps the given snapshot file.
+     * 
+     * @param file
+     *            The snapshot file.
+     * @return The opened snapshot.
+     * @throws IOException
+     *             If the file could not be read or is not a valid snapshot of the current {@link #VERSION}.
+     */
+    public static GuildSnapshot open(Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new GuildSnapshot(buffer);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given guilds and commands to the given file.
+     * 
+     * <p>
+     * The snapshot is written to a temporary file first, which is forced to the disk and then replaces the given file,
+     * so that an existing snapshot is never left half written, even if the system crashes.
+     * </p>
+     * 
+     * @param file
+     *            The file to write to.
+     * @param guilds
+     *            The guilds whichs state should be saved.
+     * @param commands
+     *            The commands whichs aliases should be saved.
+     * @throws IOException
+     *             If the file could not be written.
+     */
+    public static void write(Path file, Collection<GuildObject> guilds, Collection<Command> commands)
+            throws IOException
+    {
+        // taken before the guilds are written, so that every record is at least as recent as the creation time
+        long creationTime = System.currentTimeMillis();
+        List<GuildObject> sorted = new ArrayList<>(guilds);
+        sorted.sort((g1, g2) -> Long.compare(g1.getLongID(), g2.getLongID()));
+
+        ByteArrayOutputStream records = new ByteArrayOutputStream(sorted.size() * 64);
+        DataOutputStream recordOut = new DataOutputStream(records);
+        int[] offsets = new int[sorted.size()];
+        int recordStart = HEADER_SIZE + sorted.size() * INDEX_ENTRY_SIZE;
+
+        for (int i = 0; i < sorted.size(); i ++ )
+        {
+            offsets[i] = recordStart + recordOut.size();
+            writeGuild(recordOut, sorted.get(i));
+        }
+
+        int commandStart = recordStart + recordOut.size();
+        int commandCount = 0;
+        Set<String> written = new HashSet<>();
+        for (Command command : commands)
+        {
+            // commands are identified by their first expression, so commands without one can't be restored
+            if (command.getValidExpressions().isEmpty() || !written.add(command.getValidExpressions().get(0)))
+            {
+                // handlers return commands once for every valid expression
+                continue;
+            }
+            writeString(recordOut, command.getValidExpressions().get(0));
+            Map<String, String> aliases = command.getAliases();
+            List<Map.Entry<String, String>> valid = new ArrayList<>(aliases.size());
+            for (Map.Entry<String, String> alias : aliases.entrySet())
+            {
+                if (isLong(alias.getKey()))
+                {
+                    valid.add(alias);
+                }
+            }
+            recordOut.writeInt(valid.size());
+            for (Map.Entry<String, String> alias : valid)
+            {
+                recordOut.writeLong(Long.parseLong(alias.getKey()));
+                writeString(recordOut, alias.getValue());
+            }
+            commandCount ++ ;
+        }
+        recordOut.flush();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(creationTime);
+            out.writeInt(sorted.size());
+            out.writeInt(commandCount);
+            out.writeInt(commandStart);
+            for (int i = 0; i < sorted.size(); i ++ )
+            {
+                out.writeLong(sorted.get(i).getLongID());
+                out.writeInt(offsets[i]);
+            }
+            records.writeTo(out);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(file);
+    }
+
+    /**
+     * Forces the directory of the given file to the disk, so that a file which has just been moved there stays
+     * after a crash. Does nothing on systems which can't open directories, like Windows.
+     * 
+     * @param file
+     *            The file whichs directory should be synced.
+     */
+    static void syncDirectory(Path file)
+    {
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory == null)
+        {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ))
+        {
+            channel.force(true);
+        }
+        catch (IOException e)
+        {
+            // the move itself is still atomic, it might just not be durable yet
+        }
+    }
+
+    /**
+     * Gets the time at which this snapshot was started to be written. The state of every guild in it is at least as
+     * recent.
+     * 
+     * @return The time in milliseconds since the epoch.
+     */
+    public long getCreationTime()
+    {
+        return this.creationTime;
+    }
+
+    /**
+     * Gets the number of guilds contained in this snapshot.
+     * 
+     * @return The number of guilds.
+     */
+    public int getGuildCount()
+    {
+        return this.guildCount;
+    }
+
+    /**
+     * Checks if this snapshot contains the guild with the given ID.
+     * 
+     * @param guildID
+     *            The long ID of the guild.
+     * @return true if the guild is contained.
+     */
+    public boolean contains(long guildID)
+    {
+        return findRecord(guildID) != -1;
+    }
+
+    /**
+     * Restores the prefix, owners, masters and permission overrides of the given guild from this snapshot.
+     * 
+     * @param guild
+     *            The guild whichs state should be restored.
+     * @return true if the guild was contained in this snapshot.
+     */
+    public boolean restore(GuildObject guild)
+    {
+        int offset = findRecord(guild.getLongID());
+        if (offset == -1)
+        {
+            return false;
+        }
+
+        ByteBuffer record = this.buffer.duplicate();
+        record.position(offset);
+        readGuild(record, guild);
+        return true;
+    }
+
+    /**
+     * Restores the aliases of the given command from this snapshot.
+     * 
+     * @param command
+     *            The command whichs aliases should be restored.
+     * @return true if the command was contained in this snapshot.
+     */
+    public boolean restore(Command command)
+    {
+        if (command.getValidExpressions().isEmpty())
+        {
+            return false;
+        }
+        Integer offset = this.commandOffsets.get(command.getValidExpressions().get(0));
+        if (offset == null)
+        {
+            return false;
+        }
+
+        ByteBuffer record = this.buffer.duplicate();
+        record.position(offset);
+        readString(record);
+
+        int aliasCount = record.getInt();
+        for (int i = 0; i < aliasCount; i ++ )
+        {
+            String guildID = Long.toString(record.getLong());
+            command.addAlias(guildID, readString(record));
+        }
+        return true;
+    }
+
+    /**
+     * Adds the owners and masters of every guild in this snapshot to the given index.
+     * 
+     * @param index
+     *            The index.
+     */
+    public void indexRoles(RoleIndex index)
+    {
+        for (int i = 0; i < this.guildCount; i ++ )
+        {
+            int entry = HEADER_SIZE + i * INDEX_ENTRY_SIZE;
+            ByteBuffer record = this.buffer.duplicate();
+            record.position(this.buffer.getInt(entry + 8));
+            readRoles(record, this.buffer.getLong(entry), index);
+        }
+    }
+
+    /**
+     * Searches the sorted index for the given guild.
+     * 
+     * @param guildID
+     *            The long ID of the guild.
+     * @return The offset of the guilds record or -1 if it is not contained.
+     */
+    private int findRecord(long guildID)
+    {
+        int low = 0;
+        int high = this.guildCount - 1;
+
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int entry = HEADER_SIZE + mid * INDEX_ENTRY_SIZE;
+            long id = this.buffer.getLong(entry);
+
+            if (id < guildID)
+            {
+                low = mid + 1;
+            }
+            else if (id > guildID)
+            {
+                high = mid - 1;
+            }
+            else
+            {
+                return this.buffer.getInt(entry + 8);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads a guild record from the current position of the buffer into the given guild.
+     * 
+     * @param in
+     *            The buffer positioned at the start of the record.
+     * @param guild
+     *            The guild whichs state should be set.
+     */
+    static void readGuild(ByteBuffer in, GuildObject guild)
+    {
+        guild.setPrefix(readString(in));
+        guild.setOwners(readIDs(in));
+        guild.setMasters(readIDs(in));
+
+        int overrideCount = in.getInt();
+        for (int i = 0; i < overrideCount; i ++ )
+        {
+            int ordinal = guild.getCommandOrdinals().getOrdinal(readString(in));
+            guild.setPermissionOverride(ordinal, in.getInt());
+        }
+    }
+
+    /**
+     * Reads the owners and masters of a guild record from the current position of the buffer into the given index.
+     * 
+     * @param in
+     *            The buffer positioned at the start of the record.
+     * @param guildID
+     *            The long ID of the guild.
+     * @param index
+     *            The index to which the owners and masters are added.
+     */
+    static void readRoles(ByteBuffer in, long guildID, RoleIndex index)
+    {
+        readString(in);
+        List<String> owners = readIDs(in);
+        index.set(guildID, owners, readIDs(in));
+    }
+
+    /**
+     * Writes the record of the given guild.
+     * 
+     * @param out
+     *            The stream to write to.
+     * @param guild
+     *            The guild whichs state should be written.
+     * @throws IOException
+     *             If the record could not be written.
+     */
+    static void writeGuild(DataOutputStream out, GuildObject guild) throws IOException
+    {
+        writeString(out, guild.getPrefix());
+        writeIDs(out, guild.getOwners());
+        writeIDs(out, guild.getMasters());
+
+        int[] overrides;
+        CommandOrdinals ordinals;
+        synchronized (guild)
+        {
+            // both change together when the guild is registered to a bot
+            overrides = guild.getPermissionOverrides();
+            ordinals = guild.getCommandOrdinals();
+        }
+        int count = 0;
+        for (int override : overrides)
+        {
+            if (override != GuildObject.NO_OVERRIDE)
+            {
+                count ++ ;
+            }
+        }
+        out.writeInt(count);
+        for (int ordinal = 0; ordinal < overrides.length; ordinal ++ )
+        {
+            if (overrides[ordinal] != GuildObject.NO_OVERRIDE)
+            {
+                writeString(out, ordinals.getExpression(ordinal));
+                out.writeInt(overrides[ordinal]);
+            }
+        }
+    }
+
+    private static void writeIDs(DataOutputStream out, List<String> ids) throws IOException
+    {
+        List<Long> valid = new ArrayList<>(ids.size());
+        for (String id : ids)
+        {
+            if (isLong(id))
+            {
+                valid.add(Long.parseLong(id));
+            }
+        }
+        out.writeInt(valid.size());
+        for (long id : valid)
+        {
+            out.writeLong(id);
+        }
+    }
+
+    private static List<String> readIDs(ByteBuffer in)
+    {
+        int count = in.getInt();
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i ++ )
+        {
+            ids.add(Long.toString(in.getLong()));
+        }
+        return ids;
+    }
+
+    static void writeString(DataOutputStream out, String text) throws IOException
+    {
+        if (text == null)
+        {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in)
+    {
+        int length = in.getInt();
+        if (length == -1)
+        {
+            return null;
+        }
+        if (length < 0 || length > in.remaining())
+        {
+            // a corrupt length must not allocate a huge array
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isLong(String id)
+    {
+        try
+        {
+            Long.parseLong(id);
+            return true;
+        }
+        catch (NumberFormatException e)
+        {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package bowt.guild;
+
+/**
+ * A store which persists the state of {@link GuildObject}s that are evicted from memory, so that it can be restored
+ * once the guild is used again.
+ * 
+ * @author &#8904
+ */
+public interface GuildStore
+{
+    /**
+     * Saves the prefix, owners, masters and permission overrides of the given guild.
+     * 
+     * @param guild
+     *            The guild that is about to be evicted.
+     * @return true if the state was saved, false if the guild has to be kept in memory.
+     */
+    public boolean save(GuildObject guild);
+
+    /**
+     * Restores the previously saved state of the given guild.
+     * 
+     * @param guild
+     *            The newly created guild whichs state should be restored.
+     * @return true if a saved state was found and restored, false if the guild has never been saved.
+     */
+    public boolean load(GuildObject guild);
+
+    /**
+     * Gets the time at which the state of the given guild was last saved.
+     * 
+     * <p>
+     * This is compared with the creation time of a {@link GuildSnapshot}, since a guild that was loaded again after
+     * it had been evicted is contained in later snapshots with a more recent state.
+     * </p>
+     * 
+     * @param guildID
+     *            The long ID of the guild.
+     * @return The time in milliseconds since the epoch or -1 if the guild has never been saved.
+     */
+    public long getSaveTime(long guildID);
+
+    /**
+     * Adds the owners and masters of every saved guild to the given index, so that they are known before the guilds
+     * are loaded again.
+     * 
+     * <p>
+     * Does nothing by default. The owners and masters of guilds which are only saved in such a store are then unknown
+     * to the {@link RoleIndex} until the guilds are loaded again.
+     * </p>
+     * 
+     * @param index
+     *            The index.
+     */
+    public default void indexRoles(RoleIndex index)
+    {
+    }
+
+    /**
+     * Forces all saved states to disk. Does nothing by default.
+     */
+    public default void force()
+    {
+    }
+}
@@ -0,0 +1,455 @@
+package bowt.guild;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import bowt.bot.Bot;
+import bowt.cmnd.Command;
+
+/**
+ * A {@link GuildStore} which keeps the state of evicted guilds off-heap in a memory-mapped file of fixed-size slots.
+ * 
+ * <p>
+ * Every slot holds the prefix, owners, masters and permission overrides of one guild in the record layout of a
+ * {@link GuildSnapshot}, followed by the aliases of the given commands on that guild. The slots form an open
+ * addressing hash table keyed by the guild ID, so the store does not need any index on the heap.
+ * </p>
+ * 
+ * <p>
+ * Every record carries a checksum. A record which was torn by a crash while it was written is detected when it is
+ * loaded, and the guild is then loaded from its other sources instead.
+ * </p>
+ * 
+ * <p>
+ * Combined with {@link Bot#startGuildEviction(long, int, GuildStore)} only the recently used guilds are kept on the
+ * heap, which makes the heap usage and garbage collection work independent of the total number of guilds.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public class MappedGuildStore implements GuildStore
+{
+    /** The default size of a single slot in bytes. */
+    public static final int DEFAULT_SLOT_SIZE = 512;
+
+    /** Identifies a guild store file. */
+    private static final int MAGIC = 0x42475346;
+
+    /** The version of the slot layout. */
+    private static final int VERSION = 2;
+
+    /** The size of the file header which holds the magic number, the slot size, the slot count and the version. */
+    private static final int HEADER_SIZE = 16;
+
+    /** The size of the slot header which holds the guild ID, the save time, the record length and its checksum. */
+    private static final int SLOT_HEADER_SIZE = 24;
+
+    /** Marks a slot that has never been used. Discord IDs are never 0. */
+    private static final long EMPTY = 0;
+
+    /** The channel of the store file. */
+    private final FileChannel channel;
+
+    /** The mapped parts of the store file, each holding {@link #slotsPerSegment} slots. */
+    private final MappedByteBuffer[] segments;
+
+    /** The size of a single slot in bytes. */
+    private final int slotSize;
+
+    /** The total number of slots. */
+    private final int slotCount;
+
+    /** The number of slots that are mapped by a single segment. */
+    private final int slotsPerSegment;
+
+    /** The number of slots that are in use. */
+    private int usedSlots;
+
+    /** The commands whichs aliases are moved into the store, mapped by their first valid expression. */
+    private final Map<String, Command> commands;
+
+    /**
+     * Opens or creates the given store file with the {@link #DEFAULT_SLOT_SIZE}. Aliases are not stored.
+     * 
+     * @param file
+     *            The store file.
+     * @param capacity
+     *            The maximum number of guilds that can be stored.
+     * @throws IOException
+     *             If the file could not be opened or was created with a different layout.
+     */
+    public MappedGuildStore(Path file, int capacity) throws IOException
+    {
+        this(file, capacity, DEFAULT_SLOT_SIZE, Collections.emptyList());
+    }
+
+    /**
+     * Opens or creates the given store file.
+     * 
+     * @param file
+     *            The store file.
+     * @param capacity
+     *            The maximum number of guilds that can be stored.
+     * @param slotSize
+     *            The size of a single slot in bytes. The state of a guild including its aliases has to fit into a
+     *            slot, otherwise the guild is kept in memory.
+     * @param commands
+     *            The commands whichs aliases should be moved into the store together with the guild state.
+     * @throws IOException
+     *             If the file could not be opened or was created with a different layout.
+     */
+    public MappedGuildStore(Path file, int capacity, int slotSize, Collection<Command> commands) throws IOException
+    {
+        if (capacity < 1 || slotSize <= SLOT_HEADER_SIZE)
+        {
+            throw new IllegalArgumentException("Invalid capacity or slot size.");
+        }
+
+        // keep a quarter of the slots free so that probe sequences stay short
+        this.slotCount = (int)Math.min(Integer.MAX_VALUE, capacity + (long)capacity / 3 + 1);
+        this.slotSize = slotSize;
+        this.slotsPerSegment = Integer.MAX_VALUE / slotSize;
+        this.commands = new HashMap<>();
+        for (Command command : commands)
+        {
+            // aliases are stored by the first expression, so commands without one have none that could be moved
+            if (!command.getValidExpressions().isEmpty())
+            {
+                this.commands.put(command.getValidExpressions().get(0), command);
+            }
+        }
+
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try
+        {
+            readHeader();
+        }
+        catch (IOException e)
+        {
+            this.channel.close();
+            throw e;
+        }
+
+        int segmentCount = (this.slotCount + this.slotsPerSegment - 1) / this.slotsPerSegment;
+        this.segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i ++ )
+        {
+            int slots = Math.min(this.slotsPerSegment, this.slotCount - i * this.slotsPerSegment);
+            this.segments[i] = this.channel.map(MapMode.READ_WRITE,
+                    HEADER_SIZE + (long)i * this.slotsPerSegment * slotSize,
+                    (long)slots * slotSize);
+        }
+
+        for (int slot = 0; slot < this.slotCount; slot ++ )
+        {
+            if (getSlotID(slot) != EMPTY)
+            {
+                this.usedSlots ++ ;
+            }
+        }
+    }
+
+    /**
+     * @see bowt.guild.GuildStore#save(bowt.guild.GuildObject)
+     */
+    @Override
+    public synchronized boolean save(GuildObject guild)
+    {
+        long id = guild.getLongID();
+        String guildID = guild.getStringID();
+        List<Map.Entry<String, Command>> aliased = new ArrayList<>();
+        byte[] record;
+
+        try
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(this.slotSize);
+            DataOutputStream out = new DataOutputStream(bytes);
+            GuildSnapshot.writeGuild(out, guild);
+
+            for (Map.Entry<String, Command> command : this.commands.entrySet())
+            {
+                if (command.getValue().getAlias(guildID) != null)
+                {
+                    aliased.add(command);
+                }
+            }
+            out.writeInt(aliased.size());
+            for (Map.Entry<String, Command> command : aliased)
+            {
+                GuildSnapshot.writeString(out, command.getKey());
+                GuildSnapshot.writeString(out, command.getValue().getAlias(guildID));
+            }
+            record = bytes.toByteArray();
+        }
+        catch (IOException e)
+        {
+            Bot.errorLog.print(this, e);
+            return false;
+        }
+
+        if (record.length > this.slotSize - SLOT_HEADER_SIZE)
+        {
+            Bot.errorLog.print(this, "The state of guild " + guildID + " does not fit into a slot of " + this.slotSize
+                    + " bytes.");
+            return false;
+        }
+
+        int slot = findSlot(id);
+        if (slot < 0)
+        {
+            Bot.errorLog.print(this, "The guild store is full.");
+            return false;
+        }
+        if (getSlotID(slot) == EMPTY)
+        {
+            this.usedSlots ++ ;
+        }
+
+        CRC32 checksum = new CRC32();
+        checksum.update(record);
+        ByteBuffer buffer = getSlot(slot);
+        int start = buffer.position();
+        buffer.position(start + 8);
+        buffer.putLong(System.currentTimeMillis());
+        buffer.putInt(record.length);
+        buffer.putInt((int)checksum.getValue());
+        buffer.put(record);
+        // written last, so that a new slot only claims the guild once the record is complete
+        buffer.putLong(start, id);
+
+        for (Map.Entry<String, Command> command : aliased)
+        {
+            command.getValue().unloadAlias(guildID);
+        }
+        return true;
+    }
+
+    /**
+     * @see bowt.guild.GuildStore#load(bowt.guild.GuildObject)
+     */
+    @Override
+    public synchronized boolean load(GuildObject guild)
+    {
+        int slot = findSlot(guild.getLongID());
+        if (slot < 0 || getSlotID(slot) == EMPTY)
+        {
+            return false;
+        }
+
+        ByteBuffer buffer = readRecord(slot);
+        if (buffer == null)
+        {
+            Bot.errorLog.print(this, "The stored state of guild " + guild.getStringID() + " is torn.");
+            return false;
+        }
+        try
+        {
+            GuildSnapshot.readGuild(buffer, guild);
+
+            int aliasCount = buffer.getInt();
+            for (int i = 0; i < aliasCount; i ++ )
+            {
+                Command command = this.commands.get(GuildSnapshot.readString(buffer));
+                String alias = GuildSnapshot.readString(buffer);
+                if (command != null)
+                {
+                    command.loadAlias(guild.getStringID(), alias);
+                }
+            }
+            return true;
+        }
+        catch (BufferUnderflowException | IllegalArgumentException e)
+        {
+            Bot.errorLog.print(this, "Failed to load guild " + guild.getStringID() + ".");
+            Bot.errorLog.print(this, e);
+            return false;
+        }
+    }
+
+    /**
+     * @see bowt.guild.GuildStore#getSaveTime(long)
+     */
+    @Override
+    public synchronized long getSaveTime(long guildID)
+    {
+        int slot = findSlot(guildID);
+        if (slot < 0 || getSlotID(slot) == EMPTY)
+        {
+            return -1;
+        }
+        ByteBuffer buffer = getSlot(slot);
+        return buffer.getLong(buffer.position() + 8);
+    }
+
+    /**
+     * @see bowt.guild.GuildStore#indexRoles(bowt.guild.RoleIndex)
+     */
+    @Override
+    public synchronized void indexRoles(RoleIndex index)
+    {
+        for (int slot = 0; slot < this.slotCount; slot ++ )
+        {
+            long id = getSlotID(slot);
+            if (id == EMPTY)
+            {
+                continue;
+            }
+            ByteBuffer buffer = readRecord(slot);
+            if (buffer == null)
+            {
+                continue;
+            }
+            try
+            {
+                GuildSnapshot.readRoles(buffer, id, index);
+            }
+            catch (BufferUnderflowException | IllegalArgumentException e)
+            {
+                // a corrupt slot is skipped, its guild is indexed once it is loaded again
+                Bot.errorLog.print(this, "Failed to index guild " + id + ".");
+                Bot.errorLog.print(this, e);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of guilds that are currently stored.
+     * 
+     * @return The number of used slots.
+     */
+    public synchronized int size()
+    {
+        return this.usedSlots;
+    }
+
+    /**
+     * Forces all changes to the store file to disk.
+     * 
+     * @see bowt.guild.GuildStore#force()
+     */
+    @Override
+    public synchronized void force()
+    {
+        for (MappedByteBuffer segment : this.segments)
+        {
+            segment.force();
+        }
+    }
+
+    /**
+     * Forces all changes to disk and closes the store file.
+     * 
+     * @throws IOException
+     *             If the file could not be closed.
+     */
+    public synchronized void close() throws IOException
+    {
+        force();
+        this.channel.close();
+    }
+
+    /**
+     * Finds the slot which holds the given guild or the empty slot in which it should be stored.
+     * 
+     * @param id
+     *            The guild ID.
+     * @return The slot or -1 if the guild is not stored and no slot is free.
+     */
+    private int findSlot(long id)
+    {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        int slot = (int)((hash ^ (hash >>> 32)) & 0x7FFFFFFF) % this.slotCount;
+        for (int i = 0; i < this.slotCount; i ++ )
+        {
+            long slotID = getSlotID(slot);
+            if (slotID == id || slotID == EMPTY)
+            {
+                return slot;
+            }
+            slot = slot + 1 == this.slotCount ? 0 : slot + 1;
+        }
+        return -1;
+    }
+
+    private long getSlotID(int slot)
+    {
+        return this.segments[slot / this.slotsPerSegment].getLong((slot % this.slotsPerSegment) * this.slotSize);
+    }
+
+    private ByteBuffer getSlot(int slot)
+    {
+        ByteBuffer buffer = this.segments[slot / this.slotsPerSegment].duplicate();
+        int offset = (slot % this.slotsPerSegment) * this.slotSize;
+        buffer.limit(offset + this.slotSize);
+        buffer.position(offset);
+        return buffer;
+    }
+
+    /**
+     * Reads the record of the given used slot.
+     * 
+     * @param slot
+     *            The slot.
+     * @return A buffer which holds exactly the record, or null if the record is torn.
+     */
+    private ByteBuffer readRecord(int slot)
+    {
+        ByteBuffer buffer = getSlot(slot);
+        buffer.position(buffer.position() + 16);
+        int length = buffer.getInt();
+        int expected = buffer.getInt();
+        if (length < 0 || length > buffer.remaining())
+        {
+            return null;
+        }
+        byte[] record = new byte[length];
+        buffer.get(record);
+        CRC32 checksum = new CRC32();
+        checksum.update(record);
+        return (int)checksum.getValue() == expected ? ByteBuffer.wrap(record) : null;
+    }
+
+    private void readHeader() throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (this.channel.size() == 0)
+        {
+            header.putInt(MAGIC);
+            header.putInt(this.slotSize);
+            header.putInt(this.slotCount);
+            header.putInt(VERSION);
+            header.flip();
+            this.channel.write(header, 0);
+            return;
+        }
+
+        this.channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC)
+        {
+            throw new IOException("The file is not a guild store.");
+        }
+        if (header.getInt() != this.slotSize || header.getInt() != this.slotCount || header.getInt() != VERSION)
+        {
+            throw new IOException("The guild store was created with a different slot size, capacity or version.");
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package bowt.guild;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An interned command prefix.
+ * 
+ * <p>
+ * Most guilds use the default prefix or one of a few common ones, so all guilds with the same prefix share a single
+ * instance that is obtained via {@link #of(String)}. Two prefixes are equal exactly if they are the same instance. The
+ * lower case form is computed once, so that matching a prefix against a message does not allocate.
+ * </p>
+ * 
+ * <p>
+ * The interned instances are only weakly referenced, so a prefix which is no longer used by any guild, for example
+ * because the guilds changed it or were evicted, is removed again and prefixes set by users can't fill up the heap.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public final class Prefix
+{
+    /** Contains the single instance of every prefix that is in use. */
+    private static final Map<String, Entry> prefixes = new ConcurrentHashMap<>();
+
+    /** Receives the entries of the prefixes which are no longer used, so that they can be removed. */
+    private static final ReferenceQueue<Prefix> unused = new ReferenceQueue<>();
+
+    /** The prefix as it was set. */
+    private final String value;
+
+    /** The lower case characters of the prefix. */
+    private final char[] lowerCase;
+
+    /** The trie which only contains this prefix. It is shared by all guilds that do not use any other prefixes. */
+    private final PrefixTrie trie;
+
+    private Prefix(String value)
+    {
+        this.value = value;
+        this.lowerCase = value.toLowerCase().toCharArray();
+        this.trie = PrefixTrie.of(value);
+    }
+
+    /**
+     * Gets the shared instance of the given prefix.
+     * 
+     * @param value
+     *            The prefix.
+     * @return The interned prefix or null if the given value is null.
+     */
+    public static Prefix of(String value)
+    {
+        if (value == null)
+        {
+            return null;
+        }
+        removeUnused();
+        while (true)
+        {
+            Entry entry = prefixes.get(value);
+            Prefix prefix = entry != null ? entry.get() : null;
+            if (prefix != null)
+            {
+                return prefix;
+            }
+            Prefix created = new Prefix(value);
+            Entry replacement = new Entry(created);
+            // another thread might have interned the same prefix in the meantime, its instance is used then
+            if (entry == null ? prefixes.putIfAbsent(value, replacement) == null
+                    : prefixes.replace(value, entry, replacement))
+            {
+                return created;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of distinct prefixes that are interned. Prefixes which are no longer used are only removed once
+     * they have been garbage collected.
+     * 
+     * @return The number of prefixes.
+     */
+    public static int getInternedCount()
+    {
+        removeUnused();
+        return prefixes.size();
+    }
+
+    /**
+     * Removes the entries of the prefixes which have been garbage collected.
+     */
+    private static void removeUnused()
+    {
+        Entry entry;
+        while ((entry = (Entry)unused.poll()) != null)
+        {
+            prefixes.remove(entry.value, entry);
+        }
+    }
+
+    /**
+     * Gets the prefix as it was set.
+     * 
+     * @return The prefix. All guilds which share this instance get the same String instance.
+     */
+    public String getValue()
+    {
+        return this.value;
+    }
+
+    /**
+     * Gets the number of characters of this prefix.
+     * 
+     * @return The length.
+     */
+    public int length()
+    {
+        return this.lowerCase.length;
+    }
+
+    /**
+     * Gets the shared {@link PrefixTrie} which only contains this prefix.
+     * 
+     * @return The trie.
+     */
+    public PrefixTrie getTrie()
+    {
+        return this.trie;
+    }
+
+    /**
+     * Checks case insensitively whether the given text contains this prefix at the given offset.
+     * 
+     * @param text
+     *            The text to check.
+     * @param offset
+     *            The index at which the prefix is expected.
+     * @return true if the prefix was found at the offset.
+     */
+    public boolean matches(String text, int offset)
+    {
+        if (offset < 0 || text.length() - offset < this.lowerCase.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < this.lowerCase.length; i ++ )
+        {
+            char c = text.charAt(offset + i);
+            if (c != this.lowerCase[i] && Character.toLowerCase(c) != this.lowerCase[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks case insensitively whether the given text starts with this prefix.
+     * 
+     * @param text
+     *            The text to check.
+     * @return true if the text starts with this prefix.
+     */
+    public boolean matches(String text)
+    {
+        return matches(text, 0);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return this.value;
+    }
+
+    /**
+     * A weak reference to an interned prefix, which remembers its value so that it can be removed from
+     * {@link Prefix#prefixes} once the prefix has been collected.
+     */
+    private static final class Entry extends WeakReference<Prefix>
+    {
+        /** The value of the prefix. */
+        private final String value;
+
+        private Entry(Prefix prefix)
+        {
+            super(prefix, unused);
+            this.value = prefix.value;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package bowt.guild;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable, case insensitive trie of command prefixes.
+ * 
+ * <p>
+ * {@link #match(String)} finds the longest prefix at the start of a text in a single pass over its characters without
+ * allocating, regardless of how many prefixes the trie contains.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public final class PrefixTrie
+{
+    /** A trie without any prefixes. */
+    public static final PrefixTrie EMPTY = new PrefixTrie(Collections.emptyList());
+
+    /** The root node which represents the empty string. */
+    private final Node root;
+
+    /** The prefixes contained in this trie. */
+    private final List<String> prefixes;
+
+    private PrefixTrie(Collection<String> prefixes)
+    {
+        Builder root = new Builder();
+        List<String> contained = new ArrayList<>(prefixes.size());
+        for (String prefix : prefixes)
+        {
+            if (prefix == null || contained.contains(prefix))
+            {
+                continue;
+            }
+            contained.add(prefix);
+            Builder node = root;
+            String lowerCase = prefix.toLowerCase();
+            for (int i = 0; i < lowerCase.length(); i ++ )
+            {
+                node = node.children.computeIfAbsent(lowerCase.charAt(i), c -> new Builder());
+            }
+            node.terminal = true;
+        }
+        this.root = root.build();
+        this.prefixes = Collections.unmodifiableList(contained);
+    }
+
+    /**
+     * Creates a new trie which contains the given prefixes.
+     * 
+     * @param prefixes
+     *            The prefixes. Null values and duplicates are ignored.
+     * @return The trie.
+     */
+    public static PrefixTrie of(Collection<String> prefixes)
+    {
+        return new PrefixTrie(prefixes);
+    }
+
+    /**
+     * Creates a new trie which contains the given prefixes.
+     * 
+     * @param prefixes
+     *            The prefixes. Null values and duplicates are ignored.
+     * @return The trie.
+     */
+    public static PrefixTrie of(String... prefixes)
+    {
+        return new PrefixTrie(Arrays.asList(prefixes));
+    }
+
+    /**
+     * Finds the longest prefix of this trie at the start of the given text, ignoring case.
+     * 
+     * @param text
+     *            The text, usually the content of a message.
+     * @return The length of the longest matching prefix or -1 if the text does not start with any prefix.
+     */
+    public int match(String text)
+    {
+        Node node = this.root;
+        int longest = node.terminal ? 0 : -1;
+        int length = text.length();
+        for (int i = 0; i < length; i ++ )
+        {
+            node = node.getChild(Character.toLowerCase(text.charAt(i)));
+            if (node == null)
+            {
+                break;
+            }
+            if (node.terminal)
+            {
+                longest = i + 1;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Gets the prefixes of this trie.
+     * 
+     * @return An unmodifiable list of the prefixes in the order in which they were given.
+     */
+    public List<String> getPrefixes()
+    {
+        return this.prefixes;
+    }
+
+    /**
+     * A node of the trie whichs children are kept in arrays sorted by their character.
+     */
+    private static final class Node
+    {
+        private final char[] keys;
+        private final Node[] children;
+        private final boolean terminal;
+
+        private Node(char[] keys, Node[] children, boolean terminal)
+        {
+            this.keys = keys;
+            this.children = children;
+            this.terminal = terminal;
+        }
+
+        private Node getChild(char c)
+        {
+            if (this.keys.length == 1)
+            {
+                return this.keys[0] == c ? this.children[0] : null;
+            }
+            int index = Arrays.binarySearch(this.keys, c);
+            return index >= 0 ? this.children[index] : null;
+        }
+    }
+
+    /**
+     * A mutable node which is used while the trie is built.
+     */
+    private static final class Builder
+    {
+        private final Map<Character, Builder> children = new TreeMap<>();
+        private boolean terminal;
+
+        private Node build()
+        {
+            char[] keys = new char[this.children.size()];
+            Node[] nodes = new Node[keys.length];
+            int i = 0;
+            for (Map.Entry<Character, Builder> child : this.children.entrySet())
+            {
+                keys[i] = child.getKey();
+                nodes[i ++ ] = child.getValue().build();
+            }
+            return new Node(keys, nodes, this.terminal);
+        }
+    }
+}
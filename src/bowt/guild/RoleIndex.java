@@ -0,0 +1,170 @@
+package bowt.guild;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Indexes the owners and masters of all guilds of a bot, including the guilds which are currently not in memory.
+ * 
+ * <p>
+ * Every {@link GuildObject} which is registered to the index reports each change of its owners and masters. The
+ * entries of a guild are kept when it is evicted, and the guilds which have not been loaded yet can be added from a
+ * {@link GuildSnapshot} or a {@link GuildStore}. This answers whether a user is an owner or master on any guild
+ * without loading every guild.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public class RoleIndex
+{
+    /** The owners of all guilds. */
+    private final Entries owners = new Entries();
+
+    /** The masters of all guilds. */
+    private final Entries masters = new Entries();
+
+    /**
+     * Replaces the owners and masters of the given guild.
+     * 
+     * @param guildID
+     *            The long ID of the guild.
+     * @param owners
+     *            The IDs of the owners.
+     * @param masters
+     *            The IDs of the masters.
+     */
+    public void set(long guildID, Collection<String> owners, Collection<String> masters)
+    {
+        this.owners.set(guildID, owners);
+        this.masters.set(guildID, masters);
+    }
+
+    /**
+     * Removes the owners and masters of the given guild, for example because the bot has left it.
+     * 
+     * @param guildID
+     *            The long ID of the guild.
+     */
+    public void remove(long guildID)
+    {
+        this.owners.remove(guildID);
+        this.masters.remove(guildID);
+    }
+
+    /**
+     * Checks if the user with the given ID is an owner on any guild.
+     * 
+     * @param userID
+     *            The long ID of the user.
+     * @return true if the user is an owner.
+     */
+    public boolean isOwner(long userID)
+    {
+        return this.owners.contains(userID);
+    }
+
+    /**
+     * Checks if the user with the given ID is a master on any guild.
+     * 
+     * @param userID
+     *            The long ID of the user.
+     * @return true if the user is a master.
+     */
+    public boolean isMaster(long userID)
+    {
+        return this.masters.contains(userID);
+    }
+
+    /**
+     * Gets the number of owners of all guilds. A user who owns several guilds is counted once for every guild.
+     * 
+     * @return The number of owners.
+     */
+    public int getOwnerCount()
+    {
+        return this.owners.size();
+    }
+
+    /**
+     * Gets the number of masters of all guilds. A user who is a master on several guilds is counted once for every
+     * guild.
+     * 
+     * @return The number of masters.
+     */
+    public int getMasterCount()
+    {
+        return this.masters.size();
+    }
+
+    /**
+     * The users with one role, mapped both by guild and by user.
+     */
+    private static final class Entries
+    {
+        /** The IDs of the users of each guild which has any. */
+        private final Map<Long, long[]> byGuild = new HashMap<>();
+
+        /** The number of guilds on which each user has the role. */
+        private final Map<Long, Integer> byUser = new HashMap<>();
+
+        /** The number of users of all guilds. */
+        private int size;
+
+        private synchronized void set(long guildID, Collection<String> ids)
+        {
+            remove(guildID);
+            Set<Long> users = new LinkedHashSet<>();
+            for (String id : ids)
+            {
+                try
+                {
+                    users.add(Long.parseLong(id));
+                }
+                catch (NumberFormatException e)
+                {
+                    // only valid user IDs can match a user
+                }
+            }
+            if (users.isEmpty())
+            {
+                return;
+            }
+            long[] array = new long[users.size()];
+            int i = 0;
+            for (long user : users)
+            {
+                array[i ++ ] = user;
+                this.byUser.merge(user, 1, Integer::sum);
+            }
+            this.byGuild.put(guildID, array);
+            this.size += array.length;
+        }
+
+        private synchronized void remove(long guildID)
+        {
+            long[] users = this.byGuild.remove(guildID);
+            if (users == null)
+            {
+                return;
+            }
+            for (long user : users)
+            {
+                this.byUser.computeIfPresent(user, (id, count) -> count == 1 ? null : count - 1);
+            }
+            this.size -= users.length;
+        }
+
+        private synchronized boolean contains(long userID)
+        {
+            return this.byUser.containsKey(userID);
+        }
+
+        private synchronized int size()
+        {
+            return this.size;
+        }
+    }
+}
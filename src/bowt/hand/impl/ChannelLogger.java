@@ -13,6 +13,7 @@ import sx.blah.discord.handle.obj.IChannel;
 import sx.blah.discord.handle.obj.IMessage;
 import bowt.bot.Bot;
 import bowt.log.Logger;
+import bowt.send.Priority;
 import bowt.thread.Threads;
 
 /**
@@ -230,7 +231,8 @@ public class ChannelLogger
      * and will distribute the log lines onto multiple messages if necessary. 
      * </p>
      * <p>
-     * After sending the messages, the logfile will be cleared to ensure that no line will be sent twice.
+     * After queuing the messages, the logfile will be cleared to ensure that no line will be sent twice.
+     * The messages are sent in the {@link Priority#BACKGROUND background} lane.
      * </p>
      */
     public void send()
@@ -266,7 +268,13 @@ public class ChannelLogger
         }
         for (StringBuilder sb : builders)
         {
-            this.bot.sendPlainMessage("```"+sb.toString()+"```", this.logChannel);
+            // background lane, so that log dumps don't delay replies to users
+            this.bot.sendPlainMessageAsync("```"+sb.toString()+"```", this.logChannel, false, Priority.BACKGROUND)
+                    .exceptionally(e ->
+                    {
+                        Bot.errorLog.print(this, e);
+                        return null;
+                    });
         }
         clearFile();
     }
@@ -11,7 +11,6 @@ import bowt.cmnd.Command;
 import bowt.evnt.impl.CommandEvent;
 import bowt.guild.GuildObject;
 import bowt.hand.intf.CommandHandler;
-import bowt.util.perm.UserPermissions;
 
 /**
  * A default {@link CommandHandler} implementation which is meant for commands in normal guild channels.
@@ -73,10 +72,7 @@ public class GuildCommandHandler implements CommandHandler
      */
     public CommandHandler addCommand(Command command)
     {
-        for (String expression : command.getValidExpressions())
-        {
-            this.commands.put(expression, command);
-        }
+        registerExpressions(command);
 
         if (this.aliasLoader != null)
         {
@@ -86,6 +82,20 @@ public class GuildCommandHandler implements CommandHandler
         return this;
     }
 
+    /**
+     * Maps all valid expressions of the given command to it.
+     * 
+     * @param command
+     *            The command to register.
+     */
+    protected void registerExpressions(Command command)
+    {
+        for (String expression : command.getValidExpressions())
+        {
+            this.commands.put(expression, command);
+        }
+    }
+
     public void setAliasLoader(AliasLoader loader)
     {
         this.aliasLoader = loader;
@@ -121,6 +131,10 @@ public class GuildCommandHandler implements CommandHandler
     /**
      * Sets the registered {@link Command}s for this instance.
      * 
+     * <p>
+     * The aliases of all commands are loaded with a single call to {@link AliasLoader#loadAll(java.util.Collection)}.
+     * </p>
+     * 
      * @param commands
      *            The commands to be set.
      */
@@ -128,7 +142,12 @@ public class GuildCommandHandler implements CommandHandler
     {
         for (Command command : commands)
         {
-            addCommand(command);
+            registerExpressions(command);
+        }
+
+        if (this.aliasLoader != null)
+        {
+            this.aliasLoader.loadAll(commands);
         }
     }
 
@@ -149,9 +168,7 @@ public class GuildCommandHandler implements CommandHandler
         }
 
         if (command != null
-                && command.isValidPermission(
-                        UserPermissions.getPermissionLevel(event.getMessage().getAuthor(), event.getGuildObject()),
-                        event.getGuildObject())
+                && command.isValidPermission(event.getAuthorPermissionLevel(), event.getGuildObject())
                 && !command.isOnCooldown(event.getGuildObject()))
         {
 
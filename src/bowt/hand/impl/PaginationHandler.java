@@ -0,0 +1,235 @@
+package bowt.hand.impl;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import sx.blah.discord.api.events.IListener;
+import sx.blah.discord.handle.impl.events.guild.channel.message.reaction.ReactionAddEvent;
+import sx.blah.discord.handle.impl.obj.ReactionEmoji;
+import sx.blah.discord.handle.obj.IMessage;
+import sx.blah.discord.handle.obj.IUser;
+import bowt.bot.Bot;
+import bowt.send.PagedMessage;
+import bowt.send.Priority;
+import bowt.thread.Threads;
+
+/**
+ * Turns the pages of {@link PagedMessage}s when users react to them.
+ * 
+ * <p>
+ * A reaction with {@link #PREVIOUS} or {@link #NEXT} on a registered message renders the neighbouring page and edits
+ * the message to show it. The reaction of the user is removed again, so the same arrow can be used to turn the next
+ * page. Messages whose pages have not been turned for the {@link #setTimeToLive(long) time to live} are forgotten, so
+ * only recently used messages are kept in memory.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public class PaginationHandler implements IListener<ReactionAddEvent>
+{
+    /** The reaction which turns to the previous page. */
+    public static final String PREVIOUS = "\u25C0";
+
+    /** The reaction which turns to the next page. */
+    public static final String NEXT = "\u25B6";
+
+    /** The default time in milliseconds after which an unused message is forgotten. */
+    public static final long DEFAULT_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(10);
+
+    /** The bot whose messages are paged. */
+    protected Bot bot;
+
+    /** The paged messages mapped to the IDs of their messages. */
+    protected Map<Long, PagedMessage> messages;
+
+    /** The time in milliseconds after which an unused message is forgotten. */
+    private volatile long timeToLive = DEFAULT_TIME_TO_LIVE;
+
+    /** The task which periodically forgets unused messages. */
+    private ScheduledFuture<?> future;
+
+    /**
+     * Creates a new instance for the given {@link Bot}.
+     * 
+     * @param bot
+     *            The bot whose messages are paged.
+     */
+    public PaginationHandler(Bot bot)
+    {
+        this.bot = bot;
+        this.messages = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Sets the time after which a message whose pages have not been turned is forgotten. Later reactions on it are
+     * ignored.
+     * 
+     * @param timeToLive
+     *            The time in milliseconds.
+     */
+    public void setTimeToLive(long timeToLive)
+    {
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Gets the time after which a message whose pages have not been turned is forgotten.
+     * 
+     * @return The time in milliseconds.
+     */
+    public long getTimeToLive()
+    {
+        return this.timeToLive;
+    }
+
+    /**
+     * Registers the given message, so that reactions on it turn its pages.
+     * 
+     * @param message
+     *            The paged message.
+     */
+    public void add(PagedMessage message)
+    {
+        this.messages.put(message.getMessage().getLongID(), message);
+    }
+
+    /**
+     * Forgets the given message, so that reactions on it are ignored.
+     * 
+     * @param messageID
+     *            The ID of the message.
+     * @return The paged message or null if it was not registered.
+     */
+    public PagedMessage remove(long messageID)
+    {
+        return this.messages.remove(messageID);
+    }
+
+    /**
+     * Gets the number of registered messages.
+     * 
+     * @return The number of messages.
+     */
+    public int getMessageCount()
+    {
+        return this.messages.size();
+    }
+
+    /**
+     * Turns the page of the message that was reacted to if the reaction is one of the arrows.
+     * 
+     * @see sx.blah.discord.api.events.IListener#handle(sx.blah.discord.api.events.Event)
+     */
+    @Override
+    public void handle(ReactionAddEvent event)
+    {
+        PagedMessage paged = this.messages.get(event.getMessageID());
+        if (paged == null)
+        {
+            return;
+        }
+        if (isExpired(paged, System.currentTimeMillis()))
+        {
+            this.messages.remove(event.getMessageID(), paged);
+            return;
+        }
+        IUser user = event.getUser();
+        if (user == null || user.isBot())
+        {
+            // also ignores the arrows which the bot adds itself
+            return;
+        }
+        ReactionEmoji emoji = event.getReaction().getEmoji();
+        // clients may send the arrows with the emoji variation selector
+        String name = emoji.getName().replace("\uFE0F", "");
+        int pages;
+        if (PREVIOUS.equals(name))
+        {
+            pages = -1;
+        }
+        else if (NEXT.equals(name))
+        {
+            pages = 1;
+        }
+        else
+        {
+            return;
+        }
+
+        IMessage message = paged.getMessage();
+        int page = paged.turn(pages);
+        if (page >= 0)
+        {
+            this.bot.getMessageSender().send(message.getChannel(),
+                    () -> message.edit(paged.render(page)),
+                    Priority.INTERACTIVE).exceptionally(e ->
+                    {
+                        Bot.errorLog.print(this, e);
+                        return null;
+                    });
+        }
+        // fails without the permission to manage messages, the user then has to remove the reaction
+        this.bot.getMessageSender().sendReaction(message.getChannel(), () ->
+        {
+            message.removeReaction(user, emoji);
+            return null;
+        }, Priority.BACKGROUND).exceptionally(e ->
+        {
+            Bot.errorLog.print(this, e);
+            return null;
+        });
+    }
+
+    /**
+     * Starts to periodically forget the messages whose pages have not been turned for the time to live.
+     */
+    public void start()
+    {
+        long interval = Math.max(1000, this.timeToLive / 2);
+        this.future = Threads.schedulerPool.scheduleWithFixedDelay(this::evictExpired,
+                interval,
+                interval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops forgetting unused messages and forgets all registered messages.
+     */
+    public void stop()
+    {
+        if (this.future != null)
+        {
+            this.future.cancel(false);
+        }
+        this.messages.clear();
+    }
+
+    /**
+     * Forgets the messages whose pages have not been turned for the time to live.
+     * 
+     * @return The number of forgotten messages.
+     */
+    public int evictExpired()
+    {
+        long now = System.currentTimeMillis();
+        int count = 0;
+        Iterator<PagedMessage> iterator = this.messages.values().iterator();
+        while (iterator.hasNext())
+        {
+            if (isExpired(iterator.next(), now))
+            {
+                iterator.remove();
+                count ++ ;
+            }
+        }
+        return count;
+    }
+
+    private boolean isExpired(PagedMessage message, long now)
+    {
+        return now - message.getLastUsed() > this.timeToLive;
+    }
+}
@@ -10,7 +10,7 @@ import bowt.cmnd.Command;
 import bowt.evnt.impl.CommandEvent;
 import bowt.guild.GuildObject;
 import bowt.hand.intf.CommandHandler;
-import bowt.util.perm.UserPermissions;
+import bowt.util.perm.PermissionContext;
 
 /**
  * A default {@link CommandHandler} implementation which is meant for commands in 
@@ -40,6 +40,9 @@ public class PrivateCommandHandler implements CommandHandler
     
     protected Map<Long, Map<Command, Integer>> overrides;
 
+    /** The context which resolves the permission levels of events that don't carry one or null. */
+    protected PermissionContext permissionContext;
+
     /**
      * Creates a new instance that will handle {@link Command}s.
      * 
@@ -61,6 +64,24 @@ public class PrivateCommandHandler implements CommandHandler
         this.commands = new HashMap<String, Command>();
         this.overrides = new ConcurrentHashMap<>();
     }
+
+    /**
+     * Creates a new instance that will handle {@link Command}s and resolve the permission levels of their authors
+     * with the given {@link PermissionContext}.
+     * 
+     * <p>
+     * The context is used for events which were created without one, so that private commands don't have to fall
+     * back to the bot registered in {@link bowt.util.perm.UserPermissions}.
+     * </p>
+     * 
+     * @param permissionContext
+     *            The context of the bot, usually {@link bowt.bot.Bot#getPermissionContext()}.
+     */
+    public PrivateCommandHandler(PermissionContext permissionContext)
+    {
+        this();
+        this.permissionContext = permissionContext;
+    }
     
     /**
      * Adds a {@link Command} to this instances {@link #commands} map.
@@ -117,11 +138,28 @@ public class PrivateCommandHandler implements CommandHandler
         Command command = this.commands.get(event.getCommand());
         
         if (command != null
-                && command.isValidPermission(UserPermissions.getPermissionLevel(event.getMessage().getAuthor()), null))
+                && command.isValidPermission(getAuthorPermissionLevel(event), null))
         {
             command.execute(event);
             return true;
         }
         return false;
     }
+
+    /**
+     * Gets the permission level of the author of the given event, using the {@link #permissionContext} if the event
+     * does not carry a context.
+     * 
+     * @param event
+     *            The event.
+     * @return The permission level.
+     */
+    protected int getAuthorPermissionLevel(CommandEvent event)
+    {
+        if (event.getPermissionContext() == null && this.permissionContext != null)
+        {
+            return this.permissionContext.getPermissionLevel(event.getAuthor());
+        }
+        return event.getAuthorPermissionLevel();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,438 @@
+package bowt.send;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import sx.blah.discord.handle.obj.IChannel;
+import sx.blah.discord.handle.obj.IGuild;
+import sx.blah.discord.handle.obj.IMessage;
+import sx.blah.discord.util.RequestBuffer.IRequest;
+import bowt.bot.Bot;
+import bowt.bot.exc.SendException.Reason;
+import bowt.util.coll.LongHashSet;
+
+/**
+ * Sends one message to a channel of every guild.
+ * 
+ * <p>
+ * For every guild the channel selector picks the channel the message is sent to, or returns null to
+ * skip the guild. The messages are queued in the {@link Priority#BULK bulk} lane of a {@link MessageSender}, which
+ * spreads them over its threads within the global rate limit while replies to users still go first. Only a limited
+ * number of messages is queued at once, so that a broadcast to many guilds does not fill the queues up front.
+ * </p>
+ * 
+ * <p>
+ * If a progress file is set, the ID of every guild that has been handled is appended to it. When a broadcast with the
+ * same progress file is started again, for example after a restart, those guilds are skipped. Guilds whose message
+ * failed for any other reason than missing permissions are not written, so they are tried again. A new broadcast
+ * needs a new or deleted progress file.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public class Broadcast
+{
+    /** The default number of messages that are queued at once. */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 50;
+
+    /** The number of guild IDs that are appended to the progress file before it is forced to the disk. */
+    public static final int FORCE_INTERVAL = 64;
+
+    /** The sender which sends the messages. */
+    private final MessageSender sender;
+
+    /** The guilds to which the message is sent. */
+    private final Iterable<IGuild> guilds;
+
+    /** Picks the channel of a guild or returns null to skip it. */
+    private final Function<IGuild, IChannel> channelSelector;
+
+    /** Creates the request which sends the message to a channel. */
+    private final Function<IChannel, IRequest<IMessage>> requestFactory;
+
+    /** Completed with this broadcast once all messages have been handled. */
+    private final CompletableFuture<Broadcast> completion;
+
+    /** The file to which the IDs of handled guilds are appended or null. */
+    private Path progressFile;
+
+    /** Called after every handled guild or null. */
+    private Consumer<Broadcast> progressListener;
+
+    /** The number of messages that are queued at once. */
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+
+    /** The opened progress file or null. */
+    private FileChannel progress;
+
+    /** The IDs of the guilds which had been handled before this broadcast was started. */
+    private LongHashSet handled;
+
+    /** The number of guild IDs which have been appended to the progress file since it was last forced. */
+    private int unforced;
+
+    /** The remaining guilds. */
+    private Iterator<IGuild> remaining;
+
+    /** The number of queued messages which have not completed yet. */
+    private int inFlight;
+
+    /** Indicates whether {@link #pump()} is running, so that completions on the same thread don't run it again. */
+    private boolean pumping;
+
+    /** Indicates whether no more messages should be queued. */
+    private volatile boolean cancelled;
+
+    /** Indicates whether {@link #finish()} has been called. */
+    private boolean finished;
+
+    /** The number of sent messages. */
+    private volatile int sentCount;
+
+    /** The number of messages that could not be sent. */
+    private volatile int failedCount;
+
+    /** The number of guilds for which no channel was selected. */
+    private volatile int skippedCount;
+
+    /** The number of guilds which were handled by an earlier run. */
+    private volatile int resumedCount;
+
+    /**
+     * Creates a new broadcast. Use {@link Bot#createBroadcast(sx.blah.discord.api.internal.json.objects.EmbedObject,
+     * Function)} to broadcast to all guilds of a bot.
+     * 
+     * @param sender
+     *            The sender which sends the messages.
+     * @param guilds
+     *            The guilds to which the message is sent. They are only iterated while the broadcast runs.
+     * @param channelSelector
+     *            Picks the channel of a guild or returns null to skip it.
+     * @param requestFactory
+     *            Creates the request which sends the message to a channel.
+     */
+    public Broadcast(MessageSender sender,
+            Iterable<IGuild> guilds,
+            Function<IGuild, IChannel> channelSelector,
+            Function<IChannel, IRequest<IMessage>> requestFactory)
+    {
+        this.sender = sender;
+        this.guilds = guilds;
+        this.channelSelector = channelSelector;
+        this.requestFactory = requestFactory;
+        this.completion = new CompletableFuture<>();
+    }
+
+    /**
+     * Sets the file which records the handled guilds, so that the broadcast can be resumed. Must be set before
+     * {@link #start()}.
+     * 
+     * @param progressFile
+     *            The file.
+     */
+    public void setProgressFile(Path progressFile)
+    {
+        this.progressFile = progressFile;
+    }
+
+    /**
+     * Sets a listener which is called after every handled guild. It is called by the threads of the sender, so it
+     * should return quickly.
+     * 
+     * @param progressListener
+     *            The listener.
+     */
+    public void setProgressListener(Consumer<Broadcast> progressListener)
+    {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Sets the number of messages that are queued at once. Must be set before {@link #start()}.
+     * 
+     * @param maxInFlight
+     *            The number of messages.
+     */
+    public void setMaxInFlight(int maxInFlight)
+    {
+        if (maxInFlight < 1)
+        {
+            throw new IllegalArgumentException("At least one message has to be in flight.");
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Starts sending the messages.
+     * 
+     * @return A future which completes with this broadcast once every guild has been handled or the broadcast has
+     *         been cancelled.
+     * @throws IOException
+     *             If the progress file could not be read or opened.
+     */
+    public synchronized CompletableFuture<Broadcast> start() throws IOException
+    {
+        if (this.remaining != null)
+        {
+            throw new IllegalStateException("The broadcast has already been started.");
+        }
+        this.handled = new LongHashSet();
+        if (this.progressFile != null)
+        {
+            readProgress();
+            this.progress = FileChannel.open(this.progressFile,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            long size = this.progress.size();
+            if (size % 8 != 0)
+            {
+                // cuts off a partly written ID, so that the appended IDs stay aligned
+                this.progress.truncate(size - size % 8);
+                this.progress.force(false);
+            }
+        }
+        this.remaining = this.guilds.iterator();
+        pump();
+        return this.completion;
+    }
+
+    /**
+     * Stops queuing further messages. Messages which have already been queued are still sent.
+     */
+    public void cancel()
+    {
+        this.cancelled = true;
+        synchronized (this)
+        {
+            if (this.remaining == null)
+            {
+                return;
+            }
+        }
+        // finishes the broadcast if nothing is in flight
+        pump();
+    }
+
+    /**
+     * Indicates whether {@link #cancel()} has been called.
+     * 
+     * @return true if the broadcast has been cancelled.
+     */
+    public boolean isCancelled()
+    {
+        return this.cancelled;
+    }
+
+    /**
+     * Indicates whether every guild has been handled or the broadcast has been cancelled and all queued messages have
+     * completed.
+     * 
+     * @return true if the broadcast is done.
+     */
+    public boolean isDone()
+    {
+        return this.completion.isDone();
+    }
+
+    /**
+     * Gets the number of messages which have been sent.
+     * 
+     * @return The number of sent messages.
+     */
+    public int getSentCount()
+    {
+        return this.sentCount;
+    }
+
+    /**
+     * Gets the number of messages which could not be sent.
+     * 
+     * @return The number of failed messages.
+     */
+    public int getFailedCount()
+    {
+        return this.failedCount;
+    }
+
+    /**
+     * Gets the number of guilds for which the channel selector returned null.
+     * 
+     * @return The number of skipped guilds.
+     */
+    public int getSkippedCount()
+    {
+        return this.skippedCount;
+    }
+
+    /**
+     * Gets the number of guilds which were skipped because the progress file shows that they had already been handled.
+     * 
+     * @return The number of resumed guilds.
+     */
+    public int getResumedCount()
+    {
+        return this.resumedCount;
+    }
+
+    /**
+     * Queues messages for the remaining guilds until {@link #maxInFlight} messages are in flight.
+     */
+    private void pump()
+    {
+        boolean done;
+        synchronized (this)
+        {
+            if (this.pumping)
+            {
+                return;
+            }
+            this.pumping = true;
+            try
+            {
+                while (this.inFlight < this.maxInFlight && !this.cancelled && this.remaining.hasNext())
+                {
+                    IGuild guild = this.remaining.next();
+                    if (this.handled.contains(guild.getLongID()))
+                    {
+                        this.resumedCount ++ ;
+                        continue;
+                    }
+                    IChannel channel = this.channelSelector.apply(guild);
+                    if (channel == null)
+                    {
+                        this.skippedCount ++ ;
+                        continue;
+                    }
+                    this.inFlight ++ ;
+                    this.sender.send(channel, this.requestFactory.apply(channel), Priority.BULK)
+                            .whenComplete((message, e) -> complete(guild, e));
+                }
+            }
+            catch (RuntimeException e)
+            {
+                // a failing selector or guild source ends the broadcast like a cancel
+                Bot.errorLog.print(this, e);
+                this.cancelled = true;
+            }
+            finally
+            {
+                this.pumping = false;
+            }
+            done = !this.finished && this.inFlight == 0 && (this.cancelled || !this.remaining.hasNext());
+            this.finished |= done;
+        }
+        if (done)
+        {
+            finish();
+        }
+    }
+
+    /**
+     * Records the result of the message to the given guild and queues the next messages.
+     */
+    private void complete(IGuild guild, Throwable e)
+    {
+        synchronized (this)
+        {
+            this.inFlight -- ;
+            if (e == null)
+            {
+                this.sentCount ++ ;
+                record(guild.getLongID());
+            }
+            else
+            {
+                this.failedCount ++ ;
+                if (MessageSender.toSendException(e).getReason() == Reason.MISSING_PERMISSIONS)
+                {
+                    // trying again would fail the same way
+                    record(guild.getLongID());
+                }
+            }
+        }
+        if (this.progressListener != null)
+        {
+            this.progressListener.accept(this);
+        }
+        pump();
+    }
+
+    /**
+     * Appends the given guild ID to the progress file. Must be called while holding the lock.
+     */
+    private void record(long guildID)
+    {
+        if (this.progress == null)
+        {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.putLong(guildID);
+        buffer.flip();
+        try
+        {
+            while (buffer.hasRemaining())
+            {
+                this.progress.write(buffer);
+            }
+            this.unforced ++ ;
+            if (this.unforced >= FORCE_INTERVAL)
+            {
+                // a crash loses at most the last few handled guilds, which are then handled again
+                this.progress.force(false);
+                this.unforced = 0;
+            }
+        }
+        catch (IOException e)
+        {
+            Bot.errorLog.print(this, e);
+        }
+    }
+
+    /**
+     * Reads the IDs of the guilds which have been handled by an earlier run into {@link #handled}.
+     */
+    private void readProgress() throws IOException
+    {
+        if (!Files.exists(this.progressFile))
+        {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(this.progressFile));
+        // a partly written ID at the end is ignored, its guild is handled again
+        while (buffer.remaining() >= 8)
+        {
+            this.handled.add(buffer.getLong());
+        }
+    }
+
+    private void finish()
+    {
+        synchronized (this)
+        {
+            if (this.progress != null)
+            {
+                try
+                {
+                    this.progress.force(false);
+                    this.progress.close();
+                }
+                catch (IOException e)
+                {
+                    Bot.errorLog.print(this, e);
+                }
+                this.progress = null;
+            }
+        }
+        this.completion.complete(this);
+    }
+}
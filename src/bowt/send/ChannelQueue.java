@@ -0,0 +1,450 @@
+package bowt.send;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import sx.blah.discord.handle.obj.IMessage;
+import sx.blah.discord.util.RateLimitException;
+import bowt.bot.exc.SendException;
+import bowt.bot.exc.SendException.Reason;
+
+/**
+ * The messages that wait to be sent to one channel.
+ * 
+ * <p>
+ * The messages are sent one after another, and only once both the bucket of the channel and the global bucket of
+ * the {@link MessageSender} allow another request. While a bucket is exhausted no thread is occupied, the queue is
+ * drained again once the window resets.
+ * </p>
+ * 
+ * <p>
+ * Every {@link Priority} has its own lane in which messages keep the order they were queued in. The next message is
+ * taken from the highest lane, considering how long the first message of each lane has waited already.
+ * </p>
+ * 
+ * <p>
+ * Plain texts which were sent with coalescing enabled are held back for a short window. Following texts which are
+ * also coalesced are appended to the waiting one as long as it fits into one message, so a burst of small messages
+ * costs a single request. Messages of other lanes which are ready are sent while a text waits.
+ * </p>
+ * 
+ * @author &#8904
+ */
+class ChannelQueue
+{
+    /** The sender which owns this queue. */
+    private final MessageSender sender;
+
+    /** The long ID of the channel. */
+    private final long channelID;
+
+    /** The rate limit bucket of the channel. */
+    private final RateLimitBucket bucket;
+
+    /** The waiting messages of each lane. */
+    private final Map<Priority, Deque<OutboundMessage>> lanes;
+
+    /** Indicates whether a drain is running or scheduled. */
+    private boolean scheduled;
+
+    /** Indicates whether the scheduled drain only waits for a coalesced text to get ready. */
+    private boolean waitingForText;
+
+    /** Identifies the current drain, so that a scheduled drain which has been replaced does nothing. */
+    private int generation;
+
+    /** Indicates whether {@link #expire()} is scheduled. */
+    private boolean expiring;
+
+    /** Indicates whether this queue has been removed from the sender and must not accept messages anymore. */
+    private boolean closed;
+
+    /**
+     * Creates a new queue.
+     * 
+     * @param sender
+     *            The sender which owns this queue.
+     * @param channelID
+     *            The long ID of the channel.
+     * @param bucket
+     *            The rate limit bucket of the channel.
+     */
+    ChannelQueue(MessageSender sender, long channelID, RateLimitBucket bucket)
+    {
+        this.sender = sender;
+        this.channelID = channelID;
+        this.bucket = bucket;
+        this.lanes = new EnumMap<>(Priority.class);
+        for (Priority priority : Priority.values())
+        {
+            this.lanes.put(priority, new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Adds the given message to the end of its lane.
+     * 
+     * @param message
+     *            The message.
+     * @return false if this queue has been closed and the message has to be added to a new queue.
+     */
+    boolean offer(OutboundMessage message)
+    {
+        synchronized (this)
+        {
+            if (this.closed)
+            {
+                return false;
+            }
+            Deque<OutboundMessage> lane = this.lanes.get(message.priority);
+            OutboundMessage last = lane.peekLast();
+            if (last != null && last.merge(message))
+            {
+                return true;
+            }
+            lane.add(message);
+            if (this.scheduled)
+            {
+                // a drain which only waits for a coalesced text must not hold back a message that is ready
+                if (!this.waitingForText || message.readyAt > System.currentTimeMillis())
+                {
+                    return true;
+                }
+                this.waitingForText = false;
+                this.generation ++ ;
+            }
+            this.scheduled = true;
+        }
+        execute();
+        return true;
+    }
+
+    /**
+     * Sends the next message if the rate limits allow it, otherwise schedules the next drain for when they do.
+     */
+    void drain()
+    {
+        OutboundMessage message = next();
+        if (message == null)
+        {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long delay = Math.max(message.readyAt - now, this.bucket.delay(now));
+        if (delay == 0)
+        {
+            Priority priority = message.getPriority(now, this.sender.agingInterval);
+            delay = this.sender.global.acquire(now, priority.getReserve());
+        }
+        if (delay > 0)
+        {
+            if (!schedule(delay, message))
+            {
+                // a message which is ready was queued while the drain was deciding
+                execute();
+            }
+            return;
+        }
+        if (!start(message))
+        {
+            // dropped by the sender after it was taken
+            remove(message);
+            execute();
+            return;
+        }
+        this.bucket.acquire(now);
+
+        try
+        {
+            IMessage sent = message.request.request();
+            remove(message);
+            message.future.complete(sent);
+        }
+        catch (RateLimitException e)
+        {
+            // the local buckets were off, adopt the delay Discord sent
+            RateLimitBucket limited = e.isGlobal() ? this.sender.global : this.bucket;
+            limited.limited(System.currentTimeMillis(), Math.max(e.getRetryDelay(), 1));
+            if ( ++ message.attempts > this.sender.maxRetries)
+            {
+                remove(message);
+                message.future.completeExceptionally(MessageSender.toSendException(e));
+            }
+        }
+        catch (RuntimeException e)
+        {
+            remove(message);
+            message.future.completeExceptionally(MessageSender.toSendException(e));
+        }
+
+        // go back to the executor, so that busy channels take turns
+        execute();
+    }
+
+    /**
+     * Sends the given message right away on the calling thread, without waiting for the other messages of this queue.
+     * The calling thread sleeps until the rate limits allow the request.
+     * 
+     * @param message
+     *            The message.
+     */
+    void sendInline(OutboundMessage message)
+    {
+        if (!start(message))
+        {
+            return;
+        }
+        try
+        {
+            while (!message.future.isDone())
+            {
+                long now = System.currentTimeMillis();
+                long delay = this.bucket.delay(now);
+                if (delay == 0)
+                {
+                    delay = this.sender.global.acquire(now, message.priority.getReserve());
+                }
+                if (delay > 0)
+                {
+                    Thread.sleep(delay);
+                    continue;
+                }
+                this.bucket.acquire(now);
+
+                try
+                {
+                    message.future.complete(message.request.request());
+                }
+                catch (RateLimitException e)
+                {
+                    RateLimitBucket limited = e.isGlobal() ? this.sender.global : this.bucket;
+                    limited.limited(System.currentTimeMillis(), Math.max(e.getRetryDelay(), 1));
+                    if ( ++ message.attempts > this.sender.maxRetries)
+                    {
+                        message.future.completeExceptionally(MessageSender.toSendException(e));
+                    }
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            message.future.completeExceptionally(new SendException(Reason.UNKNOWN,
+                    "Interrupted while waiting for the rate limit.",
+                    e));
+        }
+        catch (RuntimeException e)
+        {
+            message.future.completeExceptionally(MessageSender.toSendException(e));
+        }
+
+        synchronized (this)
+        {
+            // this queue might have been created for the message, it is removed again once it is not needed
+            if (!this.scheduled && !this.expiring)
+            {
+                expire();
+            }
+        }
+    }
+
+    /**
+     * Gets the message which has to be sent next, or ends the drain if there is none.
+     */
+    private synchronized OutboundMessage next()
+    {
+        OutboundMessage message = peek(System.currentTimeMillis());
+        if (message == null)
+        {
+            this.scheduled = false;
+            if (!this.expiring)
+            {
+                expire();
+            }
+        }
+        return message;
+    }
+
+    /**
+     * Removes this queue from the sender once it is empty and the window of its bucket has ended. Until then the
+     * queue is kept, so that the messages which were sent to the channel in the current window are not forgotten.
+     */
+    private synchronized void expire()
+    {
+        this.expiring = false;
+        if (this.scheduled || this.closed || !isEmpty())
+        {
+            return;
+        }
+        long delay = this.bucket.getResetDelay(System.currentTimeMillis());
+        if (delay == 0)
+        {
+            this.closed = true;
+            this.sender.removeQueue(this.channelID, this);
+        }
+        else
+        {
+            this.expiring = this.sender.schedule(this::expire, delay);
+        }
+    }
+
+    /**
+     * Gets the first message of the lane with the highest effective priority whose first message is ready. A text
+     * which still waits for following texts does not hold back the other lanes. If no lane is ready, the message which
+     * gets ready first is returned. Must be called while holding the lock.
+     */
+    private OutboundMessage peek(long now)
+    {
+        OutboundMessage next = null;
+        Priority nextPriority = null;
+        OutboundMessage waiting = null;
+        for (Deque<OutboundMessage> lane : this.lanes.values())
+        {
+            OutboundMessage message;
+            while ((message = lane.peek()) != null && message.future.isDone())
+            {
+                // cancelled by the caller
+                lane.poll();
+            }
+            if (message == null)
+            {
+                continue;
+            }
+            if (message.readyAt > now)
+            {
+                if (waiting == null || message.readyAt < waiting.readyAt)
+                {
+                    waiting = message;
+                }
+                continue;
+            }
+            Priority priority = message.getPriority(now, this.sender.agingInterval);
+            if (next == null || priority.compareTo(nextPriority) < 0
+                    || (priority == nextPriority && message.queuedAt < next.queuedAt))
+            {
+                next = message;
+                nextPriority = priority;
+            }
+        }
+        return next != null ? next : waiting;
+    }
+
+    private boolean isEmpty()
+    {
+        for (Deque<OutboundMessage> lane : this.lanes.values())
+        {
+            if (!lane.isEmpty())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Claims the given message for sending while holding the lock, so that no text is merged into it afterwards.
+     * 
+     * @return false if the message has been dropped.
+     */
+    private synchronized boolean start(OutboundMessage message)
+    {
+        return message.start();
+    }
+
+    private synchronized void remove(OutboundMessage message)
+    {
+        this.lanes.get(message.priority).remove(message);
+    }
+
+    private void execute()
+    {
+        if (!this.sender.execute(this::drain, getPriority()))
+        {
+            failAll();
+        }
+    }
+
+    /**
+     * Schedules the next drain after the given delay.
+     * 
+     * @param delay
+     *            The delay in milliseconds.
+     * @param message
+     *            The message which the drain waits for.
+     * @return false if the message is a text that still waits for following texts while another message is ready.
+     */
+    private boolean schedule(long delay, OutboundMessage message)
+    {
+        int scheduledGeneration;
+        synchronized (this)
+        {
+            long now = System.currentTimeMillis();
+            this.waitingForText = message.readyAt > now;
+            if (this.waitingForText && peek(now) != message)
+            {
+                this.waitingForText = false;
+                return false;
+            }
+            scheduledGeneration = this.generation;
+        }
+        if (!this.sender.schedule(() -> resume(scheduledGeneration), delay))
+        {
+            failAll();
+        }
+        return true;
+    }
+
+    /**
+     * Continues the drain after a scheduled delay unless another drain has been started in the meantime.
+     */
+    private void resume(int scheduledGeneration)
+    {
+        synchronized (this)
+        {
+            if (scheduledGeneration != this.generation)
+            {
+                return;
+            }
+            this.waitingForText = false;
+        }
+        execute();
+    }
+
+    /**
+     * Gets the effective priority of the message which is sent next, which orders the drains of all channels.
+     */
+    private synchronized Priority getPriority()
+    {
+        long now = System.currentTimeMillis();
+        OutboundMessage message = peek(now);
+        return message != null ? message.getPriority(now, this.sender.agingInterval) : Priority.BULK;
+    }
+
+    /**
+     * Fails all waiting messages. Their futures are completed outside of the lock, since their callbacks might queue
+     * new messages.
+     */
+    private void failAll()
+    {
+        List<OutboundMessage> failed = new ArrayList<>();
+        synchronized (this)
+        {
+            for (Deque<OutboundMessage> lane : this.lanes.values())
+            {
+                failed.addAll(lane);
+                lane.clear();
+            }
+            this.scheduled = false;
+        }
+        SendException e = new SendException(Reason.NO_CLIENT, "The sender has been shut down.");
+        for (OutboundMessage message : failed)
+        {
+            message.future.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package bowt.send;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import sx.blah.discord.handle.obj.IMessage;
+
+/**
+ * Remembers the futures of recent sends by their idempotency key.
+ * 
+ * <p>
+ * A send with a key that is still remembered gets the future of the first send instead of being sent again. A key is
+ * remembered while its send waits in a queue, and the window only starts once the send has completed, so a send that
+ * waited longer than the window is not made twice. Keys are forgotten after the window has passed, once the cache
+ * holds more than its capacity, or when their send failed, so that a failed send can be retried with the same key.
+ * </p>
+ * 
+ * @author &#8904
+ */
+class DedupeCache
+{
+    /** The end of the window of a send which has not completed yet. */
+    private static final long PENDING = Long.MAX_VALUE;
+
+    /** The remembered sends, completed ones in the order they completed and pending ones where they were started. */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    /** The time in milliseconds for which a key is remembered. */
+    private long window;
+
+    /** The maximum number of remembered keys. */
+    private int capacity;
+
+    /**
+     * Creates a new cache.
+     * 
+     * @param window
+     *            The time in milliseconds for which a key is remembered.
+     * @param capacity
+     *            The maximum number of remembered keys.
+     */
+    DedupeCache(long window, int capacity)
+    {
+        this.window = window;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets the future of the remembered send with the given key, or starts the send and remembers it.
+     * 
+     * @param key
+     *            The idempotency key.
+     * @param send
+     *            Starts the send if the key is not remembered.
+     * @return The future of the first send with the key.
+     */
+    CompletableFuture<IMessage> get(String key, Supplier<CompletableFuture<IMessage>> send)
+    {
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (this)
+        {
+            evict(now);
+            entry = this.entries.get(key);
+            if (entry != null && entry.expiresAt > now)
+            {
+                return entry.future;
+            }
+            // an expired entry which evict() did not reach is replaced at the end of the order
+            this.entries.remove(key);
+            entry = new Entry(new CompletableFuture<>());
+            this.entries.put(key, entry);
+            Iterator<Entry> iterator = this.entries.values().iterator();
+            while (this.entries.size() > this.capacity)
+            {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+
+        // started outside the lock, since a send can complete right away on the calling thread
+        Entry started = entry;
+        CompletableFuture<IMessage> future;
+        try
+        {
+            future = send.get();
+        }
+        catch (RuntimeException e)
+        {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        future.whenComplete((message, e) ->
+        {
+            if (e != null)
+            {
+                synchronized (this)
+                {
+                    this.entries.remove(key, started);
+                }
+                started.future.completeExceptionally(e);
+            }
+            else
+            {
+                synchronized (this)
+                {
+                    started.expiresAt = System.currentTimeMillis() + this.window;
+                    // moved to the end, so that the completed entries stay ordered by the end of their window
+                    if (this.entries.remove(key, started))
+                    {
+                        this.entries.put(key, started);
+                    }
+                }
+                started.future.complete(message);
+            }
+        });
+        return started.future;
+    }
+
+    /**
+     * Sets the time for which a key is remembered after its send completed. Applies to sends that complete
+     * afterwards.
+     * 
+     * @param window
+     *            The time in milliseconds.
+     */
+    synchronized void setWindow(long window)
+    {
+        this.window = window;
+    }
+
+    /**
+     * Sets the maximum number of remembered keys.
+     * 
+     * @param capacity
+     *            The number of keys.
+     */
+    synchronized void setCapacity(int capacity)
+    {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Removes the expired entries from the start of {@link #entries}, passing over the pending ones. Must be called
+     * while holding the lock.
+     */
+    private void evict(long now)
+    {
+        Iterator<Map.Entry<String, Entry>> iterator = this.entries.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            Entry entry = iterator.next().getValue();
+            if (entry.expiresAt == PENDING)
+            {
+                continue;
+            }
+            // the completed entries are ordered by their completion, so later ones live at least as long unless the
+            // window shrank
+            if (entry.expiresAt > now)
+            {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    private static final class Entry
+    {
+        private final CompletableFuture<IMessage> future;
+
+        /** The end of the window or {@link #PENDING} while the send has not completed. Guarded by the cache. */
+        private long expiresAt = PENDING;
+
+        private Entry(CompletableFuture<IMessage> future)
+        {
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package bowt.send;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import sx.blah.discord.handle.obj.IChannel;
+import sx.blah.discord.handle.obj.IMessage;
+import bowt.bot.Bot;
+import bowt.thread.Threads;
+
+/**
+ * A message whose content can be updated often, for example to show the progress of a long running command.
+ * 
+ * <p>
+ * Every {@link #update(String)} only replaces the content that should be shown. The message is edited at most once
+ * per {@link #setMinInterval(long) interval}, always with the latest content, so intermediate states which were
+ * replaced before the next edit are never sent. {@link #finish(String)} makes sure that the last content is shown.
+ * The edits go through the {@link MessageSender}, so they also respect the rate limits of the channel.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public class LiveMessage
+{
+    /** The default minimum time in milliseconds between two edits. */
+    public static final long DEFAULT_MIN_INTERVAL = 1000;
+
+    /** The sender which performs the edits. */
+    private final MessageSender sender;
+
+    /** The channel of the message. */
+    private final IChannel channel;
+
+    /** The future of the message which is edited. */
+    private final CompletableFuture<IMessage> message;
+
+    /** Completed once the content that was given to {@link #finish(String)} is shown. */
+    private final CompletableFuture<IMessage> done;
+
+    /** The lane of the edits. */
+    private final Priority priority;
+
+    /** The minimum time in milliseconds between two edits. */
+    private volatile long minInterval = DEFAULT_MIN_INTERVAL;
+
+    /** The latest content which has not been sent yet or null. */
+    private String pending;
+
+    /** The last content which has been sent. */
+    private String shown;
+
+    /** Indicates whether an edit is scheduled or in flight. */
+    private boolean editing;
+
+    /** The time in milliseconds at which the last edit was started. */
+    private long lastEditAt;
+
+    /** Indicates whether {@link #finish(String)} has been called. */
+    private boolean finished;
+
+    /**
+     * Creates a new live message for a message which is being sent.
+     * 
+     * @param sender
+     *            The sender which performs the edits.
+     * @param channel
+     *            The channel of the message.
+     * @param message
+     *            The future of the sent message.
+     * @param content
+     *            The content the message is sent with.
+     * @param priority
+     *            The lane of the edits.
+     */
+    public LiveMessage(MessageSender sender,
+            IChannel channel,
+            CompletableFuture<IMessage> message,
+            String content,
+            Priority priority)
+    {
+        this.sender = sender;
+        this.channel = channel;
+        this.message = message;
+        this.shown = content;
+        this.priority = priority;
+        this.done = new CompletableFuture<>();
+    }
+
+    /**
+     * Sets the minimum time between two edits.
+     * 
+     * @param minInterval
+     *            The interval in milliseconds.
+     */
+    public void setMinInterval(long minInterval)
+    {
+        this.minInterval = minInterval;
+    }
+
+    /**
+     * Gets the future of the message which is edited.
+     * 
+     * @return The future of the sent message.
+     */
+    public CompletableFuture<IMessage> getMessage()
+    {
+        return this.message;
+    }
+
+    /**
+     * Replaces the content that the message should show. The message is edited once the interval since the last edit
+     * has passed, with whatever content is the latest at that time.
+     * 
+     * @param content
+     *            The new content.
+     * @throws IllegalStateException
+     *             If {@link #finish(String)} has already been called.
+     */
+    public synchronized void update(String content)
+    {
+        if (this.finished)
+        {
+            throw new IllegalStateException("The live message has already been finished.");
+        }
+        this.pending = content;
+        if (!this.editing)
+        {
+            this.editing = true;
+            scheduleEdit();
+        }
+    }
+
+    /**
+     * Shows the given content as the final state of the message. Later calls to {@link #update(String)} fail.
+     * 
+     * @param content
+     *            The final content or null to keep the latest content which was given to {@link #update(String)}.
+     * @return A future which completes once the final content is shown, or exceptionally if the message or its last
+     *         edit failed.
+     */
+    public synchronized CompletableFuture<IMessage> finish(String content)
+    {
+        if (this.finished)
+        {
+            return this.done;
+        }
+        this.finished = true;
+        if (content != null)
+        {
+            this.pending = content;
+        }
+        if (!this.editing)
+        {
+            this.editing = true;
+            scheduleEdit();
+        }
+        return this.done;
+    }
+
+    /**
+     * Indicates whether {@link #finish(String)} has been called.
+     * 
+     * @return true if the live message has been finished.
+     */
+    public synchronized boolean isFinished()
+    {
+        return this.finished;
+    }
+
+    /**
+     * Schedules the next edit for when the interval since the last one has passed. Must be called while holding the
+     * lock.
+     */
+    private void scheduleEdit()
+    {
+        long delay = this.lastEditAt + this.minInterval - System.currentTimeMillis();
+        if (delay <= 0)
+        {
+            // the message might not have been sent yet, so this waits for it instead of running right away
+            this.message.whenComplete((message, e) -> edit());
+            return;
+        }
+        try
+        {
+            Threads.schedulerPool.schedule(() -> this.message.whenComplete((message, e) -> edit()),
+                    delay,
+                    TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException e)
+        {
+            this.message.whenComplete((message, ex) -> edit());
+        }
+    }
+
+    /**
+     * Sends the latest pending content, or ends the editing if there is none.
+     */
+    private void edit()
+    {
+        IMessage target = this.message.isCompletedExceptionally() ? null : this.message.getNow(null);
+        String content;
+        synchronized (this)
+        {
+            if (target == null)
+            {
+                // sending the message failed, so there is nothing to edit
+                this.editing = false;
+                this.pending = null;
+                if (this.finished)
+                {
+                    this.message.whenComplete((message, e) ->
+                    {
+                        if (e != null)
+                        {
+                            this.done.completeExceptionally(e);
+                        }
+                        else
+                        {
+                            this.done.complete(null);
+                        }
+                    });
+                }
+                return;
+            }
+
+            content = this.pending;
+            this.pending = null;
+            if (content == null || content.equals(this.shown))
+            {
+                this.editing = false;
+                if (this.finished)
+                {
+                    this.done.complete(target);
+                }
+                return;
+            }
+            this.lastEditAt = System.currentTimeMillis();
+        }
+
+        this.sender.send(this.channel, () -> target.edit(content), this.priority).whenComplete((edited, e) ->
+        {
+            synchronized (this)
+            {
+                if (e == null)
+                {
+                    this.shown = content;
+                }
+                else
+                {
+                    Bot.errorLog.print(this, e);
+                }
+                if (this.pending != null)
+                {
+                    scheduleEdit();
+                    return;
+                }
+                this.editing = false;
+                if (this.finished)
+                {
+                    if (e == null)
+                    {
+                        this.done.complete(target);
+                    }
+                    else
+                    {
+                        this.done.completeExceptionally(e);
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,977 @@
+package bowt.send;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import sx.blah.discord.handle.obj.IChannel;
+import sx.blah.discord.handle.obj.IMessage;
+import sx.blah.discord.util.DiscordException;
+import sx.blah.discord.util.MissingPermissionsException;
+import sx.blah.discord.util.RateLimitException;
+import sx.blah.discord.util.RequestBuffer.IRequest;
+import bowt.bot.Bot;
+import bowt.bot.exc.SendException;
+import bowt.bot.exc.SendException.Reason;
+import bowt.thread.Threads;
+
+/**
+ * Sends messages on its own threads and reports the result through a {@link CompletableFuture}.
+ * 
+ * <p>
+ * Unlike the blocking send methods of {@link Bot}, the calling thread never waits for Discord. Failures complete the
+ * future exceptionally with a {@link SendException} that tells why the message could not be sent.
+ * </p>
+ * 
+ * <p>
+ * Every channel has its own queue and {@link RateLimitBucket}, and all channels share a global bucket. A message is
+ * only sent once both buckets allow it, so requests are paced to Discord's limits before they are rejected. Messages
+ * to the same channel are sent in the order they were queued. If Discord rejects a request anyway, the bucket adopts
+ * the retry delay Discord sent and the message is retried when it has passed.
+ * </p>
+ * 
+ * <p>
+ * Messages are sent in one of three {@link Priority} lanes. Higher lanes are served first, both within a channel and
+ * when the threads of this sender are busy, and lower lanes leave a share of the global limit free for them. A
+ * message moves up one lane for every {@link #setAgingInterval(long) aging interval} it waits, so lower lanes are
+ * delayed but never starved.
+ * </p>
+ * 
+ * <p>
+ * Messages which nobody waits for can be {@link #post(IChannel, IRequest, Priority) posted}. Posting returns right
+ * away, but only a bounded number of posted messages may wait at once. The {@link OverflowPolicy} decides what happens
+ * when that buffer is full, and every dropped message is counted.
+ * </p>
+ * 
+ * <p>
+ * A send can carry an idempotency key. Another send with the same key to the same channel while the first one is
+ * queued or within the {@link #setDedupeWindow(long) dedupe window} after it is not sent again, it gets the future of
+ * the first send instead. This keeps a command that is executed twice from posting its reply twice.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public class MessageSender
+{
+    /** The default number of threads that perform the requests. */
+    public static final int DEFAULT_THREADS = 4;
+
+    /** The default number of times a rate limited request is retried. */
+    public static final int DEFAULT_MAX_RETRIES = 5;
+
+    /** The default number of messages per channel within {@link #DEFAULT_CHANNEL_WINDOW}. */
+    public static final int DEFAULT_CHANNEL_LIMIT = 5;
+
+    /** The default length of a channel window in milliseconds. */
+    public static final long DEFAULT_CHANNEL_WINDOW = 5000;
+
+    /** The default number of reactions that are added or removed in one channel per reaction window. */
+    public static final int DEFAULT_REACTION_LIMIT = 1;
+
+    /** The default length of the reaction window of a channel in milliseconds. */
+    public static final long DEFAULT_REACTION_WINDOW = 250;
+
+    /** The default number of requests of the whole bot within {@link #DEFAULT_GLOBAL_WINDOW}. */
+    public static final int DEFAULT_GLOBAL_LIMIT = 50;
+
+    /** The default length of a global window in milliseconds. */
+    public static final long DEFAULT_GLOBAL_WINDOW = 1000;
+
+    /** The default time in milliseconds that a coalesced text waits for following texts. */
+    public static final long DEFAULT_COALESCE_WINDOW = 250;
+
+    /** The default time in milliseconds after which a waiting message moves up one lane. */
+    public static final long DEFAULT_AGING_INTERVAL = 5000;
+
+    /** The default number of posted messages that may wait at once. */
+    public static final int DEFAULT_POST_CAPACITY = 1000;
+
+    /** The default time in milliseconds that {@link OverflowPolicy#BLOCK} waits for room. */
+    public static final long DEFAULT_BLOCK_TIMEOUT = 1000;
+
+    /** The default time in milliseconds for which an idempotency key is remembered. */
+    public static final long DEFAULT_DEDUPE_WINDOW = 60000;
+
+    /** The default maximum number of remembered idempotency keys. */
+    public static final int DEFAULT_DEDUPE_CAPACITY = 10000;
+
+    /** The threads that perform the requests. */
+    protected final ExecutorService executor;
+
+    /** The queues of the channels which currently have messages waiting or a running rate limit window. */
+    protected final Map<Long, ChannelQueue> queues;
+
+    /** The queues of the reactions of the channels, which have their own rate limit. */
+    protected final Map<Long, ChannelQueue> reactionQueues;
+
+    /** The bucket shared by all requests. */
+    final RateLimitBucket global;
+
+    /** The number of messages per channel window. */
+    private volatile int channelLimit = DEFAULT_CHANNEL_LIMIT;
+
+    /** The length of a channel window in milliseconds. */
+    private volatile long channelWindow = DEFAULT_CHANNEL_WINDOW;
+
+    /** The number of reactions per reaction window of a channel. */
+    private volatile int reactionLimit = DEFAULT_REACTION_LIMIT;
+
+    /** The length of the reaction window of a channel in milliseconds. */
+    private volatile long reactionWindow = DEFAULT_REACTION_WINDOW;
+
+    /** The number of times a rate limited request is retried. */
+    protected volatile int maxRetries = DEFAULT_MAX_RETRIES;
+
+    /** The time in milliseconds that a coalesced text waits for following texts. */
+    private volatile long coalesceWindow = DEFAULT_COALESCE_WINDOW;
+
+    /** The time in milliseconds after which a waiting message moves up one lane. */
+    volatile long agingInterval = DEFAULT_AGING_INTERVAL;
+
+    /** The posted messages which have not been sent yet, oldest first. Also the monitor for blocked posts. */
+    private final Set<OutboundMessage> posted = new LinkedHashSet<>();
+
+    /** The number of posted messages that may wait at once. */
+    private volatile int postCapacity = DEFAULT_POST_CAPACITY;
+
+    /** Decides what happens to posted messages when {@link #posted} is full. */
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+    /** The time in milliseconds that {@link OverflowPolicy#BLOCK} waits for room. */
+    private volatile long blockTimeout = DEFAULT_BLOCK_TIMEOUT;
+
+    /** The number of posted messages that have been dropped. */
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /** Orders drains of the same priority by the time they were started. */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /** The recent sends with an idempotency key. */
+    private final DedupeCache dedupeCache = new DedupeCache(DEFAULT_DEDUPE_WINDOW, DEFAULT_DEDUPE_CAPACITY);
+
+    /** Indicates whether the current thread is running a task of this sender. */
+    private final ThreadLocal<Boolean> senderThread = ThreadLocal.withInitial(() -> false);
+
+    /** Indicates whether the messages that are queued by the current thread are sent right away on it. */
+    private final ThreadLocal<Boolean> inline = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * Creates a new sender with {@link #DEFAULT_THREADS} daemon threads.
+     */
+    public MessageSender()
+    {
+        this(createExecutor(DEFAULT_THREADS));
+    }
+
+    /**
+     * Creates a new sender which performs its requests on the given executor.
+     * 
+     * <p>
+     * Waiting drains are only ordered by their {@link Priority} if the executor queues its tasks in a
+     * {@link PriorityBlockingQueue}.
+     * </p>
+     * 
+     * @param executor
+     *            The executor.
+     */
+    public MessageSender(ExecutorService executor)
+    {
+        this.executor = executor;
+        this.queues = new ConcurrentHashMap<>();
+        this.reactionQueues = new ConcurrentHashMap<>();
+        this.global = new RateLimitBucket(DEFAULT_GLOBAL_LIMIT, DEFAULT_GLOBAL_WINDOW);
+    }
+
+    /**
+     * Queues the given request for the given channel in the {@link Priority#INTERACTIVE interactive} lane.
+     * 
+     * @param channel
+     *            The channel to which the request sends a message.
+     * @param request
+     *            The request which sends the message.
+     * @return A future which completes with the sent message or exceptionally with a {@link SendException}.
+     */
+    public CompletableFuture<IMessage> send(IChannel channel, IRequest<IMessage> request)
+    {
+        return send(channel, request, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Queues the given request for the given channel.
+     * 
+     * @param channel
+     *            The channel to which the request sends a message.
+     * @param request
+     *            The request which sends the message.
+     * @param priority
+     *            The lane of the message.
+     * @return A future which completes with the sent message or exceptionally with a {@link SendException}.
+     */
+    public CompletableFuture<IMessage> send(IChannel channel, IRequest<IMessage> request, Priority priority)
+    {
+        OutboundMessage message = new OutboundMessage(request, priority);
+        enqueue(channel.getLongID(), message);
+        return message.future;
+    }
+
+    /**
+     * Queues the given request for the given channel unless a send with the same idempotency key to the same channel
+     * is still pending or has completed within the {@link #setDedupeWindow(long) dedupe window}.
+     * 
+     * <p>
+     * If the earlier send failed, its key has been forgotten and the request is queued again.
+     * </p>
+     * 
+     * @param channel
+     *            The channel to which the request sends a message.
+     * @param request
+     *            The request which sends the message.
+     * @param priority
+     *            The lane of the message.
+     * @param key
+     *            The idempotency key or null to always send the message.
+     * @return A future which completes with the sent message, which is the message of the earlier send if there was
+     *         one, or exceptionally with a {@link SendException}.
+     */
+    public CompletableFuture<IMessage> send(IChannel channel, IRequest<IMessage> request, Priority priority, String key)
+    {
+        if (key == null)
+        {
+            return send(channel, request, priority);
+        }
+        return this.dedupeCache.get(channel.getLongID() + ":" + key, () -> send(channel, request, priority));
+    }
+
+    /**
+     * Queues all given requests for the given channel at once. They are sent in the given order, since they share a
+     * lane of the same channel queue.
+     * 
+     * @param channel
+     *            The channel to which the requests send messages.
+     * @param requests
+     *            The requests in the order their messages should appear.
+     * @param priority
+     *            The lane of the messages.
+     * @return A future which completes with the sent messages in the same order once all of them have been sent, or
+     *         exceptionally with the {@link SendException} of the first message that failed. The other messages are
+     *         still sent if one fails.
+     */
+    public CompletableFuture<List<IMessage>> sendAll(IChannel channel,
+            List<IRequest<IMessage>> requests,
+            Priority priority)
+    {
+        List<CompletableFuture<IMessage>> futures = new ArrayList<>(requests.size());
+        for (IRequest<IMessage> request : requests)
+        {
+            futures.add(send(channel, request, priority));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).thenApply(v ->
+        {
+            List<IMessage> messages = new ArrayList<>(futures.size());
+            for (CompletableFuture<IMessage> future : futures)
+            {
+                messages.add(future.join());
+            }
+            return messages;
+        });
+    }
+
+    /**
+     * Queues the given plain text for the given channel in the {@link Priority#INTERACTIVE interactive} lane.
+     * 
+     * @param channel
+     *            The channel to which the text is sent.
+     * @param text
+     *            The text.
+     * @param coalesce
+     *            true if the text may be merged with other texts.
+     * @return A future which completes with the sent message or exceptionally with a {@link SendException}.
+     * 
+     * @see #send(IChannel, String, boolean, Priority)
+     */
+    public CompletableFuture<IMessage> send(IChannel channel, String text, boolean coalesce)
+    {
+        return send(channel, text, coalesce, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Queues the given plain text for the given channel.
+     * 
+     * <p>
+     * If coalesce is true, the text waits up to the {@link #setCoalesceWindow(long) coalescing window} before it is
+     * sent. Consecutive texts to the same channel which are also coalesced are merged into it, separated by a line
+     * break, as long as the result does not exceed {@link IMessage#MAX_MESSAGE_LENGTH}. Only texts of the same lane
+     * are merged. All merged texts are sent as one message and their futures complete with that message.
+     * </p>
+     * 
+     * @param channel
+     *            The channel to which the text is sent.
+     * @param text
+     *            The text.
+     * @param coalesce
+     *            true if the text may be merged with other texts.
+     * @param priority
+     *            The lane of the message.
+     * @return A future which completes with the sent message or exceptionally with a {@link SendException}.
+     */
+    public CompletableFuture<IMessage> send(IChannel channel, String text, boolean coalesce, Priority priority)
+    {
+        if (!coalesce)
+        {
+            return send(channel, () -> channel.sendMessage(text), priority);
+        }
+        OutboundMessage message = new OutboundMessage(channel, text, priority, this.coalesceWindow);
+        enqueue(channel.getLongID(), message);
+        return message.future;
+    }
+
+    /**
+     * Queues the given plain text for the given channel unless a send with the same idempotency key to the same
+     * channel is still pending or has completed within the {@link #setDedupeWindow(long) dedupe window}.
+     * 
+     * @param channel
+     *            The channel to which the text is sent.
+     * @param text
+     *            The text.
+     * @param coalesce
+     *            true if the text may be merged with other texts.
+     * @param priority
+     *            The lane of the message.
+     * @param key
+     *            The idempotency key or null to always send the text.
+     * @return A future which completes with the sent message, which is the message of the earlier send if there was
+     *         one, or exceptionally with a {@link SendException}.
+     * 
+     * @see #send(IChannel, IRequest, Priority, String)
+     */
+    public CompletableFuture<IMessage> send(IChannel channel,
+            String text,
+            boolean coalesce,
+            Priority priority,
+            String key)
+    {
+        if (key == null)
+        {
+            return send(channel, text, coalesce, priority);
+        }
+        return this.dedupeCache.get(channel.getLongID() + ":" + key, () -> send(channel, text, coalesce, priority));
+    }
+
+    /**
+     * Queues the given request, which adds or removes a reaction on a message of the given channel.
+     * 
+     * <p>
+     * Reactions have a rate limit of their own, so they are queued separately from the messages of the channel and
+     * don't use up its {@link #setChannelLimit(int, long) message limit}. Reactions of the same lane are still made in
+     * the order they were queued in.
+     * </p>
+     * 
+     * @param channel
+     *            The channel of the message whose reactions are changed.
+     * @param request
+     *            The request which adds or removes the reaction.
+     * @param priority
+     *            The lane of the reaction.
+     * @return A future which completes with the result of the request or exceptionally with a {@link SendException}.
+     */
+    public CompletableFuture<IMessage> sendReaction(IChannel channel, IRequest<IMessage> request, Priority priority)
+    {
+        OutboundMessage message = new OutboundMessage(request, priority);
+        enqueue(channel.getLongID(), message, true);
+        return message.future;
+    }
+
+    /**
+     * Queues the given request for the given channel without handing out a future.
+     * 
+     * <p>
+     * This never waits for Discord. If the buffer for posted messages is full, the {@link OverflowPolicy} decides
+     * whether the oldest waiting posted message or this one is dropped, or whether the caller waits for room up to the
+     * {@link #setBlockTimeout(long) block timeout}. Dropped messages are counted by {@link #getDroppedCount()}, other
+     * failures are logged.
+     * </p>
+     * 
+     * @param channel
+     *            The channel to which the request sends a message.
+     * @param request
+     *            The request which sends the message.
+     * @param priority
+     *            The lane of the message.
+     * @return true if the message was queued, false if it was dropped.
+     */
+    public boolean post(IChannel channel, IRequest<IMessage> request, Priority priority)
+    {
+        OutboundMessage message = new OutboundMessage(request, priority);
+        if (!reserve(message))
+        {
+            this.droppedCount.incrementAndGet();
+            return false;
+        }
+        message.future.whenComplete((sent, e) ->
+        {
+            release(message);
+            if (e != null && MessageSender.toSendException(e).getReason() != Reason.DROPPED)
+            {
+                Bot.errorLog.print(this, e);
+            }
+        });
+        enqueue(channel.getLongID(), message);
+        return true;
+    }
+
+    /**
+     * Gets the number of posted messages which have been dropped because the buffer was full.
+     * 
+     * @return The number of dropped messages.
+     */
+    public long getDroppedCount()
+    {
+        return this.droppedCount.get();
+    }
+
+    /**
+     * Gets the number of posted messages which have not been sent yet.
+     * 
+     * @return The number of waiting posted messages.
+     */
+    public int getPostedCount()
+    {
+        synchronized (this.posted)
+        {
+            return this.posted.size();
+        }
+    }
+
+    /**
+     * Sets the number of posted messages that may wait at once.
+     * 
+     * @param postCapacity
+     *            The capacity.
+     */
+    public void setPostCapacity(int postCapacity)
+    {
+        if (postCapacity < 1)
+        {
+            throw new IllegalArgumentException("The capacity must be positive.");
+        }
+        this.postCapacity = postCapacity;
+    }
+
+    /**
+     * Sets what happens to posted messages when the buffer is full. The default is {@link OverflowPolicy#DROP_OLDEST}.
+     * 
+     * @param overflowPolicy
+     *            The policy.
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy)
+    {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Sets the time that a post waits for room when the policy is {@link OverflowPolicy#BLOCK}.
+     * 
+     * @param blockTimeout
+     *            The timeout in milliseconds.
+     */
+    public void setBlockTimeout(long blockTimeout)
+    {
+        this.blockTimeout = blockTimeout;
+    }
+
+    /**
+     * Sets the number of messages that are sent to one channel within the given window.
+     * 
+     * <p>
+     * The default of {@value #DEFAULT_CHANNEL_LIMIT} messages per {@value #DEFAULT_CHANNEL_WINDOW} ms is the limit
+     * Discord documents for sending messages. The change applies to channels that are used after this call.
+     * </p>
+     * 
+     * @param limit
+     *            The number of messages.
+     * @param window
+     *            The length of the window in milliseconds.
+     */
+    public void setChannelLimit(int limit, long window)
+    {
+        if (limit < 1 || window < 1)
+        {
+            throw new IllegalArgumentException("The limit and window must be positive.");
+        }
+        this.channelLimit = limit;
+        this.channelWindow = window;
+    }
+
+    /**
+     * Sets the number of reactions that are added or removed in one channel within the given window.
+     * 
+     * <p>
+     * The default of {@value #DEFAULT_REACTION_LIMIT} reaction per {@value #DEFAULT_REACTION_WINDOW} ms is the limit
+     * Discord applies to reactions. The change applies to channels that are used after this call.
+     * </p>
+     * 
+     * @param limit
+     *            The number of reactions.
+     * @param window
+     *            The length of the window in milliseconds.
+     */
+    public void setReactionLimit(int limit, long window)
+    {
+        if (limit < 1 || window < 1)
+        {
+            throw new IllegalArgumentException("The limit and window must be positive.");
+        }
+        this.reactionLimit = limit;
+        this.reactionWindow = window;
+    }
+
+    /**
+     * Sets the number of requests that are made within the given window across all channels.
+     * 
+     * @param limit
+     *            The number of requests.
+     * @param window
+     *            The length of the window in milliseconds.
+     */
+    public void setGlobalLimit(int limit, long window)
+    {
+        this.global.setLimit(limit, window);
+    }
+
+    /**
+     * Sets the time that a coalesced text waits for following texts before it is sent.
+     * 
+     * @param coalesceWindow
+     *            The window in milliseconds.
+     */
+    public void setCoalesceWindow(long coalesceWindow)
+    {
+        this.coalesceWindow = coalesceWindow;
+    }
+
+    /**
+     * Sets the time after which a waiting message moves up one {@link Priority lane}.
+     * 
+     * @param agingInterval
+     *            The interval in milliseconds.
+     */
+    public void setAgingInterval(long agingInterval)
+    {
+        if (agingInterval < 1)
+        {
+            throw new IllegalArgumentException("The aging interval must be positive.");
+        }
+        this.agingInterval = agingInterval;
+    }
+
+    /**
+     * Sets the number of times a rate limited request is retried before it fails with {@link Reason#RATE_LIMITED}.
+     * 
+     * @param maxRetries
+     *            The number of retries.
+     */
+    public void setMaxRetries(int maxRetries)
+    {
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Sets the time for which an idempotency key is remembered after its send has completed.
+     * 
+     * @param dedupeWindow
+     *            The window in milliseconds.
+     */
+    public void setDedupeWindow(long dedupeWindow)
+    {
+        this.dedupeCache.setWindow(dedupeWindow);
+    }
+
+    /**
+     * Sets the maximum number of remembered idempotency keys. The oldest key is forgotten when another one would
+     * exceed it.
+     * 
+     * @param dedupeCapacity
+     *            The number of keys.
+     */
+    public void setDedupeCapacity(int dedupeCapacity)
+    {
+        if (dedupeCapacity < 1)
+        {
+            throw new IllegalArgumentException("At least one key has to be remembered.");
+        }
+        this.dedupeCache.setCapacity(dedupeCapacity);
+    }
+
+    /**
+     * Gets the number of channels which currently have a queue.
+     * 
+     * @return The number of queues.
+     */
+    public int getQueueCount()
+    {
+        return this.queues.size();
+    }
+
+    /**
+     * Checks if the current thread is running a task of this sender, which includes the callbacks of send futures
+     * that are completed by this sender.
+     * 
+     * <p>
+     * Such a thread must not wait for another send, since the send might need the very thread that is waiting. Once
+     * all threads wait like this, no message is sent anymore.
+     * </p>
+     * 
+     * @return true if the current thread belongs to this sender.
+     * @see #sendInline(Supplier)
+     */
+    public boolean isSenderThread()
+    {
+        return this.senderThread.get();
+    }
+
+    /**
+     * Runs the given action and sends every message it queues right away on the calling thread instead of handing it
+     * to the threads of this sender. The rate limits are still respected, the calling thread sleeps until they allow
+     * the request.
+     * 
+     * <p>
+     * This lets a {@link #isSenderThread() thread of this sender} wait for a send without waiting for the other
+     * threads. Texts are not coalesced and messages do not wait for the other messages of their channel.
+     * </p>
+     * 
+     * @param action
+     *            The action which queues the messages, usually by calling the send methods of this sender.
+     * @return The result of the action.
+     */
+    public <T> T sendInline(Supplier<T> action)
+    {
+        boolean previous = this.inline.get();
+        this.inline.set(true);
+        try
+        {
+            return action.get();
+        }
+        finally
+        {
+            this.inline.set(previous);
+        }
+    }
+
+    /**
+     * Indicates whether this sender has been {@link #shutdown() shut down}.
+     * 
+     * @return true if no more messages are sent.
+     */
+    public boolean isShutdown()
+    {
+        return this.executor.isShutdown();
+    }
+
+    /**
+     * Stops the threads of this sender once all started requests are done. Messages that are still queued fail with
+     * {@link Reason#NO_CLIENT}.
+     */
+    public void shutdown()
+    {
+        this.executor.shutdown();
+    }
+
+    /**
+     * Converts the given exception which was thrown while sending a message into a {@link SendException}.
+     * 
+     * @param e
+     *            The thrown exception.
+     * @return The matching send exception.
+     */
+    public static SendException toSendException(Throwable e)
+    {
+        if (e instanceof SendException)
+        {
+            return (SendException)e;
+        }
+        if (e instanceof RateLimitException)
+        {
+            return new SendException(Reason.RATE_LIMITED, "The message was rate limited.", e);
+        }
+        if (e instanceof MissingPermissionsException)
+        {
+            return new SendException(Reason.MISSING_PERMISSIONS, "Missing permissions to send the message.", e);
+        }
+        if (e instanceof DiscordException)
+        {
+            return new SendException(Reason.DISCORD_ERROR, "Discord rejected the message.", e);
+        }
+        return new SendException(Reason.UNKNOWN, "The message could not be sent.", e);
+    }
+
+    /**
+     * Adds the given message to the queue of the given channel.
+     * 
+     * @param channelID
+     *            The long ID of the channel.
+     * @param message
+     *            The message.
+     */
+    void enqueue(long channelID, OutboundMessage message)
+    {
+        enqueue(channelID, message, false);
+    }
+
+    /**
+     * Adds the given message to the message or reaction queue of the given channel.
+     */
+    private void enqueue(long channelID, OutboundMessage message, boolean reaction)
+    {
+        if (this.inline.get())
+        {
+            getQueue(channelID, reaction).sendInline(message);
+            return;
+        }
+        while (!getQueue(channelID, reaction).offer(message))
+        {
+            // the queue was closed after it was looked up, the next lookup creates a new one
+        }
+    }
+
+    /**
+     * Gets the message or reaction queue of the given channel, which is created if the channel has none.
+     */
+    private ChannelQueue getQueue(long channelID, boolean reaction)
+    {
+        if (reaction)
+        {
+            return this.reactionQueues.computeIfAbsent(channelID,
+                    id -> new ChannelQueue(this, id, new RateLimitBucket(this.reactionLimit, this.reactionWindow)));
+        }
+        return this.queues.computeIfAbsent(channelID,
+                id -> new ChannelQueue(this, id, new RateLimitBucket(this.channelLimit, this.channelWindow)));
+    }
+
+    /**
+     * Makes room for the given posted message according to the {@link #overflowPolicy} and adds it to
+     * {@link #posted}.
+     * 
+     * @return false if the message has to be dropped.
+     */
+    private boolean reserve(OutboundMessage message)
+    {
+        List<OutboundMessage> dropped = new ArrayList<>(1);
+        try
+        {
+            return reserve(message, dropped);
+        }
+        finally
+        {
+            // completed outside of the lock, since the callbacks of the futures might post new messages
+            for (OutboundMessage oldest : dropped)
+            {
+                oldest.future.completeExceptionally(new SendException(Reason.DROPPED,
+                        "The message was dropped to make room for a newer one."));
+            }
+        }
+    }
+
+    /**
+     * Makes room for the given posted message and adds it to {@link #posted}.
+     * 
+     * @param dropped
+     *            The list to which messages that were dropped to make room are added.
+     * @return false if the message has to be dropped.
+     */
+    private boolean reserve(OutboundMessage message, List<OutboundMessage> dropped)
+    {
+        synchronized (this.posted)
+        {
+            long deadline = System.currentTimeMillis() + this.blockTimeout;
+            while (this.posted.size() >= this.postCapacity)
+            {
+                switch (this.overflowPolicy)
+                {
+                    case DROP_OLDEST:
+                        OutboundMessage oldest = dropOldest();
+                        if (oldest == null)
+                        {
+                            return false;
+                        }
+                        dropped.add(oldest);
+                        break;
+                    case BLOCK:
+                        long timeout = deadline - System.currentTimeMillis();
+                        if (timeout <= 0)
+                        {
+                            return false;
+                        }
+                        try
+                        {
+                            this.posted.wait(timeout);
+                        }
+                        catch (InterruptedException e)
+                        {
+                            Thread.currentThread().interrupt();
+                            return false;
+                        }
+                        break;
+                    default:
+                        return false;
+                }
+            }
+            this.posted.add(message);
+            return true;
+        }
+    }
+
+    /**
+     * Drops the oldest posted message whose request has not been started yet. Must be called while holding the lock
+     * of {@link #posted}. The future of the dropped message has to be completed by the caller.
+     * 
+     * @return The dropped message or null if all posted messages are being sent already.
+     */
+    private OutboundMessage dropOldest()
+    {
+        Iterator<OutboundMessage> iterator = this.posted.iterator();
+        while (iterator.hasNext())
+        {
+            OutboundMessage oldest = iterator.next();
+            // claimed atomically, a channel queue which starts the message at the same time skips it otherwise
+            if (oldest.drop())
+            {
+                iterator.remove();
+                this.droppedCount.incrementAndGet();
+                return oldest;
+            }
+        }
+        return null;
+    }
+
+    private void release(OutboundMessage message)
+    {
+        synchronized (this.posted)
+        {
+            this.posted.remove(message);
+            this.posted.notifyAll();
+        }
+    }
+
+    /**
+     * Runs the given task on the threads of this sender, before any waiting tasks of lower priority.
+     * 
+     * @return false if this sender has been shut down.
+     */
+    boolean execute(Runnable task, Priority priority)
+    {
+        try
+        {
+            this.executor.execute(new PrioritizedTask(() ->
+            {
+                this.senderThread.set(true);
+                try
+                {
+                    task.run();
+                }
+                finally
+                {
+                    this.senderThread.set(false);
+                }
+            }, priority, this.sequence.getAndIncrement()));
+            return true;
+        }
+        catch (RejectedExecutionException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Runs the given task after the given delay.
+     * 
+     * @return false if the task could not be scheduled.
+     */
+    boolean schedule(Runnable task, long delay)
+    {
+        if (this.executor.isShutdown())
+        {
+            return false;
+        }
+        try
+        {
+            Threads.schedulerPool.schedule(task, delay, TimeUnit.MILLISECONDS);
+            return true;
+        }
+        catch (RejectedExecutionException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Removes the given queue if it is still mapped to the given channel.
+     */
+    void removeQueue(long channelID, ChannelQueue queue)
+    {
+        if (!this.queues.remove(channelID, queue))
+        {
+            this.reactionQueues.remove(channelID, queue);
+        }
+    }
+
+    private static ExecutorService createExecutor(int threads)
+    {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads,
+                threads,
+                0,
+                TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(),
+                runnable ->
+                {
+                    Thread thread = new Thread(runnable, "MessageSender-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * A task which is ordered by its priority and then by the order in which it was started.
+     */
+    private static final class PrioritizedTask implements Runnable, Comparable<PrioritizedTask>
+    {
+        private final Runnable task;
+
+        private final Priority priority;
+
+        private final long sequence;
+
+        PrioritizedTask(Runnable task, Priority priority, long sequence)
+        {
+            this.task = task;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run()
+        {
+            this.task.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other)
+        {
+            int result = this.priority.compareTo(other.priority);
+            return result != 0 ? result : Long.compare(this.sequence, other.sequence);
+        }
+    }
+}
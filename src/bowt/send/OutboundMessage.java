@@ -0,0 +1,159 @@
+package bowt.send;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import sx.blah.discord.handle.obj.IChannel;
+import sx.blah.discord.handle.obj.IMessage;
+import sx.blah.discord.util.RequestBuffer.IRequest;
+
+/**
+ * A message which waits in a {@link ChannelQueue} to be sent.
+ * 
+ * @author &#8904
+ */
+class OutboundMessage
+{
+    /** The separator which is put between merged texts. */
+    static final String SEPARATOR = "\n";
+
+    /** The message waits to be sent. */
+    private static final int QUEUED = 0;
+
+    /** The request of the message has been started. */
+    private static final int STARTED = 1;
+
+    /** The message has been dropped and must not be sent. */
+    private static final int DROPPED = 2;
+
+    /** The request which sends the message. */
+    final IRequest<IMessage> request;
+
+    /** The future which is completed with the sent message. */
+    final CompletableFuture<IMessage> future;
+
+    /** The lane of the message. */
+    final Priority priority;
+
+    /** The time in milliseconds at which the message was queued. */
+    final long queuedAt;
+
+    /** The time in milliseconds before which the message is not sent, so that following texts can be merged. */
+    final long readyAt;
+
+    /** The text of a message which may be merged with following texts, otherwise null. */
+    private String text;
+
+    /**
+     * Either {@link #QUEUED}, {@link #STARTED} or {@link #DROPPED}. The queue which sends the message and the sender
+     * which drops it both claim it by changing the state, so a message is never dropped and sent.
+     */
+    private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+    /** The number of times the request has been rejected because of a rate limit. */
+    int attempts;
+
+    /**
+     * Creates a new message.
+     * 
+     * @param request
+     *            The request which sends the message.
+     * @param priority
+     *            The lane of the message.
+     */
+    OutboundMessage(IRequest<IMessage> request, Priority priority)
+    {
+        this.request = request;
+        this.future = new CompletableFuture<>();
+        this.priority = priority;
+        this.queuedAt = System.currentTimeMillis();
+        this.readyAt = 0;
+    }
+
+    /**
+     * Creates a new plain text message which following texts to the same channel can be merged into.
+     * 
+     * @param channel
+     *            The channel to which the message is sent.
+     * @param text
+     *            The text of the message.
+     * @param priority
+     *            The lane of the message.
+     * @param window
+     *            The time in milliseconds that the message waits for following texts.
+     */
+    OutboundMessage(IChannel channel, String text, Priority priority, long window)
+    {
+        this.request = () -> channel.sendMessage(this.text);
+        this.future = new CompletableFuture<>();
+        this.priority = priority;
+        this.queuedAt = System.currentTimeMillis();
+        this.readyAt = this.queuedAt + window;
+        this.text = text;
+    }
+
+    /**
+     * Gets the lane of this message after it has moved up one lane for every aging interval it has waited.
+     * 
+     * @param now
+     *            The current time in milliseconds.
+     * @param agingInterval
+     *            The aging interval in milliseconds.
+     * @return The effective lane.
+     */
+    Priority getPriority(long now, long agingInterval)
+    {
+        return this.priority.age((now - this.queuedAt) / agingInterval);
+    }
+
+    /**
+     * Claims this message for sending. No more texts may be merged afterwards.
+     * 
+     * @return true if the request may be performed, false if the message has been dropped.
+     */
+    boolean start()
+    {
+        return this.state.compareAndSet(QUEUED, STARTED) || this.state.get() == STARTED;
+    }
+
+    /**
+     * Claims this message for being dropped. The caller has to complete the future.
+     * 
+     * @return true if the message was dropped, false if its request has been started already.
+     */
+    boolean drop()
+    {
+        return this.state.compareAndSet(QUEUED, DROPPED);
+    }
+
+    /**
+     * Appends the text of the given message to the text of this one, if both can be merged and the result still fits
+     * into one Discord message. The future of the given message is then completed together with the future of this
+     * one. Must be called while holding the lock of the queue.
+     * 
+     * @param other
+     *            The following message.
+     * @return true if the text was merged.
+     */
+    boolean merge(OutboundMessage other)
+    {
+        if (this.text == null || other.text == null || this.state.get() != QUEUED || this.future.isDone()
+                || this.text.length() + SEPARATOR.length() + other.text.length() > IMessage.MAX_MESSAGE_LENGTH)
+        {
+            return false;
+        }
+        this.text = this.text + SEPARATOR + other.text;
+        this.future.whenComplete((message, e) ->
+        {
+            if (e == null)
+            {
+                other.future.complete(message);
+            }
+            else
+            {
+                other.future.completeExceptionally(e);
+            }
+        });
+        return true;
+    }
+}
@@ -0,0 +1,19 @@
+package bowt.send;
+
+/**
+ * Decides what happens to a posted message when the buffer of the {@link MessageSender} is full.
+ * 
+ * @author &#8904
+ * @see MessageSender#post(sx.blah.discord.handle.obj.IChannel, sx.blah.discord.util.RequestBuffer.IRequest, Priority)
+ */
+public enum OverflowPolicy
+{
+    /** The oldest waiting message is dropped to make room. */
+    DROP_OLDEST,
+
+    /** The new message is dropped. */
+    DROP_NEWEST,
+
+    /** The caller waits for room up to the block timeout, after which the new message is dropped. */
+    BLOCK
+}
@@ -0,0 +1,127 @@
+package bowt.send;
+
+import java.util.function.IntFunction;
+
+import sx.blah.discord.api.internal.json.objects.EmbedObject;
+import sx.blah.discord.handle.obj.IMessage;
+
+/**
+ * A sent message which shows one page of a list at a time.
+ * 
+ * <p>
+ * Only the page which is shown is rendered. Other pages are rendered when a user turns to them, so pages nobody looks
+ * at cost neither time nor requests.
+ * </p>
+ * 
+ * @author &#8904
+ * @see bowt.hand.impl.PaginationHandler
+ */
+public class PagedMessage
+{
+    /** The number of list elements per page if none has been given. */
+    public static final int DEFAULT_PAGE_SIZE = 10;
+
+    /** The message which shows the pages. */
+    private final IMessage message;
+
+    /** Renders the page with the given index. */
+    private final IntFunction<EmbedObject> renderer;
+
+    /** The number of pages. */
+    private final int pageCount;
+
+    /** The index of the page that is shown. */
+    private int page;
+
+    /** The time in milliseconds at which the page was last turned. */
+    private volatile long lastUsed;
+
+    /**
+     * Creates a new paged message which shows its first page.
+     * 
+     * @param message
+     *            The message which shows the pages.
+     * @param renderer
+     *            Renders the page with the given index.
+     * @param pageCount
+     *            The number of pages.
+     */
+    public PagedMessage(IMessage message, IntFunction<EmbedObject> renderer, int pageCount)
+    {
+        this.message = message;
+        this.renderer = renderer;
+        this.pageCount = pageCount;
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Turns the given number of pages forward or backward, staying within the first and last page.
+     * 
+     * @param pages
+     *            The number of pages, negative to turn backward.
+     * @return The index of the new page or -1 if the page did not change.
+     */
+    public synchronized int turn(int pages)
+    {
+        this.lastUsed = System.currentTimeMillis();
+        int turned = Math.max(0, Math.min(this.pageCount - 1, this.page + pages));
+        if (turned == this.page)
+        {
+            return -1;
+        }
+        this.page = turned;
+        return turned;
+    }
+
+    /**
+     * Renders the page with the given index.
+     * 
+     * @param page
+     *            The index of the page.
+     * @return The embed which shows the page.
+     */
+    public EmbedObject render(int page)
+    {
+        return this.renderer.apply(page);
+    }
+
+    /**
+     * Gets the message which shows the pages.
+     * 
+     * @return The message.
+     */
+    public IMessage getMessage()
+    {
+        return this.message;
+    }
+
+    /**
+     * Gets the number of pages.
+     * 
+     * @return The number of pages.
+     */
+    public int getPageCount()
+    {
+        return this.pageCount;
+    }
+
+    /**
+     * Gets the index of the page which is shown.
+     * 
+     * @return The index of the page.
+     */
+    public synchronized int getPage()
+    {
+        return this.page;
+    }
+
+    /**
+     * Gets the time at which the page was last turned, or at which the message was created if it never was.
+     * 
+     * @return The time in milliseconds.
+     */
+    public long getLastUsed()
+    {
+        return this.lastUsed;
+    }
+}
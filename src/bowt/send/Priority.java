@@ -0,0 +1,55 @@
+package bowt.send;
+
+/**
+ * The lanes of the {@link MessageSender}.
+ * 
+ * <p>
+ * Messages of a higher lane are sent before waiting messages of lower lanes, and lower lanes leave a share of the
+ * global rate limit free for the higher ones. To keep lower lanes from starving, a waiting message moves up one lane
+ * for every {@link MessageSender#setAgingInterval(long) aging interval} it has waited.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public enum Priority
+{
+    /** Replies to users, which should be sent as fast as possible. */
+    INTERACTIVE(0),
+
+    /** Messages which nobody waits for, like log dumps. */
+    BACKGROUND(0.1),
+
+    /** Large amounts of messages, like announcements to many guilds, which use whatever capacity is left. */
+    BULK(0.2);
+
+    /** The share of the global limit which messages of this lane leave free for higher lanes. */
+    private final double reserve;
+
+    private Priority(double reserve)
+    {
+        this.reserve = reserve;
+    }
+
+    /**
+     * Gets the share of the global limit which messages of this lane leave free for higher lanes.
+     * 
+     * @return The share between 0 and 1.
+     */
+    public double getReserve()
+    {
+        return this.reserve;
+    }
+
+    /**
+     * Gets the lane that a message of this lane is treated as after it has waited for the given number of aging
+     * intervals.
+     * 
+     * @param intervals
+     *            The number of aging intervals the message has waited.
+     * @return The effective lane.
+     */
+    public Priority age(long intervals)
+    {
+        return values()[(int)Math.max(0, ordinal() - intervals)];
+    }
+}
@@ -0,0 +1,142 @@
+package bowt.send;
+
+/**
+ * Counts the requests of one rate limit route within fixed windows.
+ * 
+ * <p>
+ * Discord allows a fixed number of requests per route within a window that starts with the first request and resets
+ * after a fixed time. This bucket mirrors that, so requests can be delayed until the window resets instead of being
+ * rejected with a 429. If Discord rejects a request anyway, {@link #limited(long, long)} adopts the retry delay it
+ * sent.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public class RateLimitBucket
+{
+    /** The number of requests per window. */
+    private int limit;
+
+    /** The length of a window in milliseconds. */
+    private long window;
+
+    /** The number of requests left in the current window. */
+    private int remaining;
+
+    /** The time in milliseconds at which the current window ends. */
+    private long resetAt;
+
+    /**
+     * Creates a new bucket.
+     * 
+     * @param limit
+     *            The number of requests per window.
+     * @param window
+     *            The length of a window in milliseconds.
+     */
+    public RateLimitBucket(int limit, long window)
+    {
+        setLimit(limit, window);
+    }
+
+    /**
+     * Changes the limit of this bucket. The change applies from the next window on.
+     * 
+     * @param limit
+     *            The number of requests per window.
+     * @param window
+     *            The length of a window in milliseconds.
+     */
+    public synchronized void setLimit(int limit, long window)
+    {
+        if (limit < 1 || window < 1)
+        {
+            throw new IllegalArgumentException("The limit and window must be positive.");
+        }
+        this.limit = limit;
+        this.window = window;
+        this.remaining = Math.min(this.remaining, limit);
+    }
+
+    /**
+     * Gets the time until a request may be made, without taking it.
+     * 
+     * @param now
+     *            The current time in milliseconds.
+     * @return The delay in milliseconds, 0 if a request may be made right away.
+     */
+    public synchronized long delay(long now)
+    {
+        if (now >= this.resetAt)
+        {
+            return 0;
+        }
+        return this.remaining > 0 ? 0 : this.resetAt - now;
+    }
+
+    /**
+     * Takes a request from this bucket if one is left.
+     * 
+     * @param now
+     *            The current time in milliseconds.
+     * @return 0 if the request was taken, otherwise the delay in milliseconds until one is available.
+     */
+    public synchronized long acquire(long now)
+    {
+        return acquire(now, 0);
+    }
+
+    /**
+     * Takes a request from this bucket if more than the given share of its limit is left.
+     * 
+     * <p>
+     * This lets less important requests leave room for more important ones that use the same bucket.
+     * </p>
+     * 
+     * @param now
+     *            The current time in milliseconds.
+     * @param reserve
+     *            The share of the limit between 0 and 1 which has to be left.
+     * @return 0 if the request was taken, otherwise the delay in milliseconds until one is available.
+     */
+    public synchronized long acquire(long now, double reserve)
+    {
+        if (now >= this.resetAt)
+        {
+            this.remaining = this.limit;
+            this.resetAt = now + this.window;
+        }
+        if (this.remaining > (int)(this.limit * reserve))
+        {
+            this.remaining -- ;
+            return 0;
+        }
+        return this.resetAt - now;
+    }
+
+    /**
+     * Marks this bucket as exhausted after Discord rejected a request.
+     * 
+     * @param now
+     *            The current time in milliseconds.
+     * @param retryDelay
+     *            The delay in milliseconds after which Discord accepts requests again.
+     */
+    public synchronized void limited(long now, long retryDelay)
+    {
+        this.remaining = 0;
+        this.resetAt = Math.max(this.resetAt, now + retryDelay);
+    }
+
+    /**
+     * Gets the time until the current window ends and this bucket has no influence on future requests anymore.
+     * 
+     * @param now
+     *            The current time in milliseconds.
+     * @return The delay in milliseconds, 0 if the window has already ended.
+     */
+    public synchronized long getResetDelay(long now)
+    {
+        return Math.max(0, this.resetAt - now);
+    }
+}
@@ -0,0 +1,103 @@
+package bowt.util.coll;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter for primitive longs.
+ * 
+ * <p>
+ * {@link #mightContain(long)} never returns false for an added value, but may return true for values that were never
+ * added with roughly the false positive rate the filter was created with. Values can not be removed. All methods are
+ * thread safe and lookups do not lock.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public class LongBloomFilter
+{
+    /** The bits of the filter. */
+    private final AtomicLongArray bits;
+
+    /** The number of bits. */
+    private final long bitCount;
+
+    /** The number of bits that are set for every value. */
+    private final int hashCount;
+
+    /**
+     * Creates a new filter which is sized for the given number of values and false positive rate.
+     * 
+     * @param expectedSize
+     *            The expected number of values.
+     * @param falsePositiveRate
+     *            The desired false positive rate, for example 0.01.
+     */
+    public LongBloomFilter(int expectedSize, double falsePositiveRate)
+    {
+        long n = Math.max(expectedSize, 1);
+        long m = (long)Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int)Math.min(Integer.MAX_VALUE, Math.max(1, (m + 63) / 64));
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long)words * 64;
+        this.hashCount = Math.max(1, (int)Math.round((double)this.bitCount / n * Math.log(2)));
+    }
+
+    /**
+     * Adds the given value.
+     * 
+     * @param value
+     *            The value.
+     */
+    public void add(long value)
+    {
+        long hash1 = mix(value);
+        long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < this.hashCount; i ++ )
+        {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % this.bitCount;
+            int word = (int)(bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = this.bits.get(word)) & mask) == 0)
+            {
+                if (this.bits.compareAndSet(word, current, current | mask))
+                {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given value might have been added.
+     * 
+     * @param value
+     *            The value.
+     * @return false if the value has definitely not been added, true if it probably has.
+     */
+    public boolean mightContain(long value)
+    {
+        long hash1 = mix(value);
+        long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < this.hashCount; i ++ )
+        {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % this.bitCount;
+            if ((this.bits.get((int)(bit >>> 6)) & (1L << bit)) == 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The finalizer of the SplitMix64 generator, which spreads every input bit over the whole result.
+     */
+    private static long mix(long value)
+    {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
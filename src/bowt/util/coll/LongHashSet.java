@@ -0,0 +1,239 @@
+package bowt.util.coll;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive longs which uses open addressing with linear probing.
+ * 
+ * <p>
+ * Unlike a {@code HashSet<Long>} this does not box its elements, so lookups do not allocate and every element only
+ * costs 8 to 16 bytes. This class is not thread safe.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public class LongHashSet
+{
+    /** Marks an empty slot. The value 0 itself is tracked by {@link #containsZero}. */
+    private static final long EMPTY = 0;
+
+    /** The maximum ratio of used slots before the table is grown. */
+    private static final float LOAD_FACTOR = 0.6f;
+
+    /** The slots of the table. Its length is always a power of two. */
+    private long[] keys;
+
+    /** The number of non zero elements. */
+    private int size;
+
+    /** Indicates whether the value 0 is contained. */
+    private boolean containsZero;
+
+    /**
+     * Creates a new empty set.
+     */
+    public LongHashSet()
+    {
+        this(16);
+    }
+
+    /**
+     * Creates a new empty set which can hold the given number of elements without growing.
+     * 
+     * @param expectedSize
+     *            The expected number of elements.
+     */
+    public LongHashSet(int expectedSize)
+    {
+        this.keys = new long[tableSize(expectedSize)];
+    }
+
+    /**
+     * Adds the given value.
+     * 
+     * @param value
+     *            The value.
+     * @return true if the value was not contained yet.
+     */
+    public boolean add(long value)
+    {
+        if (value == EMPTY)
+        {
+            boolean added = !this.containsZero;
+            this.containsZero = true;
+            return added;
+        }
+
+        int mask = this.keys.length - 1;
+        int slot = hash(value) & mask;
+        while (this.keys[slot] != EMPTY)
+        {
+            if (this.keys[slot] == value)
+            {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        this.keys[slot] = value;
+        if ( ++ this.size > this.keys.length * LOAD_FACTOR)
+        {
+            rehash(this.keys.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the given value.
+     * 
+     * @param value
+     *            The value.
+     * @return true if the value was contained.
+     */
+    public boolean remove(long value)
+    {
+        if (value == EMPTY)
+        {
+            boolean removed = this.containsZero;
+            this.containsZero = false;
+            return removed;
+        }
+
+        int mask = this.keys.length - 1;
+        int slot = hash(value) & mask;
+        while (this.keys[slot] != value)
+        {
+            if (this.keys[slot] == EMPTY)
+            {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // shift following entries back, so that no probe sequence is interrupted by the new gap
+        int gap = slot;
+        slot = (slot + 1) & mask;
+        while (this.keys[slot] != EMPTY)
+        {
+            int home = hash(this.keys[slot]) & mask;
+            if (((slot - home) & mask) >= ((slot - gap) & mask))
+            {
+                this.keys[gap] = this.keys[slot];
+                gap = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        this.keys[gap] = EMPTY;
+        this.size -- ;
+        return true;
+    }
+
+    /**
+     * Checks whether the given value is contained.
+     * 
+     * @param value
+     *            The value.
+     * @return true if the value is contained.
+     */
+    public boolean contains(long value)
+    {
+        if (value == EMPTY)
+        {
+            return this.containsZero;
+        }
+
+        int mask = this.keys.length - 1;
+        int slot = hash(value) & mask;
+        long key;
+        while ((key = this.keys[slot]) != EMPTY)
+        {
+            if (key == value)
+            {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of contained values.
+     * 
+     * @return The size.
+     */
+    public int size()
+    {
+        return this.size + (this.containsZero ? 1 : 0);
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void clear()
+    {
+        Arrays.fill(this.keys, EMPTY);
+        this.size = 0;
+        this.containsZero = false;
+    }
+
+    /**
+     * Copies all contained values into a new array.
+     * 
+     * @return The unsorted values.
+     */
+    public long[] toArray()
+    {
+        long[] values = new long[size()];
+        int i = 0;
+        if (this.containsZero)
+        {
+            values[i ++ ] = EMPTY;
+        }
+        for (long key : this.keys)
+        {
+            if (key != EMPTY)
+            {
+                values[i ++ ] = key;
+            }
+        }
+        return values;
+    }
+
+    private void rehash(int tableSize)
+    {
+        long[] old = this.keys;
+        this.keys = new long[tableSize];
+        int mask = tableSize - 1;
+        for (long key : old)
+        {
+            if (key != EMPTY)
+            {
+                int slot = hash(key) & mask;
+                while (this.keys[slot] != EMPTY)
+                {
+                    slot = (slot + 1) & mask;
+                }
+                this.keys[slot] = key;
+            }
+        }
+    }
+
+    private static int tableSize(int expectedSize)
+    {
+        long needed = (long)Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR) + 1;
+        int size = 16;
+        while (size < needed && size < (1 << 30))
+        {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * Spreads the bits of the given value, since Discord IDs share most of their high bits.
+     */
+    private static int hash(long value)
+    {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int)(hash ^ (hash >>> 32));
+    }
+}
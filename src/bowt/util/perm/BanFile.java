@@ -0,0 +1,173 @@
+package bowt.util.perm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A memory-mapped file which contains the sorted IDs of banned users.
+ * 
+ * <p>
+ * The file consists of a small header followed by the IDs as a sorted array of big endian longs. Opening the file
+ * only maps it, so no ID is read until it is needed, and {@link #contains(long)} is a binary search directly on the
+ * mapped memory.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public class BanFile
+{
+    /** Identifies a ban file. */
+    public static final int MAGIC = 0x4242414E;
+
+    /** The version of the file format. */
+    public static final int VERSION = 1;
+
+    /** The size of the header which holds the magic number, the version and the number of IDs. */
+    private static final int HEADER_SIZE = 16;
+
+    /** The mapped IDs. */
+    private final LongBuffer ids;
+
+    /** The number of IDs. */
+    private final int size;
+
+    private BanFile(LongBuffer ids)
+    {
+        this.ids = ids;
+        this.size = ids.limit();
+    }
+
+    /**
+     * Memory-maps the given ban file.
+     * 
+     * @param file
+     *            The ban file.
+     * @return The opened file.
+     * @throws IOException
+     *             If the file could not be read or is not a valid ban file.
+     */
+    public static BanFile open(Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC)
+            {
+                throw new IOException("The file is not a ban file.");
+            }
+            if (buffer.getInt() != VERSION)
+            {
+                throw new IOException("Unsupported ban file version.");
+            }
+            long count = buffer.getLong();
+            if (count < 0 || count > (buffer.capacity() - HEADER_SIZE) / 8)
+            {
+                throw new IOException("The ban file is truncated.");
+            }
+            LongBuffer ids = buffer.asLongBuffer();
+            ids.limit((int)count);
+            return new BanFile(ids);
+        }
+    }
+
+    /**
+     * Writes the given IDs into a new ban file.
+     * 
+     * <p>
+     * The file is written to a temporary file first and then moved to the target, so that a mapped older version is
+     * never modified.
+     * </p>
+     * 
+     * @param file
+     *            The ban file.
+     * @param ids
+     *            The IDs. The array will be sorted.
+     * @throws IOException
+     *             If the file could not be written.
+     */
+    public static void write(Path file, long[] ids) throws IOException
+    {
+        Arrays.sort(ids);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + ids.length * 8);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(ids.length);
+            buffer.asLongBuffer().put(ids);
+            buffer.rewind();
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Checks whether the given ID is contained in this file.
+     * 
+     * @param id
+     *            The ID.
+     * @return true if the ID is contained.
+     */
+    public boolean contains(long id)
+    {
+        int low = 0;
+        int high = this.size - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            long value = this.ids.get(mid);
+            if (value < id)
+            {
+                low = mid + 1;
+            }
+            else if (value > id)
+            {
+                high = mid - 1;
+            }
+            else
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the ID at the given index.
+     * 
+     * @param index
+     *            The index.
+     * @return The ID.
+     */
+    public long get(int index)
+    {
+        return this.ids.get(index);
+    }
+
+    /**
+     * Gets the number of IDs in this file.
+     * 
+     * @return The number of IDs.
+     */
+    public int size()
+    {
+        return this.size;
+    }
+}
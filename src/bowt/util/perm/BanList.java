@@ -0,0 +1,339 @@
+package bowt.util.perm;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import bowt.bot.Bot;
+import bowt.util.coll.LongBloomFilter;
+import bowt.util.coll.LongHashSet;
+
+/**
+ * The IDs of the users that are banned from using commands of a {@link Bot}.
+ * 
+ * <p>
+ * The IDs are kept in a {@link LongHashSet} with a {@link LongBloomFilter} in front of it. Since almost no user that
+ * sends a command is banned, {@link #isBanned(long)} can usually answer with a few hash probes into the filter and
+ * without taking any lock. Only the rare positive answers of the filter are confirmed with the exact set.
+ * </p>
+ * 
+ * <p>
+ * Large lists can be {@link #load(BanFile) loaded} from a memory-mapped {@link BanFile}. Its IDs are looked up with a
+ * binary search on the mapped file, and only the changes that are made afterwards are kept on the heap.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public class BanList
+{
+    /** The false positive rate the filter is sized for. */
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    /** The minimum number of IDs the filter is sized for. */
+    private static final int MIN_FILTER_CAPACITY = 1024;
+
+    /** The banned IDs which are not contained in {@link #base}. */
+    private final LongHashSet ids;
+
+    /** The IDs of {@link #base} which have been unbanned. */
+    private final LongHashSet removed;
+
+    /** The file with the sorted IDs that were banned when it was loaded or null. */
+    private BanFile base;
+
+    /** Guards {@link #ids}, {@link #removed} and {@link #base}. */
+    private final ReadWriteLock lock;
+
+    /** The filter which contains at least all banned IDs. */
+    private volatile LongBloomFilter filter;
+
+    /** The number of IDs the current filter is sized for. */
+    private int filterCapacity;
+
+    /** The number of IDs that have been unbanned since the filter was built, but are still set in it. */
+    private int staleCount;
+
+    /**
+     * Creates a new empty ban list.
+     */
+    public BanList()
+    {
+        this.ids = new LongHashSet();
+        this.removed = new LongHashSet();
+        this.lock = new ReentrantReadWriteLock();
+        rebuildFilter();
+    }
+
+    /**
+     * Checks whether the user with the given ID is banned.
+     * 
+     * @param id
+     *            The long ID of the user.
+     * @return true if the user is banned.
+     */
+    public boolean isBanned(long id)
+    {
+        if (!this.filter.mightContain(id))
+        {
+            return false;
+        }
+        this.lock.readLock().lock();
+        try
+        {
+            return contains(id);
+        }
+        finally
+        {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bans the user with the given ID.
+     * 
+     * @param id
+     *            The long ID of the user.
+     * @return true if the user was not banned yet.
+     */
+    public boolean ban(long id)
+    {
+        this.lock.writeLock().lock();
+        try
+        {
+            if (!add(id))
+            {
+                return false;
+            }
+            if (size() > this.filterCapacity)
+            {
+                rebuildFilter();
+            }
+            else
+            {
+                this.filter.add(id);
+            }
+            return true;
+        }
+        finally
+        {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Bans all users with the given IDs at once.
+     * 
+     * <p>
+     * This takes the lock and resizes the filter only once, which makes importing large lists linear in their size.
+     * </p>
+     * 
+     * @param ids
+     *            The long IDs of the users.
+     * @return The number of users that were not banned yet.
+     */
+    public int banAll(long[] ids)
+    {
+        this.lock.writeLock().lock();
+        try
+        {
+            int added = 0;
+            for (long id : ids)
+            {
+                if (add(id))
+                {
+                    added ++ ;
+                }
+            }
+            if (size() > this.filterCapacity)
+            {
+                rebuildFilter();
+            }
+            else
+            {
+                for (long id : ids)
+                {
+                    this.filter.add(id);
+                }
+            }
+            return added;
+        }
+        finally
+        {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the ban of the user with the given ID.
+     * 
+     * <p>
+     * The ID stays in the filter until it is rebuilt, which happens once enough IDs have been unbanned to noticeably
+     * raise its false positive rate.
+     * </p>
+     * 
+     * @param id
+     *            The long ID of the user.
+     * @return true if the user was banned.
+     */
+    public boolean unban(long id)
+    {
+        this.lock.writeLock().lock();
+        try
+        {
+            boolean unbanned = this.ids.remove(id)
+                    || (this.base != null && this.base.contains(id) && this.removed.add(id));
+            if (unbanned && ++ this.staleCount > this.filterCapacity / 2)
+            {
+                rebuildFilter();
+            }
+            return unbanned;
+        }
+        finally
+        {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces all bans of this list with the IDs of the given file.
+     * 
+     * <p>
+     * The IDs are not copied onto the heap. Only the filter is built from them, which is a single sequential pass over
+     * the file.
+     * </p>
+     * 
+     * @param file
+     *            The opened ban file.
+     */
+    public void load(BanFile file)
+    {
+        this.lock.writeLock().lock();
+        try
+        {
+            this.base = file;
+            this.ids.clear();
+            this.removed.clear();
+            rebuildFilter();
+        }
+        finally
+        {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes all banned IDs into the given {@link BanFile}.
+     * 
+     * @param file
+     *            The target file.
+     * @throws IOException
+     *             If the file could not be written.
+     */
+    public void write(Path file) throws IOException
+    {
+        BanFile.write(file, toArray());
+    }
+
+    /**
+     * Gets the number of banned users.
+     * 
+     * @return The number of banned IDs.
+     */
+    public int size()
+    {
+        this.lock.readLock().lock();
+        try
+        {
+            return (this.base != null ? this.base.size() - this.removed.size() : 0) + this.ids.size();
+        }
+        finally
+        {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the IDs of all banned users into a new array.
+     * 
+     * @return The IDs, sorted if a {@link BanFile} has been loaded and no IDs have been banned since.
+     */
+    public long[] toArray()
+    {
+        this.lock.readLock().lock();
+        try
+        {
+            long[] added = this.ids.toArray();
+            if (this.base == null)
+            {
+                return added;
+            }
+
+            long[] all = Arrays.copyOf(added, added.length + this.base.size() - this.removed.size());
+            int i = added.length;
+            for (int index = 0; index < this.base.size(); index ++ )
+            {
+                long id = this.base.get(index);
+                if (!this.removed.contains(id))
+                {
+                    all[i ++ ] = id;
+                }
+            }
+            return all;
+        }
+        finally
+        {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks the exact sets. Must be called while holding a lock.
+     */
+    private boolean contains(long id)
+    {
+        if (this.ids.contains(id))
+        {
+            return true;
+        }
+        return this.base != null && !this.removed.contains(id) && this.base.contains(id);
+    }
+
+    /**
+     * Adds the given ID to the exact sets. Must be called while holding the write lock.
+     */
+    private boolean add(long id)
+    {
+        if (this.base != null && this.base.contains(id))
+        {
+            // the ID was in the file and might have been unbanned since
+            return this.removed.remove(id);
+        }
+        return this.ids.add(id);
+    }
+
+    /**
+     * Builds a new filter from all banned IDs which is sized for twice their number. Must be called while holding the
+     * write lock.
+     */
+    private void rebuildFilter()
+    {
+        int capacity = Math.max(MIN_FILTER_CAPACITY, size() * 2);
+        LongBloomFilter rebuilt = new LongBloomFilter(capacity, FALSE_POSITIVE_RATE);
+        for (long id : this.ids.toArray())
+        {
+            rebuilt.add(id);
+        }
+        if (this.base != null)
+        {
+            for (int index = 0; index < this.base.size(); index ++ )
+            {
+                rebuilt.add(this.base.get(index));
+            }
+        }
+        this.filter = rebuilt;
+        this.filterCapacity = capacity;
+        this.staleCount = 0;
+    }
+}
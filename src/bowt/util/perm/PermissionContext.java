@@ -0,0 +1,233 @@
+package bowt.util.perm;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.LongPredicate;
+import java.util.stream.IntStream;
+
+import sx.blah.discord.handle.obj.IUser;
+import bowt.bot.Bot;
+import bowt.evnt.impl.CommandEvent;
+import bowt.guild.GuildObject;
+
+/**
+ * Resolves permission levels for the users of a single {@link Bot}.
+ * 
+ * <p>
+ * An instance is bound to its bot and can be obtained via {@link Bot#getPermissionContext()} or
+ * {@link CommandEvent#getPermissionContext()}. Since no client ID lookup is needed, multiple bots can run in the same
+ * JVM without interfering with each other.
+ * </p>
+ * 
+ * @author &#8904
+ */
+public class PermissionContext
+{
+    /** The bot whichs creators, bans and guilds are used to resolve the permission levels. */
+    protected final Bot bot;
+
+    /**
+     * Creates a new context for the given bot.
+     * 
+     * @param bot
+     *            The bot for which permission levels should be resolved.
+     */
+    public PermissionContext(Bot bot)
+    {
+        this.bot = bot;
+    }
+
+    /**
+     * Gets the bot this context is bound to.
+     * 
+     * @return The bot.
+     */
+    public Bot getBot()
+    {
+        return this.bot;
+    }
+
+    /**
+     * Gets the permission level of the given user on that guild.
+     * 
+     * @param user
+     * @param guild
+     * @return <ul>
+     *         <li>{@link UserPermissions#CREATOR}</li>
+     *         <li>{@link UserPermissions#APP_OWNER}</li>
+     *         <li>{@link UserPermissions#OWNER}</li>
+     *         <li>{@link UserPermissions#MASTER}</li>
+     *         <li>{@link UserPermissions#USER}</li>
+     *         <li>{@link UserPermissions#NONE}</li>
+     *         </ul>
+     */
+    public int getPermissionLevel(IUser user, GuildObject guild)
+    {
+        return resolveLevel(user.getLongID(),
+                id -> this.bot.isBanned(user),
+                id -> this.bot.isCreator(user),
+                id -> this.bot.isAppOwner(user),
+                id -> guild.isOwner(user),
+                id -> guild.isMaster(user));
+    }
+
+    /**
+     * Gets the permission level of the given user.
+     * <p>
+     * <b>Note</b> that this will return {@link UserPermissions#MASTER} or {@link UserPermissions#OWNER} if the user is
+     * a master or owner on any registered guild. This method should only be used for private message handling.
+     * </p>
+     * 
+     * @param user
+     * @return <ul>
+     *         <li>{@link UserPermissions#CREATOR}</li>
+     *         <li>{@link UserPermissions#APP_OWNER}</li>
+     *         <li>{@link UserPermissions#OWNER}</li>
+     *         <li>{@link UserPermissions#MASTER}</li>
+     *         <li>{@link UserPermissions#USER}</li>
+     *         <li>{@link UserPermissions#NONE}</li>
+     *         </ul>
+     */
+    public int getPermissionLevel(IUser user)
+    {
+        return resolveLevel(user.getLongID(),
+                id -> this.bot.isBanned(user),
+                id -> this.bot.isCreator(user),
+                id -> this.bot.isAppOwner(user),
+                id -> this.bot.isOwner(user),
+                id -> this.bot.isMaster(user));
+    }
+
+    /**
+     * Gets the permission levels of all the given users on that guild.
+     * 
+     * <p>
+     * The bot and guild information is only looked up once for the whole collection, which makes this considerably
+     * faster than calling {@link #getPermissionLevel(IUser, GuildObject)} for every single user. If the collection
+     * contains at least {@link UserPermissions#PARALLEL_THRESHOLD} IDs the levels will be resolved in parallel.
+     * </p>
+     * 
+     * @param guild
+     *            The guild on which the permission levels should be checked.
+     * @param userIDs
+     *            The long IDs of the users.
+     * @return An array containing the permission level for each ID in the iteration order of the given collection.
+     */
+    public int[] getPermissionLevels(GuildObject guild, Collection<Long> userIDs)
+    {
+        long[] ids = new long[userIDs.size()];
+        int i = 0;
+        for (Long id : userIDs)
+        {
+            ids[i ++ ] = id;
+        }
+        return getPermissionLevels(guild, ids, ids.length >= UserPermissions.PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Gets the permission levels of all the given users on that guild.
+     * 
+     * @param guild
+     *            The guild on which the permission levels should be checked.
+     * @param userIDs
+     *            The long IDs of the users.
+     * @param parallel
+     *            true if the levels should be resolved in parallel.
+     * @return An array containing the permission level for each ID at the same index.
+     * 
+     * @see #getPermissionLevels(GuildObject, Collection)
+     */
+    public int[] getPermissionLevels(GuildObject guild, long[] userIDs, boolean parallel)
+    {
+        BanList banned = this.bot.getBanList();
+        Set<Long> creators = toLongSet(this.bot.getCreators());
+        Set<Long> owners = toLongSet(guild.getOwners());
+        Set<Long> masters = toLongSet(guild.getMasters());
+        long appOwner = this.bot.getAppOwnerID();
+
+        int[] levels = new int[userIDs.length];
+        IntStream indices = IntStream.range(0, userIDs.length);
+
+        if (parallel)
+        {
+            indices = indices.parallel();
+        }
+
+        indices.forEach(i -> levels[i] = resolveLevel(userIDs[i],
+                banned::isBanned,
+                creators::contains,
+                id -> id == appOwner,
+                owners::contains,
+                masters::contains));
+
+        return levels;
+    }
+
+    /**
+     * Resolves the permission level of a user from the given checks. The checks are made in the order of the
+     * parameters and only until one of them applies, so the single user lookups and
+     * {@link #getPermissionLevels(GuildObject, long[], boolean)} share the same precedence of levels.
+     * 
+     * @param userID
+     *            The long ID of the user.
+     * @param banned
+     *            Checks whether the user is banned.
+     * @param creator
+     *            Checks whether the user is a creator.
+     * @param appOwner
+     *            Checks whether the user owns the application.
+     * @param owner
+     *            Checks whether the user is an owner.
+     * @param master
+     *            Checks whether the user is a master.
+     * @return The permission level.
+     */
+    private static int resolveLevel(long userID,
+            LongPredicate banned,
+            LongPredicate creator,
+            LongPredicate appOwner,
+            LongPredicate owner,
+            LongPredicate master)
+    {
+        if (banned.test(userID))
+        {
+            return UserPermissions.NONE;
+        }
+        else if (creator.test(userID))
+        {
+            return UserPermissions.CREATOR;
+        }
+        else if (appOwner.test(userID))
+        {
+            return UserPermissions.APP_OWNER;
+        }
+        else if (owner.test(userID))
+        {
+            return UserPermissions.OWNER;
+        }
+        else if (master.test(userID))
+        {
+            return UserPermissions.MASTER;
+        }
+        return UserPermissions.USER;
+    }
+
+    private Set<Long> toLongSet(Collection<String> ids)
+    {
+        Set<Long> set = new HashSet<>(ids.size() * 2);
+        for (String id : ids)
+        {
+            try
+            {
+                set.add(Long.parseLong(id));
+            }
+            catch (NumberFormatException e)
+            {
+                // the user keeps a lower level, but the broken entry should be fixed
+                Bot.errorLog.print(this, e);
+            }
+        }
+        return set;
+    }
+}
@@ -1,6 +1,7 @@
 package bowt.util.perm;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
@@ -17,7 +18,8 @@ import bowt.guild.GuildObject;
  * A utility class which contains methods to check for user permissions.
  * 
  * <p>
- * You have to set a {@link Bot} instance by calling {@link #setBot(Bot)}.
+ * You have to set a {@link Bot} instance by calling {@link #setBot(Bot)} before using the static permission level
+ * methods. The {@link PermissionContext} of a bot can be used without registration.
  * </p>
  * 
  * @author &#8904
@@ -64,17 +66,28 @@ public final class UserPermissions
     /** Permission level for users with no rights. */
     public static final int NONE = 0;
 
-    private static Map<String, Bot> bots = new ConcurrentHashMap<>();
+    /**
+     * The number of users from which on {@link #getPermissionLevels(GuildObject, long[])} will resolve the levels in
+     * parallel.
+     */
+    public static final int PARALLEL_THRESHOLD = 10000;
+
+    private static Map<String, PermissionContext> contexts = new ConcurrentHashMap<>();
 
     /**
      * Sets the {@link Bot} which guilds should be checked for permissions.
      * 
+     * <p>
+     * This is only needed for the static methods of this class. Code that has access to a {@link PermissionContext}
+     * should use that instead.
+     * </p>
+     * 
      * @param bot
      *            The bot for which this class will be used.
      */
     public static synchronized void setBot(Bot bot)
     {
-        bots.put(bot.getClient().getApplicationClientID(), bot);
+        contexts.put(bot.getClient().getApplicationClientID(), bot.getPermissionContext());
     }
 
     /**
@@ -162,6 +175,11 @@ public final class UserPermissions
     /**
      * Gets the permission level of the given user on that guild.
      * 
+     * <p>
+     * This looks up the {@link PermissionContext} of the bot by the users client ID on every call. Prefer using
+     * {@link PermissionContext#getPermissionLevel(IUser, GuildObject)} directly if the context is available.
+     * </p>
+     * 
      * @param user
      * @param guild
      * @return <ul>
@@ -175,29 +193,7 @@ public final class UserPermissions
      */
     public static int getPermissionLevel(IUser user, GuildObject guild)
     {
-        String clientID = user.getClient().getApplicationClientID();
-
-        if (bots.get(clientID).isBanned(user))
-        {
-            return NONE;
-        }
-        else if (bots.get(clientID).isCreator(user))
-        {
-            return CREATOR;
-        }
-        else if (bots.get(clientID).isAppOwner(user))
-        {
-            return APP_OWNER;
-        }
-        else if (guild.isOwner(user))
-        {
-            return OWNER;
-        }
-        else if (guild.isMaster(user))
-        {
-            return MASTER;
-        }
-        return USER;
+        return getContext(user.getClient().getApplicationClientID()).getPermissionLevel(user, guild);
     }
 
     /**
@@ -219,29 +215,77 @@ public final class UserPermissions
      */
     public static int getPermissionLevel(IUser user)
     {
-        String clientID = user.getClient().getApplicationClientID();
+        return getContext(user.getClient().getApplicationClientID()).getPermissionLevel(user);
+    }
 
-        if (bots.get(clientID).isBanned(user))
-        {
-            return NONE;
-        }
-        else if (bots.get(clientID).isCreator(user))
-        {
-            return CREATOR;
-        }
-        else if (bots.get(clientID).isAppOwner(user))
-        {
-            return APP_OWNER;
-        }
-        else if (bots.get(clientID).isOwner(user))
-        {
-            return OWNER;
-        }
-        else if (bots.get(clientID).isMaster(user))
+    /**
+     * Gets the permission levels of all the given users on that guild.
+     * 
+     * @param guild
+     *            The guild on which the permission levels should be checked.
+     * @param userIDs
+     *            The long IDs of the users.
+     * @return An array containing the permission level for each ID in the iteration order of the given collection.
+     * 
+     * @see PermissionContext#getPermissionLevels(GuildObject, Collection)
+     */
+    public static int[] getPermissionLevels(GuildObject guild, Collection<Long> userIDs)
+    {
+        return getContext(guild.getGuild().getClient().getApplicationClientID()).getPermissionLevels(guild, userIDs);
+    }
+
+    /**
+     * Gets the permission levels of all the given users on that guild.
+     * 
+     * @param guild
+     *            The guild on which the permission levels should be checked.
+     * @param userIDs
+     *            The long IDs of the users.
+     * @return An array containing the permission level for each ID at the same index.
+     * 
+     * @see PermissionContext#getPermissionLevels(GuildObject, long[], boolean)
+     */
+    public static int[] getPermissionLevels(GuildObject guild, long[] userIDs)
+    {
+        return getPermissionLevels(guild, userIDs, userIDs.length >= PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Gets the permission levels of all the given users on that guild.
+     * 
+     * @param guild
+     *            The guild on which the permission levels should be checked.
+     * @param userIDs
+     *            The long IDs of the users.
+     * @param parallel
+     *            true if the levels should be resolved in parallel.
+     * @return An array containing the permission level for each ID at the same index.
+     * 
+     * @see PermissionContext#getPermissionLevels(GuildObject, long[], boolean)
+     */
+    public static int[] getPermissionLevels(GuildObject guild, long[] userIDs, boolean parallel)
+    {
+        return getContext(guild.getGuild().getClient().getApplicationClientID())
+                .getPermissionLevels(guild, userIDs, parallel);
+    }
+
+    /**
+     * Gets the {@link PermissionContext} of the bot with the given client ID.
+     * 
+     * @param clientID
+     *            The application client ID of the bot.
+     * @return The context.
+     * @throws IllegalStateException
+     *             If no bot with the given client ID has been registered via {@link #setBot(Bot)}.
+     */
+    private static PermissionContext getContext(String clientID)
+    {
+        PermissionContext context = contexts.get(clientID);
+        if (context == null)
         {
-            return MASTER;
+            throw new IllegalStateException("No bot has been registered for the client ID " + clientID + ".");
         }
-        return USER;
+        return context;
     }
 
     public static int getHighestRolePosition(IUser user, IGuild guild)